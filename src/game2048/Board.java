@@ -3,11 +3,123 @@ package game2048;
 import java.io.*;
 import java.util.concurrent.*;
 
+/**
+ * The tiles are stored as 4-bit exponents (0 for an open tile) packed into a single long, see getBitboard().  Moves
+ * are made a whole row or column at a time, by looking up the result for each of the 65536 possible lines of four
+ * tiles in tables shared by all boards.  The tables hold the XOR of each line with its result (already spread out
+ * into the column's nibbles, for the column tables) along with the score gained, so the moves are branch-free.
+ *
+ * Since a nibble can't hold more than 15, merging two 32768 tiles throws an IllegalStateException.
+ *
+ * New tiles are placed using the board's own SplitMix64 stream, which is seeded for each game.  A game started with
+ * Board(long) or reset(long) therefore spawns exactly the same tiles every time it is given the same moves, so that
+ * different nets can be tested against the same set of games (see gameSeed()).  The no-arg constructor and reset()
+ * take their seed from ThreadLocalRandom, as before.
+ */
 public class Board {
     private static final int[] POW2 = new int[]
             { 0, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096, 8192, 16384, 32768, 65536, 131072 };
 
-    private final byte[][] tiles = new byte[4][4];
+    private static final int MAX_TILE = 15;
+    private static final int OVERFLOW = Integer.MIN_VALUE / 4; // still negative when the scores of four lines are added
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L; // SplitMix64's increment
+
+    private static final char[] ROW_LEFT = new char[65536];
+    private static final char[] ROW_RIGHT = new char[65536];
+    private static final long[] COLUMN_UP = new long[65536];
+    private static final long[] COLUMN_DOWN = new long[65536];
+    private static final int[] SCORE_LEFT = new int[65536];
+    private static final int[] SCORE_RIGHT = new int[65536];
+
+    static {
+        int[] tiles = new int[4];
+        for (int line = 0; line < 65536; line++) {
+            for (int i = 0; i < 4; i++) {
+                tiles[i] = (line >>> (i * 4)) & 0xF;
+            }
+
+            int score = slide(tiles);
+            int result = tiles[0] | tiles[1] << 4 | tiles[2] << 8 | tiles[3] << 12;
+
+            // left / up, with the first tile in the lowest nibble, and right / down as its mirror image
+            int reversed = reverse(line);
+            ROW_LEFT[line] = (char)result;
+            ROW_RIGHT[reversed] = (char)reverse(result);
+            COLUMN_UP[line] = spread(line ^ result);
+            COLUMN_DOWN[reversed] = spread(reversed ^ reverse(result));
+            SCORE_LEFT[line] = score;
+            SCORE_RIGHT[reversed] = score;
+        }
+    }
+
+    /**
+     * Slides and merges one line of tiles towards index 0, the same way as the original byte[4][4] board did
+     *
+     * @return the score gained, or OVERFLOW if the result would have a tile above MAX_TILE
+     */
+    private static int slide(int[] tiles) {
+        int score = 0;
+
+        for (int i = 0; i < 4; i++) {
+            if (tiles[i] == 0) {
+                boolean empty = true;
+
+                for (int o = i + 1; o < 4; o++) {
+                    if (tiles[o] != 0) {
+                        tiles[i] = tiles[o];
+                        tiles[o] = 0;
+                        empty = false;
+                        break;
+                    }
+                }
+
+                if (empty) break;
+            }
+
+            for (int o = i + 1; o < 4; o++) {
+                if (tiles[o] == tiles[i]) {
+                    tiles[i]++;
+                    tiles[o] = 0;
+                    if (tiles[i] > MAX_TILE) return OVERFLOW;
+                    score += POW2[tiles[i]];
+                    break;
+
+                } else if (tiles[o] != 0) {
+                    break;
+                }
+            }
+        }
+
+        return score;
+    }
+
+    private static int reverse(int line) {
+        return (line & 0xF) << 12 | (line & 0xF0) << 4 | (line & 0xF00) >>> 4 | line >>> 12;
+    }
+
+    /**
+     * @return the line's four nibbles spread out into the nibbles of one column (the first column) of a board
+     */
+    private static long spread(int line) {
+        return (line & 0xFL) | (line & 0xF0L) << 12 | (line & 0xF00L) << 24 | (line & 0xF000L) << 36;
+    }
+
+    /**
+     * @return the seed of one game in a set of games, e.g. the same set played by every net in a generation.  Mixed
+     * so that the streams of neighbouring games (and of neighbouring sets) don't overlap
+     */
+    public static long gameSeed(long setSeed, int game) {
+        return mix(setSeed + mix(game * GOLDEN_GAMMA));
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private long board;
+    private long random;
     private boolean active = true;
     private int rounds = 0;
     private int score = 0;
@@ -37,13 +149,27 @@ public class Board {
     }
 
     public Board() {
-        addTile((byte)16);
-        addTile((byte)15);
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * @param seed the seed for the tiles spawned in this game, see reset(long)
+     */
+    public Board(long seed) {
+        this.random = seed;
+        addTile(16);
+        addTile(15);
     }
 
 
     public byte[][] getTiles() {
-        return this.tiles.clone();
+        byte[][] tiles = new byte[4][4];
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 4; col++) {
+                tiles[row][col] = this.getTile(row, col);
+            }
+        }
+        return tiles;
     }
 
     public int getScore() {
@@ -65,18 +191,22 @@ public class Board {
     }
 
     public void reset() {
+        this.reset(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Starts a new game, whose tiles are spawned from the given seed.  The same seed and the same moves always give
+     * the same game
+     */
+    public void reset(long seed) {
         this.active = true;
         this.rounds = 0;
         this.score = 0;
+        this.board = 0;
+        this.random = seed;
 
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                this.tiles[i][j] = 0;
-            }
-        }
-
-        addTile((byte)16);
-        addTile((byte)15);
+        addTile(16);
+        addTile(15);
     }
 
     public String toString() {
@@ -88,16 +218,17 @@ public class Board {
 
         for (int i = 0; i < 4; i++) {
             for (int j = 0; true; j++) {
-                if (tiles[i][j] == 0) {
+                byte tile = this.getTile(i, j);
+                if (tile == 0) {
                 next[0] = next[1] = '-';
 
-                } else if (tiles[i][j] > 10) {
+                } else if (tile > 10) {
                     next[0] = '1';
-                    next[1] = (char)(tiles[i][j] + 38);
+                    next[1] = (char)(tile + 38);
 
                 } else {
                     next[0] = ' ';
-                    next[1] = (char)(tiles[i][j] + 48);
+                    next[1] = (char)(tile + 48);
                 }
 
                 chars[index++] = next[0];
@@ -120,257 +251,134 @@ public class Board {
         return String.copyValueOf(chars);
     }
 
+    /**
+     * Assumes there are no open tiles.  A full board is lost when no two neighbouring tiles are equal, i.e. when
+     * neither the board XORed with itself shifted by one column, nor by one row, has a zero nibble
+     */
     private boolean checkLost() {
-        // assumes there are no open tiles
-        return     tiles[0][0] != tiles[1][0]
-                && tiles[0][0] != tiles[0][1]
-                && tiles[0][1] != tiles[1][1]
-                && tiles[0][1] != tiles[0][2]
-                && tiles[0][2] != tiles[1][2]
-                && tiles[0][2] != tiles[0][3]
-                && tiles[0][3] != tiles[1][3]
-
-                && tiles[1][0] != tiles[2][0]
-                && tiles[1][0] != tiles[1][1]
-                && tiles[1][1] != tiles[2][1]
-                && tiles[1][1] != tiles[1][2]
-                && tiles[1][2] != tiles[2][2]
-                && tiles[1][2] != tiles[1][3]
-                && tiles[1][3] != tiles[2][3]
-
-                && tiles[2][0] != tiles[3][0]
-                && tiles[2][0] != tiles[2][1]
-                && tiles[2][1] != tiles[3][1]
-                && tiles[2][1] != tiles[2][2]
-                && tiles[2][2] != tiles[3][2]
-                && tiles[2][2] != tiles[2][3]
-                && tiles[2][3] != tiles[3][3]
-
-                && tiles[3][0] != tiles[3][1]
-                && tiles[3][1] != tiles[3][2]
-                && tiles[3][2] != tiles[3][3];
-
+        long board = this.board;
+        return (openTiles(board ^ (board >>> 4)) & 0x0111_0111_0111_0111L) == 0
+            && (openTiles(board ^ (board >>> 16)) & 0x0000_1111_1111_1111L) == 0;
     }
 
-    public boolean up() {
-        byte numberOpen = 0;
-        boolean moved = false;
-
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                if (this.tiles[i][j] == 0) {
-                    boolean empty = true;
-
-                    for (int o = i + 1; o < 4; o++) {
-                        if (this.tiles[o][j] != 0) {
-                            this.tiles[i][j] = this.tiles[o][j];
-                            this.tiles[o][j] = 0;
-                            empty = false;
-                            moved = true;
-                            break;
-                        }
-                    }
+    /**
+     * @return the lowest bit of every zero nibble of the board, i.e. one bit for each open tile
+     */
+    private static long openTiles(long board) {
+        return ~(board | board >>> 1 | board >>> 2 | board >>> 3) & 0x1111_1111_1111_1111L;
+    }
 
-                    if (empty)  {
-                        numberOpen++;
-                        continue;
-                    }
-                }
+    /**
+     * @return the column as a 16-bit line, with the top row's tile in the lowest nibble
+     */
+    private static int column(long board, int col) {
+        long column = (board >>> (col * 4)) & 0x000F_000F_000F_000FL;
+        return (int)(column | column >>> 12 | column >>> 24 | column >>> 36) & 0xFFFF;
+    }
 
-                for (int o = i + 1; o < 4; o++) {
-                    if (this.tiles[o][j] == this.tiles[i][j]) {
-                        this.tiles[i][j]++;
-                        this.tiles[o][j] = 0;
-                        this.score += POW2[this.tiles[i][j]];
-                        moved = true;
-                        break;
+    public boolean up() {
+        long board = this.board;
+        long moved = board;
+        int score = 0;
 
-                    } else if (this.tiles[o][j] != 0) {
-                        break;
-                    }
-                }
-            }
+        for (int col = 0; col < 4; col++) {
+            int line = column(board, col);
+            moved ^= COLUMN_UP[line] << (col * 4);
+            score += SCORE_LEFT[line];
         }
 
-        if (moved) {
-            if (numberOpen == ((byte)0)) throw new IllegalStateException();
-            this.rounds++;
-            addTile(numberOpen);
-            if (numberOpen == ((byte)1)) this.active = !checkLost();
-            return true;
-            
-        } else return false;
+        return this.finishMove(moved, score);
     }
 
     public boolean down() {
-        byte numberOpen = 0;
-        boolean moved = false;
-
-        for (int i = 3; i >= 0; i--) {
-            for (int j = 0; j < 4; j++) {
-                if (this.tiles[i][j] == 0) {
-                    boolean empty = true;
-
-                    for (int o = i - 1; o >= 0; o--) {
-                        if (this.tiles[o][j] != 0) {
-                            this.tiles[i][j] = this.tiles[o][j];
-                            this.tiles[o][j] = 0;
-                            empty = false;
-                            moved = true;
-                            break;
-                        }
-                    }
-
-                    if (empty)  {
-                        numberOpen++;
-                        continue;
-                    }
-                }
-
-                for (int o = i - 1; o >= 0; o--) {
-                    if (this.tiles[o][j] == this.tiles[i][j]) {
-                        this.tiles[i][j]++;
-                        this.tiles[o][j] = 0;
-                        this.score += POW2[this.tiles[i][j]];
-                        moved = true;
-                        break;
+        long board = this.board;
+        long moved = board;
+        int score = 0;
 
-                    } else if (this.tiles[o][j] != 0) {
-                        break;
-                    }
-                }
-            }
+        for (int col = 0; col < 4; col++) {
+            int line = column(board, col);
+            moved ^= COLUMN_DOWN[line] << (col * 4);
+            score += SCORE_RIGHT[line];
         }
 
-        if (moved) {
-            if (numberOpen == ((byte)0)) throw new IllegalStateException();
-            this.rounds++;
-            addTile(numberOpen);
-            if (numberOpen == ((byte)1)) this.active = !checkLost();
-            return true;
-
-        } else return false;
+        return this.finishMove(moved, score);
     }
 
     public boolean left() {
-        byte numberOpen = 0;
-        boolean moved = false;
-
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                if (this.tiles[j][i] == 0) {
-                    boolean empty = true;
-
-                    for (int o = i + 1; o < 4; o++) {
-                        if (this.tiles[j][o] != 0) {
-                            this.tiles[j][i] = this.tiles[j][o];
-                            this.tiles[j][o] = 0;
-                            empty = false;
-                            moved = true;
-                            break;
-                        }
-                    }
-
-                    if (empty)  {
-                        numberOpen++;
-                        continue;
-                    }
-                }
-
-                for (int o = i + 1; o < 4; o++) {
-                    if (this.tiles[j][o] == this.tiles[j][i]) {
-                        this.tiles[j][i]++;
-                        this.tiles[j][o] = 0;
-                        this.score += POW2[this.tiles[j][i]];
-                        moved = true;
-                        break;
+        long board = this.board;
+        long moved = board;
+        int score = 0;
 
-                    } else if (this.tiles[j][o] != 0) {
-                        break;
-                    }
-                }
-            }
+        for (int shift = 0; shift < 64; shift += 16) {
+            int line = (int)(board >>> shift) & 0xFFFF;
+            moved ^= (long)(ROW_LEFT[line] ^ line) << shift;
+            score += SCORE_LEFT[line];
         }
 
-        if (moved) {
-            if (numberOpen == ((byte)0)) throw new IllegalStateException();
-            this.rounds++;
-            addTile(numberOpen);
-            if (numberOpen == ((byte)1)) this.active = !checkLost();
-            return true;
-
-        } else return false;
+        return this.finishMove(moved, score);
     }
 
     public boolean right() {
-        byte numberOpen = 0;
-        boolean moved = false;
-
-        for (int i = 3; i >=0; i--) {
-            for (int j = 0; j < 4; j++) {
-                if (this.tiles[j][i] == 0) {
-                    boolean empty = true;
-
-                    for (int o = i - 1; o >= 0; o--) {
-                        if (this.tiles[j][o] != 0) {
-                            this.tiles[j][i] = this.tiles[j][o];
-                            this.tiles[j][o] = 0;
-                            empty = false;
-                            moved = true;
-                            break;
-                        }
-                    }
+        long board = this.board;
+        long moved = board;
+        int score = 0;
 
-                    if (empty)  {
-                        numberOpen++;
-                        continue;
-                    }
-                }
+        for (int shift = 0; shift < 64; shift += 16) {
+            int line = (int)(board >>> shift) & 0xFFFF;
+            moved ^= (long)(ROW_RIGHT[line] ^ line) << shift;
+            score += SCORE_RIGHT[line];
+        }
 
-                for (int o = i - 1; o >= 0; o--) {
-                    if (this.tiles[j][o] == this.tiles[j][i]) {
-                        this.tiles[j][i]++;
-                        this.tiles[j][o] = 0;
-                        this.score += POW2[this.tiles[j][i]];
-                        moved = true;
-                        break;
+        return this.finishMove(moved, score);
+    }
 
-                    } else if (this.tiles[j][o] != 0) {
-                        break;
-                    }
-                }
-            }
-        }
+    private boolean finishMove(long moved, int score) {
+        if (score < 0) throw new IllegalStateException("Tiles above " + POW2[MAX_TILE] + " are not supported");
+        if (moved == this.board) return false;
 
-        if (moved) {
-            if (numberOpen == ((byte)0)) throw new IllegalStateException();
-            this.rounds++;
-            addTile(numberOpen);
-            if (numberOpen == ((byte)1)) this.active = !checkLost();
-            return true;
+        this.board = moved;
+        this.score += score;
 
-        } else return false;
+        int numberOpen = Long.bitCount(openTiles(moved));
+        if (numberOpen == 0) throw new IllegalStateException();
+        this.rounds++;
+        addTile(numberOpen);
+        if (numberOpen == 1) this.active = !checkLost();
+        return true;
     }
 
-    private void addTile(byte numberOpen) {
-        ThreadLocalRandom tlr = ThreadLocalRandom.current();
-        int tileNum = tlr.nextInt(numberOpen);
-
+    private void addTile(int numberOpen) {
+        int tileNum = this.nextInt(numberOpen);
 
-        for (byte[] row : this.tiles) {
-            for (int i = 0; i < 4; i++) {
-                if (row[i] != 0) continue;
-                else if (tileNum-- == 0) {
-                    row[i] = (byte)((tlr.nextInt(10) < 9) ? 1 : 2);
-                    return;
-                }
-            }
+        // the open tiles in row-major order, which is also the order of the nibbles
+        long open = openTiles(this.board);
+        if (Long.bitCount(open) <= tileNum) throw new IllegalStateException();
+        for (int i = 0; i < tileNum; i++) {
+            open &= open - 1;
         }
 
-        throw new IllegalStateException();
+        this.board |= (long)((this.nextInt(10) < 9) ? 1 : 2) << Long.numberOfTrailingZeros(open);
+    }
+
+    /**
+     * The next value of the SplitMix64 stream, scaled into [0, bound) by multiplying rather than dividing.  The bias
+     * this leaves is below one part in 2^28 for the small bounds used here
+     */
+    private int nextInt(int bound) {
+        this.random += GOLDEN_GAMMA;
+        return (int)(((mix(this.random) >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * @return all sixteen tiles packed into a long, as 4-bit exponents in row-major order starting from the lowest
+     * nibble.  Cheap to hash or record, since it is the board's entire state besides the score
+     */
+    public long getBitboard() {
+        return this.board;
     }
 
     public byte getTile(int row, int col) throws ArrayIndexOutOfBoundsException {
-        return this.tiles[row][col];
+        if ((row | col) >>> 2 != 0) throw new ArrayIndexOutOfBoundsException();
+        return (byte)((this.board >>> ((row * 4 + col) * 4)) & 0xF);
     }
 }
@@ -18,18 +18,33 @@ public class BoardInterface extends Board implements
     public static final double MS_CHECK_THRESHOLD = 1.0;
             //If a single round takes more than this ^^ ms, then do a check against quitting time as determined by MAX_MS_TRIALS
 
+    private int batchLanes = 0;
+    private int gamesPerTest = GAMES_PER_TEST;
+    private Long gameSetSeed = null; // null for a new random set of games in every fitness test
+    private transient DecisionRanking ranking;
+
     @Override
     public int decisionCount() {
         return 4;
     }
 
+    @Override
+    public DecisionRanking getDecisionRanking() {
+        if (this.ranking == null) this.ranking = new DecisionRanking();
+        return this.ranking;
+    }
+
     @Override
     public boolean takeAction(int decisionId) throws IllegalArgumentException {
+        return takeAction(this, decisionId);
+    }
+
+    private static boolean takeAction(Board board, int decisionId) throws IllegalArgumentException {
         switch(decisionId) {
-            case 0: return this.up();
-            case 1: return this.down();
-            case 2: return this.left();
-            case 3: return this.right();
+            case 0: return board.up();
+            case 1: return board.down();
+            case 2: return board.left();
+            case 3: return board.right();
 
             default: throw new IllegalArgumentException(decisionId + "");
         }
@@ -38,62 +53,264 @@ public class BoardInterface extends Board implements
     @Override
     public BoardNetFitness testFitness(DecisionProvider<BoardInterface, ?, BoardInterface> boardNet, List<BoardInterface> usingInputs) {
         if (usingInputs != null && (usingInputs.size() > 1 || usingInputs.get(0) != this)) throw new IllegalArgumentException();
-        //try (UniqueAffinityLock af = UniqueAffinityLock.obtain()) {
-            boardNet.setSensedObject(this);
 
-            int gamesRun = 0;
-            double arthMean = 0;
-            double geoMean = 0;
-            int[] scores = new int[GAMES_PER_TEST];
-            AccumulatedAverage timePerMove = new AccumulatedAverage(); //in milliseconds
+        FitnessTest test = new FitnessTest((BoardNet)boardNet, this.gamesPerTest);
+        this.playGames(test, this.gamesPerTest);
+        return test.getFitness();
+    }
+
+    /**
+     * Continues a fitness test with up to the given number of games, e.g. one round of a race between the nets of a
+     * generation.  Stops early if the test reaches its number of games, or if the time spent on the test so far
+     * exceeds MAX_MS_TRIALS (after which the test is finished).  With a gameSetSeed, the games carry on through the
+     * same set from where the last call left off.
+     */
+    public void playGames(FitnessTest test, int games) {
+        if (games < 1) throw new IllegalArgumentException();
+        if (test.testTime >= MAX_MS_TRIALS * MILLION) test.timedOut = true;
+        if (test.isFinished()) return;
+        BoardNet net = test.net;
+        int endGame = Math.min(test.gamesRun + games, test.scores.length);
+
+        if (this.batchLanes > 1) {
+            BatchEvaluator batch = net.getExecutionPlan().getBatchEvaluator(Math.min(this.batchLanes, test.scores.length));
+            if (batch != null) {
+                this.playGamesBatched(test, endGame, batch);
+                return;
+            }
+        }
 
-            long quitAfter = System.currentTimeMillis() + MAX_MS_TRIALS;
+        //try (UniqueAffinityLock af = UniqueAffinityLock.obtain()) {
+            net.setSensedObject(this);
+
+            long quitAfter = System.currentTimeMillis() + MAX_MS_TRIALS - (long)(test.testTime / MILLION);
             long startTest = System.nanoTime();
 
             do {
                 boolean cutShort = false;
-                this.reset();
-                boardNet.reset();
+                this.startGame(this, test.gamesRun);
+                net.reset();
                 while (this.isActive()) {
                     long startRound = System.nanoTime();
-                    this.runRound(boardNet);
+                    this.runRound(net);
                     long endRound = System.nanoTime();
                     double ms = (endRound - startRound) / MILLION;
-                    timePerMove.add(ms);
+                    test.timePerMove.add(ms);
                     if (ms > MS_CHECK_THRESHOLD && System.currentTimeMillis() > quitAfter) {
                         cutShort = true;
                         break;
                     }
                 }
                 //System.out.println(this + "" + this.getScore() + "\n\n");
-                if (cutShort && gamesRun != 0) break;
+                if (cutShort && test.gamesRun != 0) {
+                    test.timedOut = true;
+                    break;
+                }
                         // If gamesRun == 0 we'll record the current game as if it's finished...
                         // otherwise this game will be ignored
-                        // When gamesRun == 0, the while condition will still increment gamesRun
+                        // When gamesRun == 0, recording the score will still increment gamesRun
                         // and then the time check will cause the loop to break
 
-                int score = this.getScore();
-                arthMean += score;
-                geoMean += Math.log(score);
-                scores[gamesRun] = score;
+                test.addScore(this.getScore());
 
-            } while(++gamesRun < GAMES_PER_TEST && System.currentTimeMillis() <= quitAfter);
+            } while(test.gamesRun < endGame && !(test.timedOut = System.currentTimeMillis() > quitAfter));
 
-            long endTest = System.nanoTime();
+            test.testTime += System.nanoTime() - startTest;
+        //}
+    }
 
-            arthMean /= gamesRun;
-            geoMean = Math.exp(geoMean / gamesRun);
+    /**
+     * Plays up to batchLanes games at once, in lockstep, with a BatchEvaluator calculating the decision weights for
+     * every board in one pass.  The moves taken are exactly those which runRound() would take for each board on its
+     * own (including the NoOp rounds and DecisionNode.compareTo()'s round-dependent tie-breaking), since the net is
+     * stateless and every lane tracks its own round counter.  Finished games are replaced with new ones until endGame
+     * has been started or time runs out, after which their lanes are masked off.
+     */
+    private void playGamesBatched(FitnessTest test, int endGame, BatchEvaluator batch) {
+        BoardNet net = test.net;
+        int lanes = batch.lanes();
+        List<BoardNet.Sensor> sensors = net.getSensors();
+        List<BoardNet.Decision> decisions = net.getDecisionNodes();
+
+        int decisionCount = decisions.size();
+        int[] decisionIds = new int[decisionCount];
+        int[] masks = new int[decisionCount]; // the round-independent part of DecisionNode.compareTo()'s tie-breaker
+        for (int d = 0; d < decisionCount; d++) {
+            BoardNet.Decision decision = decisions.get(d);
+            decisionIds[d] = decision.getDecisionId();
+            masks[d] = DecisionRanking.tieBreakMask(decision);
+        }
 
-            Arrays.sort(scores);
-            int startIndex = GAMES_PER_TEST - gamesRun;
-            double median;
-            int medIndex = gamesRun / 2 + startIndex;
-            if ((gamesRun & 0b1) == 1) median = scores[medIndex];
-            else median = (double)(scores[medIndex - 1] + scores[medIndex]) / 2;
+        short[] weights = new short[decisionCount];
+        int[] order = new int[decisionCount];
+        int[] noOpOrder = new int[decisionCount];
+
+        Board[] boards = new Board[lanes];
+        long[] rounds = new long[lanes];
+        int activeLanes = 0;
+        int gamesStarted = test.gamesRun;
+        for (int lane = 0; lane < lanes; lane++) {
+            boolean active = gamesStarted < endGame;
+            if (active) {
+                boards[lane] = new Board();
+                this.startGame(boards[lane], gamesStarted++);
+                activeLanes++;
+            }
+            batch.setActive(lane, active);
+        }
 
-            return new BoardNetFitness((BoardNet)boardNet, scores[startIndex], scores[GAMES_PER_TEST - 1],
-                    arthMean, geoMean, median, timePerMove.getAverage(), endTest - startTest);
-        //}
+        long quitAfter = System.currentTimeMillis() + MAX_MS_TRIALS - (long)(test.testTime / MILLION);
+        long startTest = System.nanoTime();
+
+        while (activeLanes > 0) {
+            long startRound = System.nanoTime();
+
+            for (int s = 0; s < sensors.size(); s++) {
+                short[] sensorLanes = batch.getSensorLanes(s);
+                if (sensorLanes == null) continue;
+
+                BoardNet.Sensor sensor = sensors.get(s);
+                for (int lane = 0; lane < lanes; lane++) {
+                    if (batch.isActive(lane)) sensorLanes[lane] = sensor.sense(boards[lane]);
+                }
+            }
+
+            batch.evaluate();
+
+            for (int lane = 0; lane < lanes; lane++) {
+                if (!batch.isActive(lane)) continue;
+
+                for (int d = 0; d < decisionCount; d++) {
+                    weights[d] = batch.getDecisionWeight(d, lane);
+                }
+                rounds[lane] = this.runRound(boards[lane], rounds[lane], weights, decisionIds, masks, order, noOpOrder);
+            }
+
+            long endRound = System.nanoTime();
+            double ms = (endRound - startRound) / MILLION / activeLanes;
+            for (int i = 0; i < activeLanes; i++) {
+                test.timePerMove.add(ms);
+            }
+
+            boolean cutShort = ms > MS_CHECK_THRESHOLD && System.currentTimeMillis() > quitAfter;
+
+            for (int lane = 0; lane < lanes; lane++) {
+                if (!batch.isActive(lane) || (boards[lane].isActive() && !(cutShort && test.gamesRun == 0))) continue;
+
+                // as in playGames(), a game which is cut short is only recorded when no other game has finished
+                if (!boards[lane].isActive() || test.gamesRun == 0) {
+                    test.addScore(boards[lane].getScore());
+                }
+
+                if (System.currentTimeMillis() > quitAfter) test.timedOut = true;
+                if (!cutShort && gamesStarted < endGame && !test.timedOut) {
+                    this.startGame(boards[lane], gamesStarted);
+                    rounds[lane] = 0;
+                    gamesStarted++;
+
+                } else {
+                    batch.setActive(lane, false);
+                    activeLanes--;
+                }
+            }
+
+            if (cutShort) {
+                test.timedOut = true;
+                break;
+            }
+        }
+
+        test.testTime += System.nanoTime() - startTest;
+    }
+
+    /**
+     * Resets the board for the given game of a fitness test, which is the same game in every test when there is a
+     * gameSetSeed
+     */
+    private void startGame(Board board, int game) {
+        if (this.gameSetSeed != null) board.reset(Board.gameSeed(this.gameSetSeed, game));
+        else board.reset();
+    }
+
+    /**
+     * Replays DecisionConsumer.runRound() for one lane of a batch, from the decision weights of a stateless net
+     *
+     * @return the lane's new round counter
+     */
+    private long runRound(Board board, long round, short[] weights, int[] decisionIds, int[] masks,
+                          int[] order, int[] noOpOrder) {
+
+        DecisionRanking.sort(order, weights, masks, ++round);
+
+        // like runRound(), keeps going through the remaining decisions even after the NoOp rounds
+        for (int d : order) {
+            if (decisionIds[d] == -1) round = this.runNoOpRounds(board, round, weights, decisionIds, masks, noOpOrder);
+            else if (takeAction(board, decisionIds[d])) return round;
+        }
+        return round;
+    }
+
+    private long runNoOpRounds(Board board, long round, short[] weights, int[] decisionIds, int[] masks,
+                               int[] order) {
+
+        int end = this.getMaxNoOpRounds();
+        if (end > 0) {
+            DecisionRanking.sort(order, weights, masks, ++round);
+            for (int d : order) {
+                if (decisionIds[d] == -1) break;
+                if (takeAction(board, decisionIds[d])) return round;
+            }
+
+            // the board hasn't changed, so a stateless net gives the same weights again, which ends the NoOp rounds
+            if (end > 1) round++;
+        }
+
+        DecisionRanking.sort(order, weights, masks, round);
+        for (int d : order) {
+            if (decisionIds[d] == -1) continue;
+            if (takeAction(board, decisionIds[d])) return round;
+        }
+        return round;
+    }
+
+    public int getBatchLanes() {
+        return this.batchLanes;
+    }
+
+    /**
+     * @param batchLanes how many games testFitness() and playGames() may play in lockstep (see playGamesBatched())
+     *                   when the net is made entirely of stateless neurons.  0 or 1 plays one game at a time, as usual
+     */
+    public void setBatchLanes(int batchLanes) {
+        if (batchLanes < 0) throw new IllegalArgumentException();
+        this.batchLanes = batchLanes;
+    }
+
+    public int getGamesPerTest() {
+        return this.gamesPerTest;
+    }
+
+    /**
+     * @param gamesPerTest the most games testFitness() plays (time permitting).  Defaults to GAMES_PER_TEST.  With a
+     *                     gameSetSeed every net plays the same games, so far fewer may be enough to rank them
+     */
+    public void setGamesPerTest(int gamesPerTest) {
+        if (gamesPerTest < 1) throw new IllegalArgumentException();
+        this.gamesPerTest = gamesPerTest;
+    }
+
+    public Long getGameSetSeed() {
+        return this.gameSetSeed;
+    }
+
+    /**
+     * @param gameSetSeed the seed of the set of games which testFitness() plays, see Board.gameSeed().  Nets tested
+     *                    with the same seed see exactly the same tile spawns for as long as they make the same moves
+     *                    ("common random numbers"), so the differences between their scores are down to the nets
+     *                    rather than luck.  null (the default) plays a new random set of games in every test
+     */
+    public void setGameSetSeed(Long gameSetSeed) {
+        this.gameSetSeed = gameSetSeed;
     }
 
     @Override
@@ -107,6 +324,92 @@ public class BoardInterface extends Board implements
     }
 
 
+    /**
+     * The games played so far in one net's fitness test, which may be played in several installments by playGames()
+     * before getFitness() summarizes them.  Also tracks the mean and standard error of the log of the scores, which
+     * is how a racing EvolutionaryEngine estimates how much a net's fitness might still change with more games
+     */
+    public static class FitnessTest {
+        public final BoardNet net;
+
+        private final int[] scores;
+        private int gamesRun = 0;
+        private double sumScores = 0;
+        private double sumLogs = 0;
+        private double sumSquaredLogs = 0;
+        private final AccumulatedAverage timePerMove = new AccumulatedAverage(); //in milliseconds
+        private long testTime = 0;
+        private boolean timedOut = false;
+
+        public FitnessTest(BoardNet net, int games) {
+            if (games < 1) throw new IllegalArgumentException();
+            this.net = net;
+            this.scores = new int[games];
+        }
+
+        private void addScore(int score) {
+            double log = Math.log(score);
+            this.scores[this.gamesRun++] = score;
+            this.sumScores += score;
+            this.sumLogs += log;
+            this.sumSquaredLogs += log * log;
+        }
+
+        public int getGamesRun() {
+            return this.gamesRun;
+        }
+
+        public int getGamesPerTest() {
+            return this.scores.length;
+        }
+
+        /**
+         * @return the nanoseconds spent playing the games so far
+         */
+        public long getTestTime() {
+            return this.testTime;
+        }
+
+        /**
+         * @return whether every game has been played, or time ran out
+         */
+        public boolean isFinished() {
+            return this.timedOut || this.gamesRun >= this.scores.length;
+        }
+
+        public double getMeanLog() {
+            return this.sumLogs / this.gamesRun;
+        }
+
+        /**
+         * @return the standard error of getMeanLog(), or infinity with fewer than two games
+         */
+        public double getStandardErrorLog() {
+            if (this.gamesRun < 2) return Double.POSITIVE_INFINITY;
+            double mean = this.getMeanLog();
+            double variance = Math.max(0, (this.sumSquaredLogs - mean * this.sumLogs) / (this.gamesRun - 1));
+            return Math.sqrt(variance / this.gamesRun);
+        }
+
+        /**
+         * @return the fitness from the games played so far
+         */
+        public BoardNetFitness getFitness() {
+            int gamesRun = this.gamesRun;
+            if (gamesRun == 0) throw new IllegalStateException();
+
+            int[] scores = Arrays.copyOf(this.scores, gamesRun);
+            Arrays.sort(scores);
+            double median;
+            int medIndex = gamesRun / 2;
+            if ((gamesRun & 0b1) == 1) median = scores[medIndex];
+            else median = (double)(scores[medIndex - 1] + scores[medIndex]) / 2;
+
+            return new BoardNetFitness(this.net, scores[0], scores[gamesRun - 1], this.sumScores / gamesRun,
+                    Math.exp(this.sumLogs / gamesRun), median, this.timePerMove.getAverage(), this.testTime, gamesRun);
+        }
+    }
+
     public static class BoardNetFitness implements Fitness<BoardInterface, BoardNetFitness> {
         public static final double TIME_PER_MOVE_THRESHOLD = 0.25; // if time per move is above this threshold, the score is negatively impacted
         public static final double TIME_WEIGHTING = 0.25; // relative weight of the time-adjusted score vs. the raw score (where raw score is always weighted 1.0)
@@ -125,11 +428,12 @@ public class BoardInterface extends Board implements
         public final double timePerMove;
         public final double weightedScore;
         public final long testTime;
+        public final int gamesPlayed;
 
         public final long generation = NeuralNet.getCurrentGeneration();
 
         private BoardNetFitness(final BoardNet net, final int min, final int max, final double arthMean, final double geoMean, final double median,
-                                final double timePerMove, final long testTime) {
+                                final double timePerMove, final long testTime, final int gamesPlayed) {
             this.net = net;
 
             this.min = min;
@@ -141,6 +445,7 @@ public class BoardInterface extends Board implements
             this.median = median;
 
             this.testTime = testTime;
+            this.gamesPlayed = gamesPlayed;
 
             double minMetric = Util.min(arthMean, geoMean, median, minMaxGeo);
             double composite = Math.sqrt(Math.sqrt(arthMean * geoMean) * Math.sqrt(median * this.minMaxGeo)); //geomean of the four score metrics
@@ -216,6 +521,7 @@ public class BoardInterface extends Board implements
                     + "\t\tMedian: " + this.median
                     + "\t\tMinMaxGeo: " + this.minMaxGeo
                     + "\t\tTest Time (ms): " + ((double)this.testTime / MILLION)
+                    + "\t\tGames: " + this.gamesPlayed
                     + "\n\t\t\t\tComposite: " + this.composite
                     + "\t\tTime Per Move: " + this.timePerMove
                     + "\t\tWeighted Score: " + this.weightedScore;
@@ -134,10 +134,17 @@ public class BoardNet extends NeuralNet<BoardInterface, BoardNet, BoardInterface
 
         @Override
         public short sense() {
-            short val = NEURAL_OUTPUTS[this.getSensedObject().getTile(this.row, this.col)];
+            short val = this.sense(this.getSensedObject());
             this.setCache(val);
             return val;
         }
+
+        /**
+         * Senses an arbitrary board without touching this sensor's cache, e.g. for filling a lane of a BatchEvaluator
+         */
+        public short sense(Board board) {
+            return NEURAL_OUTPUTS[board.getTile(this.row, this.col)];
+        }
     }
 
     public class Up extends Decision {
@@ -313,7 +313,21 @@ public class AddNeurons<N extends NeuralNet<?, N, ?>> implements Mutator<N> {
     }
 
     public List<SignalConsumer> findCandidateConsumers(SignalProvider neuron, List<SignalConsumer> allConsumers) {
-        if (neuron instanceof Neuron n) {
+        if (neuron instanceof CachingNeuron n) {
+            // consumers ranked above the neuron can't be upstream of it, so only the rest need to be checked
+            List<SignalConsumer> candidates = new ArrayList<>(allConsumers.size());
+            Set<SignalProvider> exclude = null;
+            for (SignalConsumer consumer : allConsumers) {
+                if (!(consumer instanceof Neuron) || consumer instanceof CachingNeuron c && NeuralOrder.precedes(n, c)) {
+                    candidates.add(consumer);
+                    continue;
+                }
+                if (exclude == null) exclude = n.traceProviders();
+                if (exclude == null || !exclude.contains(consumer)) candidates.add(consumer);
+            }
+            return candidates;
+
+        } else if (neuron instanceof Neuron n) {
             Set<SignalProvider> exclude = n.traceProviders();
             if (exclude != null && exclude.size() > 0) {
                 List<SignalConsumer> candidates = new ArrayList<>(allConsumers);
@@ -325,7 +339,21 @@ public class AddNeurons<N extends NeuralNet<?, N, ?>> implements Mutator<N> {
     }
     
     public List<SignalProvider> findCandidateInputs(SignalConsumer neuron, List<SignalProvider> allProviders) {
-        if (neuron instanceof Neuron n) {
+        if (neuron instanceof CachingNeuron n) {
+            // providers ranked below the neuron can't be downstream of it, so only the rest need to be checked
+            List<SignalProvider> candidates = new ArrayList<>(allProviders.size());
+            Set<SignalConsumer> exclude = null;
+            for (SignalProvider provider : allProviders) {
+                if (NeuralOrder.precedes(provider, n)) {
+                    candidates.add(provider);
+                    continue;
+                }
+                if (exclude == null) exclude = n.traceConsumers();
+                if (exclude == null || !exclude.contains(provider)) candidates.add(provider);
+            }
+            return candidates;
+
+        } else if (neuron instanceof Neuron n) {
             Set<SignalConsumer> exclude = n.traceConsumers();
             if (exclude != null && exclude.size() > 0) {
                 List<SignalProvider> candidates = new ArrayList<>(allProviders);
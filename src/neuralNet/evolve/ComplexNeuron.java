@@ -7,7 +7,7 @@ import neuralNet.util.*;
 import java.io.*;
 import java.util.*;
 
-public class ComplexNeuron extends CachingNeuron implements ComplexNeuronMember {
+public class ComplexNeuron extends CachingNeuron implements ComplexNeuronMember, PassThrough {
 
     private final int numInputs;
     private final int numOutputs;
@@ -101,6 +101,34 @@ public class ComplexNeuron extends CachingNeuron implements ComplexNeuronMember
         return this.decisionNode0.getWeight();
     }
 
+    /**
+     * Lets ExecutionPlan flatten the internal net into the outer net (see PassThrough)
+     */
+    @Override
+    public SignalProvider getPassThroughSource() {
+        return passThroughSource(this.decisionNode0);
+    }
+
+    private static SignalProvider passThroughSource(InternalNet.Output decisionNode) {
+        List<SignalProvider> inputs = decisionNode.getInputs();
+        return inputs.size() != 0 ? inputs.get(0) : null;
+    }
+
+    /**
+     * The internal net's neurons aren't providers of the outer net, so they are reset along with the complex
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        this.net.reset();
+    }
+
+    @Override
+    public void clearRuntimeState() {
+        super.reset();
+        this.net.clearRuntimeState();
+    }
+
     @Override
     public ComplexNeuron clone() {
         return new ComplexNeuron(this);
@@ -156,7 +184,7 @@ public class ComplexNeuron extends CachingNeuron implements ComplexNeuronMember
         return this.net;
     }
 
-    public class SecondaryMember extends CachingNeuron implements ComplexNeuronMember {
+    public class SecondaryMember extends CachingNeuron implements ComplexNeuronMember, PassThrough {
         private final InternalNet.Output decisionNode;
 
         private SecondaryMember(InternalNet.Output decisionNode) {
@@ -184,6 +212,11 @@ public class ComplexNeuron extends CachingNeuron implements ComplexNeuronMember
             return this.decisionNode.getWeight();
         }
 
+        @Override
+        public SignalProvider getPassThroughSource() {
+            return passThroughSource(this.decisionNode);
+        }
+
         @Override
         public CachingNeuron clone() {
             throw new UnsupportedOperationException();
@@ -235,8 +268,9 @@ public class ComplexNeuron extends CachingNeuron implements ComplexNeuronMember
         }
 
         @Override
-        public long calcNeuralHashFor(LoopingNeuron looper) {
-            return this.decisionNode.getInputs().get(0).getNeuralHashFor(looper);
+        public long calcNeuralHash() {
+            ComplexNeuron.this.clearInternalHashes();
+            return this.decisionNode.getInputs().get(0).getNeuralHash();
         }
 
         @Override
@@ -308,6 +342,11 @@ public class ComplexNeuron extends CachingNeuron implements ComplexNeuronMember
             ComplexNeuron.this.traceConsumers(addToExistingSet);
         }
 
+        @Override
+        protected boolean ranksByOwnEdges() {
+            return false;
+        }
+
         @Override
         public void traceProviders(Set<SignalProvider> addToExistingSet) {
             ComplexNeuron.this.traceProviders(addToExistingSet);
@@ -389,7 +428,8 @@ public class ComplexNeuron extends CachingNeuron implements ComplexNeuronMember
             throw new UnsupportedOperationException();
         }
 
-        private class Input extends NeuralNet<ComplexNeuronMember, InternalNet, ComplexNeuronMember>.Sensor {
+        private class Input extends NeuralNet<ComplexNeuronMember, InternalNet, ComplexNeuronMember>.Sensor
+                implements PassThrough {
             private final int index;
             private SignalProvider input;
 
@@ -407,6 +447,11 @@ public class ComplexNeuron extends CachingNeuron implements ComplexNeuronMember
                 return this.input.getOutput();
             }
 
+            @Override
+            public SignalProvider getPassThroughSource() {
+                return this.input;
+            }
+
             /**
              * For the Internal Sensors and Decision nodes of complex neurons, we do not bitmask their neuralHashes
              * with the normal headers/masks for Sensors/DecisionNodes.  Instead, the neural hash from the input/
@@ -421,13 +466,6 @@ public class ComplexNeuron extends CachingNeuron implements ComplexNeuronMember
             public long calcNeuralHash() {
                 return this.input.getNeuralHash();
             }
-
-            @Override
-            public long getNeuralHashFor(LoopingNeuron looper) {
-                // no 'calcNeuralHashFor(looper)' method for a CachingSignalProvider (Sensors are not a CachingNeuron)
-                // ... overriding getNeuralHashFor instead
-                return this.input.getNeuralHashFor(looper);
-            }
         }
 
         private class Output extends NeuralNet<ComplexNeuronMember, InternalNet, ComplexNeuronMember>.Decision {
@@ -639,7 +677,7 @@ public class ComplexNeuron extends CachingNeuron implements ComplexNeuronMember
     public void traceConsumers(Set<SignalConsumer> addToExistingSet) {
         if (addToExistingSet.contains(this)) return;
         addToExistingSet.addAll(this.members);
-        Set<SignalConsumer> consumers = this.getConsumers();
+        Set<SignalConsumer> consumers = new HashSet<>(this.getConsumers());
         for (Neuron output : this.members) {
             if (output != this) consumers.addAll(output.getConsumers());
         }
@@ -652,7 +690,27 @@ public class ComplexNeuron extends CachingNeuron implements ComplexNeuronMember
     }
 
     @Override
-    public long calcNeuralHashFor(LoopingNeuron looper) {
-        return this.decisionNode0.getInputs().get(0).getNeuralHashFor(looper);
+    protected boolean ranksByOwnEdges() {
+        return false; // all the members are traced together
+    }
+
+    @Override
+    public long calcNeuralHash() {
+        // when this is part of a feedback loop, its inputs' hashes change between the rounds of NeuralLoop
+        this.clearInternalHashes();
+        return this.decisionNode0.getInputs().get(0).getNeuralHash();
+    }
+
+    @Override
+    public void clearHashCache() {
+        super.clearHashCache();
+        this.clearInternalHashes();
+    }
+
+    // the internal neurons' hashes are derived from the hashes of this neuron's inputs
+    private void clearInternalHashes() {
+        for (SignalProvider provider : this.net.getProviders()) {
+            provider.clearHashCache();
+        }
     }
 }
@@ -11,6 +11,7 @@ import java.nio.file.*;
 import java.time.*;
 import java.time.format.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.*;
 import java.util.stream.*;
 
@@ -29,6 +30,16 @@ public class EvolutionaryEngine {
     private int minRandLineageRetained = 4;
     private int retestFrequency = 16; //max generations before a new fitness test is conducted on a retained/legacy net
     private long slowHashCalculationNs = BILLION_LONG / 4;
+    private boolean compileEvaluators = false; //generate bytecode evaluators for nets made of stateless neurons only
+    private boolean verifyCompiledEvaluators = false; //also run the interpreted net each round, and compare decisions
+    private int batchLanes = 0; //games played in lockstep by a BatchEvaluator, for nets made of stateless neurons only
+    private boolean incrementalEvaluation = false; //only recalculate what changed sensors / stateful neurons affect
+    private boolean lazyEvaluation = false; //only calculate the inputs which switches / selections actually use
+    private boolean commonRandomNumbers = false; //every net in a generation plays the same set of seeded games
+    private int gamesPerTest = BoardInterface.GAMES_PER_TEST;
+    private RacingRule racingRule = RacingRule.NONE; //drops nets out of contention between rounds of games, see RacingRule
+    private int racingGamesPerRound = 32;
+    private double racingConfidence = 0.95;
     
 
     private final BoardNet  edgeNet = TestBoardNet.makeEdgeNet(),
@@ -52,6 +63,8 @@ public class EvolutionaryEngine {
     private final Var<Iterator<Task>> currentIterator = new Var<>(Collections.emptyIterator());
     private final Set<Thread> threadsIdle = new HashSet<>();
     private TreeSet<BoardInterface.BoardNetFitness> fitnesses;
+    private long gameSetSeed; //the current generation's games, when using commonRandomNumbers
+    private final List<BoardInterface.FitnessTest> races = new ArrayList<>(); //fitness tests still in the race
     private final NetTracker<BoardNet, BoardInterface.BoardNetFitness> netTracker = new NetTracker<>(keepEdgeAndRand);
 
     public final GenerationHeaderPrintStream System_out, errGen;
@@ -195,11 +208,17 @@ public class EvolutionaryEngine {
         // so the error message from AffinityLock library is not under the genHeader
 
         this.fitnesses = new TreeSet<>();
+        this.races.clear();
+        this.gameSetSeed = ThreadLocalRandom.current().nextLong();
         makeMutations(notFirstIteration);
 
         if (notFirstIteration) processLegacies(gen);
         while (runRound()) { }
         waitForWorkerThreads();
+        while (!this.exit && nextRacingRound()) {
+            while (runRound()) { }
+            waitForWorkerThreads();
+        }
         if (this.exit) return;
 
         fittest = netTracker.addFittest(fitnesses, this.reproduceBest);
@@ -349,6 +368,108 @@ public class EvolutionaryEngine {
         }
     }
 
+    /**
+     * Called between the rounds of a race, once every net still racing has played its racingGamesPerRound.  Finishes
+     * the fitness tests of the nets which are out of contention, and queues another round for the rest.  Tests which
+     * have played all their games (or run out of time) stay in the race until the end, since the nets still racing
+     * are judged against them
+     *
+     * @return whether another round was queued, or false once the race is over
+     */
+    private boolean nextRacingRound() {
+        if (this.races.isEmpty()) return false;
+
+        Set<BoardInterface.FitnessTest> dropped = this.outOfContention();
+        List<Task> tasks = new ArrayList<>(this.races.size());
+
+        for (Iterator<BoardInterface.FitnessTest> iterator = this.races.iterator(); iterator.hasNext();) {
+            BoardInterface.FitnessTest test = iterator.next();
+            if (dropped.contains(test)) {
+                iterator.remove();
+                this.finishRace(test);
+
+            } else if (!test.isFinished()) {
+                double expectedTime = (double)test.getTestTime() / test.getGamesRun() * this.racingGamesPerRound;
+                tasks.add(new Task(expectedTime, worker -> worker.runRacingRound(test)));
+            }
+        }
+
+        if (tasks.size() > 0) {
+            this.addTasks(tasks);
+            return true;
+        }
+
+        for (BoardInterface.FitnessTest test : this.races) {
+            this.finishRace(test);
+        }
+        this.races.clear();
+        return false;
+    }
+
+    /**
+     * @return the unfinished fitness tests in the race whose nets can no longer expect one of the reproduceBest slots,
+     * according to the racingRule
+     */
+    private Set<BoardInterface.FitnessTest> outOfContention() {
+        Set<BoardInterface.FitnessTest> dropped = new HashSet<>();
+        Map<BoardInterface.FitnessTest, Double> scores = new HashMap<>();
+        for (BoardInterface.FitnessTest test : this.races) {
+            scores.put(test, test.getFitness().weightedScore);
+        }
+
+        switch (this.racingRule) {
+            case CONFIDENCE: {
+                // The weighted score is treated as scaling with the geometric mean of the scores, so its interval is
+                // the interval of the mean log score, exponentiated.  Tracked nets which aren't being retested this
+                // generation keep their recorded fitness, as if it were exact
+                double z = normalQuantile(this.racingConfidence);
+                Set<BoardNet> racing = new HashSet<>();
+                List<Double> lowerBounds = new ArrayList<>();
+
+                for (BoardInterface.FitnessTest test : this.races) {
+                    racing.add(test.net);
+                    lowerBounds.add(scores.get(test) * Math.exp(-z * test.getStandardErrorLog()));
+                }
+                for (BoardInterface.BoardNetFitness fitness : this.netTracker.getFitnesses()) {
+                    if (!racing.contains(fitness.net)) lowerBounds.add(fitness.weightedScore);
+                }
+
+                if (lowerBounds.size() <= this.reproduceBest) break;
+                lowerBounds.sort(Comparator.reverseOrder());
+                double threshold = lowerBounds.get(this.reproduceBest - 1);
+
+                for (BoardInterface.FitnessTest test : this.races) {
+                    if (test.isFinished()) continue;
+                    double upperBound = scores.get(test) * Math.exp(z * test.getStandardErrorLog());
+                    if (upperBound < threshold) dropped.add(test);
+                }
+                break;
+            }
+
+            case SUCCESSIVE_HALVING: {
+                List<BoardInterface.FitnessTest> racing = new ArrayList<>(this.races.size());
+                for (BoardInterface.FitnessTest test : this.races) {
+                    if (!test.isFinished()) racing.add(test);
+                }
+
+                int keep = Math.max(this.reproduceBest, (racing.size() + 1) / 2);
+                if (racing.size() <= keep) break;
+                racing.sort(Comparator.comparing(scores::get, Comparator.reverseOrder()));
+                dropped.addAll(racing.subList(keep, racing.size()));
+                break;
+            }
+        }
+
+        return dropped;
+    }
+
+    private void finishRace(BoardInterface.FitnessTest test) {
+        BoardInterface.BoardNetFitness fitness = test.getFitness();
+        System_out.println(fitness + "\n");
+        this.fitnesses.add(fitness);
+        test.net.clearRuntimeState(); // until the net is retested, it is only kept in the netTracker
+    }
+
     private boolean isRandLineage(BoardNet net) {
         return net.getLineage().lineageContains(RAND_HASH) > 0.5;
     }
@@ -563,14 +684,45 @@ public class EvolutionaryEngine {
         }
 
         private void runFitnessTest(BoardNet net) {
+            net.getExecutionPlan().setIncremental(EvolutionaryEngine.this.incrementalEvaluation);
+            net.getExecutionPlan().setLazy(EvolutionaryEngine.this.lazyEvaluation);
+            if (EvolutionaryEngine.this.compileEvaluators) {
+                // falls back to the interpreted ExecutionPlan if the net has any unsupported neurons
+                net.getExecutionPlan().compile(EvolutionaryEngine.this.verifyCompiledEvaluators);
+            }
+
+            this.configureBoard();
+            if (EvolutionaryEngine.this.racingRule != RacingRule.NONE) {
+                BoardInterface.FitnessTest test = new BoardInterface.FitnessTest(net, EvolutionaryEngine.this.gamesPerTest);
+                this.board.playGames(test, EvolutionaryEngine.this.racingGamesPerRound);
+
+                synchronized (threadsIdle) {
+                    races.add(test);
+                }
+                return;
+            }
+
             BoardInterface.BoardNetFitness fitness = this.board.testFitness(net, null);
             System_out.println(fitness + "\n");
+            net.clearRuntimeState(); // until the net is retested, it is only kept in the netTracker
 
             synchronized (threadsIdle) {
                 fitnesses.add(fitness);
             }
         }
 
+        private void runRacingRound(BoardInterface.FitnessTest test) {
+            this.configureBoard();
+            this.board.playGames(test, EvolutionaryEngine.this.racingGamesPerRound);
+        }
+
+        private void configureBoard() {
+            this.board.setBatchLanes(EvolutionaryEngine.this.batchLanes);
+            this.board.setGamesPerTest(EvolutionaryEngine.this.gamesPerTest);
+            this.board.setGameSetSeed(EvolutionaryEngine.this.commonRandomNumbers
+                                        ? EvolutionaryEngine.this.gameSetSeed : null);
+        }
+
         private void makeMutations(Mutator<? extends BoardNet> mutator,
                                    Var<Map<BoardNet, Double>> newGen) {
 
@@ -858,4 +1010,128 @@ public class EvolutionaryEngine {
     public void setSlowHashCalculationNs(long slowHashCalculationNs) {
         this.slowHashCalculationNs = slowHashCalculationNs;
     }
+
+    public boolean getCompileEvaluators() {
+        return this.compileEvaluators;
+    }
+
+    public void setCompileEvaluators(boolean compileEvaluators) {
+        this.compileEvaluators = compileEvaluators;
+    }
+
+    public boolean getVerifyCompiledEvaluators() {
+        return this.verifyCompiledEvaluators;
+    }
+
+    public void setVerifyCompiledEvaluators(boolean verifyCompiledEvaluators) {
+        this.verifyCompiledEvaluators = verifyCompiledEvaluators;
+    }
+
+    public int getBatchLanes() {
+        return this.batchLanes;
+    }
+
+    public void setBatchLanes(int batchLanes) {
+        if (batchLanes < 0) throw new IllegalArgumentException();
+        this.batchLanes = batchLanes;
+    }
+
+    public boolean getIncrementalEvaluation() {
+        return this.incrementalEvaluation;
+    }
+
+    public void setIncrementalEvaluation(boolean incrementalEvaluation) {
+        this.incrementalEvaluation = incrementalEvaluation;
+    }
+
+    public boolean getLazyEvaluation() {
+        return this.lazyEvaluation;
+    }
+
+    public void setLazyEvaluation(boolean lazyEvaluation) {
+        this.lazyEvaluation = lazyEvaluation;
+    }
+
+    public boolean getCommonRandomNumbers() {
+        return this.commonRandomNumbers;
+    }
+
+    /**
+     * @param commonRandomNumbers whether every net tested in a generation plays the same set of games (a new set each
+     *                            generation), so that their scores differ by less luck and fewer games can rank them.
+     *                            See BoardInterface.setGameSetSeed() and setGamesPerTest()
+     */
+    public void setCommonRandomNumbers(boolean commonRandomNumbers) {
+        this.commonRandomNumbers = commonRandomNumbers;
+    }
+
+    public int getGamesPerTest() {
+        return this.gamesPerTest;
+    }
+
+    public void setGamesPerTest(int gamesPerTest) {
+        if (gamesPerTest < 1) throw new IllegalArgumentException();
+        this.gamesPerTest = gamesPerTest;
+    }
+
+    public RacingRule getRacingRule() {
+        return this.racingRule;
+    }
+
+    public void setRacingRule(RacingRule racingRule) {
+        if (racingRule == null) throw new NullPointerException();
+        this.racingRule = racingRule;
+    }
+
+    public int getRacingGamesPerRound() {
+        return this.racingGamesPerRound;
+    }
+
+    /**
+     * @param racingGamesPerRound how many more games each net still in the race plays between checks for nets out of
+     *                            contention.  At least 2, so that the first check has a standard error to go on
+     */
+    public void setRacingGamesPerRound(int racingGamesPerRound) {
+        if (racingGamesPerRound < 2) throw new IllegalArgumentException();
+        this.racingGamesPerRound = racingGamesPerRound;
+    }
+
+    public double getRacingConfidence() {
+        return this.racingConfidence;
+    }
+
+    /**
+     * @param racingConfidence the (one-sided) confidence of the intervals compared by RacingRule.CONFIDENCE.  Higher
+     *                         drops fewer nets, and later
+     */
+    public void setRacingConfidence(double racingConfidence) {
+        if (!(racingConfidence > 0 && racingConfidence < 1)) throw new IllegalArgumentException();
+        this.racingConfidence = racingConfidence;
+    }
+
+    /**
+     * How fitness tests are raced: every net in a generation plays a round of racingGamesPerRound games, after which
+     * the nets which are out of contention for the reproduceBest slots are dropped (keeping the fitness from the games
+     * they did play, see BoardNetFitness.gamesPlayed), and the rest play another round, until they reach gamesPerTest.
+     * Best combined with commonRandomNumbers, so that every net plays the same games in each round
+     */
+    public enum RacingRule {
+        /**
+         * Every net plays all of its games, as without racing
+         */
+        NONE,
+
+        /**
+         * Drops a net once the top of its confidence interval (see racingConfidence) is below the bottom of the
+         * intervals of reproduceBest other nets, counting the recorded fitnesses of tracked nets which aren't being
+         * retested
+         */
+        CONFIDENCE,
+
+        /**
+         * Drops the worse half of the nets still racing after each round, by their fitness so far, but never leaves
+         * fewer than reproduceBest.  Ignores racingConfidence
+         */
+        SUCCESSIVE_HALVING
+    }
 }
@@ -45,4 +45,15 @@ public enum AdditionCircular implements NeuralFunction {
 
         return (short)sum;
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        int sum = 0;
+
+        for (int i = offset, end = offset + length; i < end; i++) {
+            sum += inputs[i];
+        }
+
+        return (short)sum;
+    }
 }
@@ -47,4 +47,15 @@ public enum AdditionClipped implements NeuralFunction {
 
         return clip(sum);
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        int sum = 0;
+
+        for (int i = offset, end = offset + length; i < end; i++) {
+            sum += inputs[i];
+        }
+
+        return clip(sum);
+    }
 }
@@ -52,4 +52,15 @@ public enum Average implements NeuralFunction {
 
         return roundClip((double)sum / count);
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        int sum = 0;
+
+        for (int i = offset, end = offset + length; i < end; i++) {
+            sum += inputs[i];
+        }
+
+        return roundClip((double)sum / length);
+    }
 }
@@ -31,10 +31,31 @@ public class Ceiling implements NeuralFunction.Tweakable<Ceiling> {
 
     @Override
     public short calcOutput(List<SignalProvider> inputs) {
+        if (this.isLazy()) return this.ceiling;
         short input = inputs.get(0).getOutput();
         return input < this.ceiling ? input : this.ceiling;
     }
 
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        if (this.isLazy()) return this.ceiling;
+        short input = inputs[offset];
+        return input < this.ceiling ? input : this.ceiling;
+    }
+
+    /**
+     * A ceiling of Short.MIN_VALUE always outputs Short.MIN_VALUE, so its input is never needed
+     */
+    @Override
+    public boolean isLazy() {
+        return this.ceiling == Short.MIN_VALUE;
+    }
+
+    @Override
+    public int nextDemand(short[] inputs, int offset, int length, int step) {
+        return step == 0 && !this.isLazy() ? 0 : NO_DEMAND;
+    }
+
     @Override
     public List<Param> getTweakingParams() {
         if (this.tweakingParams == null) {
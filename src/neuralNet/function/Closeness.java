@@ -53,4 +53,23 @@ public enum Closeness implements NeuralFunction {
 
         return (short)(Short.MAX_VALUE - max + min);
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        int max = inputs[offset];
+        int min = max;
+
+        for (int i = offset + 1, end = offset + length; i < end; i++) {
+            short output = inputs[i];
+
+            if (output > max) {
+                max = output;
+
+            } else if (output < min) {
+                min = output;
+            }
+        }
+
+        return (short)(Short.MAX_VALUE - max + min);
+    }
 }
@@ -44,4 +44,9 @@ public enum DifferenceCircular implements NeuralFunction {
     public short calcOutput(List<SignalProvider> inputs) {
         return (short)((int)inputs.get(0).getOutput() - (int)inputs.get(1).getOutput());
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        return (short)((int)inputs[offset] - (int)inputs[offset + 1]);
+    }
 }
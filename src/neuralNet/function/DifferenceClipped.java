@@ -46,4 +46,9 @@ public enum DifferenceClipped implements NeuralFunction {
     public short calcOutput(List<SignalProvider> inputs) {
         return clip((int)inputs.get(0).getOutput() - (int)inputs.get(1).getOutput());
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        return clip((int)inputs[offset] - (int)inputs[offset + 1]);
+    }
 }
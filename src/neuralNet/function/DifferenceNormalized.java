@@ -46,4 +46,9 @@ public enum DifferenceNormalized implements NeuralFunction {
     public short calcOutput(List<SignalProvider> inputs) {
         return clip(Math.floor(((double)((int)inputs.get(0).getOutput() - (int)inputs.get(1).getOutput()) / 2.0)));
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        return clip(Math.floor(((double)((int)inputs[offset] - (int)inputs[offset + 1]) / 2.0)));
+    }
 }
@@ -60,4 +60,29 @@ public enum Equals implements NeuralFunction {
 
         return (short)(((double)(maxCount - 1) / (double)(size - 1)) * RANGE_INT + Short.MIN_VALUE);
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        if (length == 2) {
+            return inputs[offset] == inputs[offset + 1] ? Short.MAX_VALUE : Short.MIN_VALUE;
+        }
+
+        // counts the occurrences of each value in place, rather than with a HashMap, to avoid allocating
+        int maxCount = 1;
+        int end = offset + length;
+
+        for (int i = offset; i < end; i++) {
+            short val = inputs[i];
+            int count = 1;
+            for (int j = i + 1; j < end; j++) {
+                if (inputs[j] == val) count++;
+            }
+
+            if (count > maxCount) {
+                maxCount = count;
+            }
+        }
+
+        return (short)(((double)(maxCount - 1) / (double)(length - 1)) * RANGE_INT + Short.MIN_VALUE);
+    }
 }
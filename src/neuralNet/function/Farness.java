@@ -53,5 +53,24 @@ public enum Farness implements NeuralFunction {
 
         return (short)(max - min + Short.MIN_VALUE);
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        int max = inputs[offset];
+        int min = max;
+
+        for (int i = offset + 1, end = offset + length; i < end; i++) {
+            short output = inputs[i];
+
+            if (output > max) {
+                max = output;
+
+            } else if (output < min) {
+                min = output;
+            }
+        }
+
+        return (short)(max - min + Short.MIN_VALUE);
+    }
 }
 
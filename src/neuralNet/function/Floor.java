@@ -31,10 +31,31 @@ public class Floor implements NeuralFunction.Tweakable<Floor> {
 
     @Override
     public short calcOutput(List<SignalProvider> inputs) {
+        if (this.isLazy()) return this.floor;
         short input = inputs.get(0).getOutput();
         return input > this.floor ? input : this.floor;
     }
 
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        if (this.isLazy()) return this.floor;
+        short input = inputs[offset];
+        return input > this.floor ? input : this.floor;
+    }
+
+    /**
+     * A floor of Short.MAX_VALUE always outputs Short.MAX_VALUE, so its input is never needed
+     */
+    @Override
+    public boolean isLazy() {
+        return this.floor == Short.MAX_VALUE;
+    }
+
+    @Override
+    public int nextDemand(short[] inputs, int offset, int length, int step) {
+        return step == 0 && !this.isLazy() ? 0 : NO_DEMAND;
+    }
+
     @Override
     public List<Param> getTweakingParams() {
         if (this.tweakingParams == null) {
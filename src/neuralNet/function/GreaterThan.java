@@ -47,4 +47,9 @@ public enum GreaterThan implements NeuralFunction {
     public short calcOutput(List<SignalProvider> inputs) {
         return inputs.get(0).getOutput() > inputs.get(1).getOutput() ? Short.MAX_VALUE : Short.MIN_VALUE;
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        return inputs[offset] > inputs[offset + 1] ? Short.MAX_VALUE : Short.MIN_VALUE;
+    }
 }
@@ -44,15 +44,43 @@ public enum HardSwitch implements NeuralFunction {
 
     @Override
     public short calcOutput(List<SignalProvider> inputs) {
-        int controlInput = inputs.get(0).getOutput();
-        int len = inputs.size() - 1; //length minus the control input
-        
+        return inputs.get(selected(inputs.get(0).getOutput(), inputs.size())).getOutput();
+    }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        return inputs[offset + selected(inputs[offset], length)];
+    }
+
+    /**
+     * Only the control input and the input it selects are needed
+     */
+    @Override
+    public boolean isLazy() {
+        return true;
+    }
+
+    @Override
+    public int nextDemand(short[] inputs, int offset, int length, int step) {
+        switch (step) {
+            case 0: return 0;
+            case 1: return selected(inputs[offset], length);
+            default: return NO_DEMAND;
+        }
+    }
+
+    /**
+     * @return the index of the input selected by the control input
+     */
+    private static int selected(int controlInput, int length) {
+        int len = length - 1; //length minus the control input
+
         int index = (int)((controlInput + ZEROIZE_INT) * len
                 * RANGE_INV) + 1;
 
         if (index >= len) index = len;
         else if (index < 1) index = 1;
 
-        return inputs.get(index).getOutput();
+        return index;
     }
 }
@@ -60,4 +60,9 @@ public enum Increase implements NeuralFunction {
 
         return roundClip(ADDEND - NUMERATOR / ((double)inputs.get(0).getOutput() + ADDEND));
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        return roundClip(ADDEND - NUMERATOR / ((double)inputs[offset] + ADDEND));
+    }
 }
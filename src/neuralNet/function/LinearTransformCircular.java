@@ -21,6 +21,12 @@ public class LinearTransformCircular extends LinearTransformClipped {
         return (short) result;
     }
 
+    @Override
+    public short calcOutput(short[] inputs, int start, int length) {
+        double result = Math.round(this.coefficient * inputs[start] + this.offset);
+        return (short) result;
+    }
+
     @Override
     public LinearTransformCircular tweak(short[] params) {
         return new LinearTransformCircular(
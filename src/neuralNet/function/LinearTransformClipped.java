@@ -50,6 +50,11 @@ public class LinearTransformClipped implements NeuralFunction.Tweakable<LinearTr
         return roundClip(this.coefficient * inputs.get(0).getOutput() + this.offset);
     }
 
+    @Override
+    public short calcOutput(short[] inputs, int start, int length) {
+        return roundClip(this.coefficient * inputs[start] + this.offset);
+    }
+
     @Override
     public List<Param> getTweakingParams() {
         return coefficient > 0 ? POS_PARAMS : NEG_PARAMS;
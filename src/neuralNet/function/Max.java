@@ -38,14 +38,46 @@ public enum Max implements NeuralFunction {
     @Override
     public short calcOutput(List<SignalProvider> inputs) {
         short max = inputs.get(0).getOutput();
+        if (max == Short.MAX_VALUE) return max;
 
-        for (SignalProvider neuron : inputs) {
-            short output = neuron.getOutput();
+        for (int i = 1, size = inputs.size(); i < size; i++) {
+            short output = inputs.get(i).getOutput();
             if (output > max) {
+                if (output == Short.MAX_VALUE) return output;
                 max = output;
             }
         }
 
         return max;
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        short max = inputs[offset];
+        if (max == Short.MAX_VALUE) return max;
+
+        for (int i = offset + 1, end = offset + length; i < end; i++) {
+            short output = inputs[i];
+            if (output > max) {
+                if (output == Short.MAX_VALUE) return output;
+                max = output;
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Stops at the first input which is already the highest possible signal
+     */
+    @Override
+    public boolean isLazy() {
+        return true;
+    }
+
+    @Override
+    public int nextDemand(short[] inputs, int offset, int length, int step) {
+        if (step >= length || (step > 0 && inputs[offset + step - 1] == Short.MAX_VALUE)) return NO_DEMAND;
+        return step;
+    }
 }
@@ -38,14 +38,46 @@ public enum Min implements NeuralFunction {
     @Override
     public short calcOutput(List<SignalProvider> inputs) {
         short min = inputs.get(0).getOutput();
+        if (min == Short.MIN_VALUE) return min;
 
-        for (SignalProvider neuron : inputs) {
-            short output = neuron.getOutput();
+        for (int i = 1, size = inputs.size(); i < size; i++) {
+            short output = inputs.get(i).getOutput();
             if (output < min) {
+                if (output == Short.MIN_VALUE) return output;
                 min = output;
             }
         }
 
         return min;
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        short min = inputs[offset];
+        if (min == Short.MIN_VALUE) return min;
+
+        for (int i = offset + 1, end = offset + length; i < end; i++) {
+            short output = inputs[i];
+            if (output < min) {
+                if (output == Short.MIN_VALUE) return output;
+                min = output;
+            }
+        }
+
+        return min;
+    }
+
+    /**
+     * Stops at the first input which is already the lowest possible signal
+     */
+    @Override
+    public boolean isLazy() {
+        return true;
+    }
+
+    @Override
+    public int nextDemand(short[] inputs, int offset, int length, int step) {
+        if (step >= length || (step > 0 && inputs[offset + step - 1] == Short.MIN_VALUE)) return NO_DEMAND;
+        return step;
+    }
 }
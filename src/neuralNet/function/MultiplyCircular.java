@@ -49,4 +49,17 @@ public enum MultiplyCircular implements NeuralFunction {
 
         return (short)Math.round(product * MAX_PLUS_ONE - ZEROIZE);
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        double product = 1;
+
+        for (int i = offset, end = offset + length; i < end; i++) {
+            double val = (inputs[i] + ZEROIZE) / MAX_PLUS_ONE; //normalizes to 0.0 - 2.0 (inclusive-exclusive)
+            if (val == 0) return Short.MIN_VALUE; //no point in calculating when the product will remain zero
+            product *= val;
+        }
+
+        return (short)Math.round(product * MAX_PLUS_ONE - ZEROIZE);
+    }
 }
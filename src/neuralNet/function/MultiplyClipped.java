@@ -37,16 +37,68 @@ public enum MultiplyClipped implements NeuralFunction {
         return 256;
     }
 
+    /**
+     * The product of this many (zeroized) inputs always fits within 48 bits, so it is exact as a long, and would be
+     * exact as a double too
+     */
+    public static final int EXACT_INPUTS = 3;
+
     @Override
     public short calcOutput(List<SignalProvider> inputs) {
-        double product = 1;
+        int size = inputs.size();
+        int exact = Math.min(size, EXACT_INPUTS);
+        long exactProduct = 1;
+
+        for (int i = 0; i < exact; i++) {
+            int val = inputs.get(i).getOutput() + ZEROIZE_INT; // MAX_PLUS_ONE times the normalized 0.0 - 2.0 value
+            if (val == 0) return Short.MIN_VALUE; //no point in calculating when the product will remain zero
+            exactProduct *= val;
+        }
+
+        if (size == exact) return clipExact(exactProduct, exact);
+
+        double product = Math.scalb((double)exactProduct, -15 * exact); // exactly the same as the double product so far
+
+        for (int i = exact; i < size; i++) {
+            double val = (inputs.get(i).getOutput() + ZEROIZE) / MAX_PLUS_ONE; //normalizes to 0.0 - 2.0 (inclusive-exclusive)
+            if (val == 0) return Short.MIN_VALUE; //no point in calculating when the product will remain zero
+            product *= val;
+        }
+
+        return clip(product * MAX_PLUS_ONE - ZEROIZE);
+    }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        int exact = Math.min(length, EXACT_INPUTS);
+        long exactProduct = 1;
 
-        for (SignalProvider neuron : inputs) {
-            double val = (neuron.getOutput() + ZEROIZE) / MAX_PLUS_ONE; //normalizes to 0.0 - 2.0 (inclusive-exclusive)
+        for (int i = offset, end = offset + exact; i < end; i++) {
+            int val = inputs[i] + ZEROIZE_INT; // MAX_PLUS_ONE times the normalized 0.0 - 2.0 value
+            if (val == 0) return Short.MIN_VALUE; //no point in calculating when the product will remain zero
+            exactProduct *= val;
+        }
+
+        if (length == exact) return clipExact(exactProduct, exact);
+
+        double product = Math.scalb((double)exactProduct, -15 * exact); // exactly the same as the double product so far
+
+        for (int i = offset + exact, end = offset + length; i < end; i++) {
+            double val = (inputs[i] + ZEROIZE) / MAX_PLUS_ONE; //normalizes to 0.0 - 2.0 (inclusive-exclusive)
             if (val == 0) return Short.MIN_VALUE; //no point in calculating when the product will remain zero
             product *= val;
         }
 
         return clip(product * MAX_PLUS_ONE - ZEROIZE);
     }
+
+    /**
+     * The same as clip(product * MAX_PLUS_ONE - ZEROIZE) with the normalized double product, i.e. truncated towards zero
+     *
+     * @param exactProduct product of the zeroized inputs, each of which is MAX_PLUS_ONE times its normalized value
+     */
+    private static short clipExact(long exactProduct, int count) {
+        int shift = 15 * (count - 1);
+        return clip((exactProduct - ((long)ZEROIZE_INT << shift)) / (1L << shift));
+    }
 }
@@ -42,16 +42,54 @@ public enum MultiplyNormalized implements NeuralFunction {
 
     @Override
     public short calcOutput(List<SignalProvider> inputs) {
+        if (inputs.size() == 2) {
+            short first = inputs.get(0).getOutput();
+            if (first == Short.MIN_VALUE) return Short.MIN_VALUE; // without evaluating the second, as below
+            return geometricMean(first, inputs.get(1).getOutput());
+        }
+
         double sumLog = 0;
         double count = 0;
 
         for (SignalProvider neuron : inputs) {
-            double val = (neuron.getOutput() + ZEROIZE) / MAX_PLUS_ONE; //normalizes to 0.0 - 2.0 (inclusive-exclusive)
-            if (val == 0) return Short.MIN_VALUE; //no point in calculating when the product will remain zero
-            sumLog += Math.log(val);
+            short val = neuron.getOutput();
+            if (val == Short.MIN_VALUE) return Short.MIN_VALUE; //no point in calculating when the product will remain zero
+            sumLog += normalizedLog(val); //log of the input normalized to 0.0 - 2.0 (inclusive-exclusive)
             count++;
         }
 
         return roundClip(Math.exp(sumLog / count) * MAX_PLUS_ONE - ZEROIZE);
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        if (length == 2) return geometricMean(inputs[offset], inputs[offset + 1]);
+
+        double sumLog = 0;
+
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (inputs[i] == Short.MIN_VALUE) return Short.MIN_VALUE; //no point in calculating when the product will remain zero
+            sumLog += normalizedLog(inputs[i]); //log of the input normalized to 0.0 - 2.0 (inclusive-exclusive)
+        }
+
+        return roundClip(Math.exp(sumLog / length) * MAX_PLUS_ONE - ZEROIZE);
+    }
+
+    /**
+     * The geometric mean of two inputs, with integers only.  The square root of the (zeroized) product is never closer
+     * than about 2e-6 to halfway between two integers, far more than the error of the log/exp calculation, so this
+     * always rounds the same way as it
+     */
+    private static short geometricMean(short a, short b) {
+        long product = (long)(a + ZEROIZE_INT) * (b + ZEROIZE_INT);
+        if (product == 0) return Short.MIN_VALUE;
+
+        long root = (long)Math.sqrt(product); // product is exact as a double, but make sure the root is its floor
+        while (root * root > product) root--;
+        while ((root + 1) * (root + 1) <= product) root++;
+
+        // rounds up when sqrt(product) >= root + 0.5, i.e. product >= root^2 + root + 0.25
+        if (product > root * root + root) root++;
+        return clip(root - ZEROIZE_INT);
+    }
 }
@@ -56,4 +56,22 @@ public enum Narrow implements NeuralFunction {
             else return (short)result;
         }
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        int output = inputs[offset];
+        double result;
+
+        if (output >= 0) {
+            result = Math.round(output * output * INV_MULTIPLIER);
+            if (result >= Short.MAX_VALUE) return Short.MAX_VALUE;
+            else return (short) result;
+
+        } else {
+            output += 1;
+            result = -Math.round(output * output * INV_MULTIPLIER);
+            if (result <= Short.MIN_VALUE) return Short.MIN_VALUE;
+            else return (short)result;
+        }
+    }
 }
@@ -50,4 +50,12 @@ public enum Negate implements NeuralFunction {
         if (input == Short.MIN_VALUE) return Short.MAX_VALUE;
         else return (short)-input;
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        short input = inputs[offset];
+        if (input == Short.MAX_VALUE) return Short.MIN_VALUE;
+        if (input == Short.MIN_VALUE) return Short.MAX_VALUE;
+        else return (short)-input;
+    }
 }
@@ -49,4 +49,9 @@ public enum NegateBalanced implements NeuralFunction {
     public short calcOutput(List<SignalProvider> inputs) {
         return (short) -(((int)inputs.get(0).getOutput()) + 1);
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        return (short) -(((int)inputs[offset]) + 1);
+    }
 }
@@ -19,6 +19,43 @@ public interface NeuralFunction extends Serializable {
 
     public short calcOutput(List<SignalProvider> inputs);
 
+    /**
+     * Primitive variant of calcOutput, for callers which have already gathered the input values (e.g. into a
+     * reusable scratch array).  Must return exactly the same output as calcOutput(List) would for providers
+     * whose outputs are inputs[offset] through inputs[offset + length - 1], in order.
+     */
+    public short calcOutput(short[] inputs, int offset, int length);
+
+    /**
+     * Returned by nextDemand() when no more inputs are needed
+     */
+    public static final int NO_DEMAND = -1;
+
+    /**
+     * Whether this function may not need all of its inputs every round (e.g. a switch only needs its control input
+     * and the branch it selects), in which case evaluators should use nextDemand() to gather only the inputs it
+     * actually needs.  Evaluators which gather every input anyway may ignore this
+     */
+    default public boolean isLazy() {
+        return false;
+    }
+
+    /**
+     * The lazy evaluation contract.  Evaluators call this repeatedly, starting with step 0 and adding one each time,
+     * to find out which input is needed next, and place that input's output at inputs[offset + index] before the
+     * next call.  Once it returns NO_DEMAND, calcOutput(inputs, offset, length) may be called, and must only read
+     * the positions which were demanded (the others may hold anything).  calcOutput(List) must likewise only invoke
+     * getOutput() on the inputs which would have been demanded, in the same order.
+     *
+     * The default demands every input, in order.
+     *
+     * @param step the number of inputs demanded so far
+     * @return the index (0 to length - 1) of the next input needed, or NO_DEMAND
+     */
+    default public int nextDemand(short[] inputs, int offset, int length, int step) {
+        return step < length ? step : NO_DEMAND;
+    }
+
     default public long getNeuralHash() {
         return this.hashHeader();
     }
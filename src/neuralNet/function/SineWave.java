@@ -24,9 +24,54 @@ public enum SineWave implements WaveFunction {
         return new VariableWaveNeuron(period, INSTANCE, minPeriod, maxPeriod);
     }
 
+    /**
+     * Values of the sine wave at STEPS points per unit of phase position, scaled to the short range and shifted up by
+     * MAX_PLUS_ONE (so that truncating them is the same as flooring), for output()
+     */
+    public static final int STEPS = 4096; // must be a power of two, so that the index calculation is exact
+    private static final double[] TABLE = new double[STEPS * 2 + 1];
+
+    /**
+     * Linear interpolation between the table's points is never off by more than (PI / STEPS)^2 / 8 * MAX_PLUS_ONE,
+     * about 0.0024.  Anything closer than this to a whole number is recalculated with Math.sin() instead, to be sure it
+     * rounds the same way
+     */
+    public static final double TOLERANCE = 1.0 / 256;
+
+    static {
+        for (int i = 0; i < TABLE.length; i++) {
+            TABLE[i] = Math.sin(i * (PI / STEPS)) * MAX_PLUS_ONE + MAX_PLUS_ONE;
+        }
+    }
+
     @Override
     public double calc(double phasePosition) {
         if (phasePosition == 1.0) return NEGATIVE_ONE;
         else return Math.sin(phasePosition * PI);
     }
+
+    /**
+     * Interpolates between the two nearest points of the table.  The result is exactly the same as calculating it with
+     * Math.sin(), which it falls back to for the (under 1%) cases where the interpolated value is within TOLERANCE of
+     * a whole number, and so might round either way
+     */
+    @Override
+    public short output(double phasePosition) {
+        if (!(phasePosition >= 0.0 && phasePosition < 2.0) || phasePosition == 1.0) {
+            return WaveFunction.super.output(phasePosition);
+        }
+
+        double steps = phasePosition * STEPS;
+        int i = (int)steps;
+        double lower = TABLE[i];
+        double shifted = lower + (TABLE[i + 1] - lower) * (steps - i);
+
+        int floor = (int)shifted;
+        double fraction = shifted - floor;
+        if (fraction < TOLERANCE || fraction > 1.0 - TOLERANCE) {
+            return WaveFunction.super.output(phasePosition);
+        }
+        // i.e. roundClip(value - 0.5) where value is the unshifted result
+        return floor > Short.MAX_VALUE * 2 ? Short.MAX_VALUE : (short)(floor - (int)MAX_PLUS_ONE);
+    }
 }
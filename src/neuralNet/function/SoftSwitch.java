@@ -42,41 +42,78 @@ public enum SoftSwitch implements NeuralFunction {
         return true;
     }
 
+    /**
+     * The denominator of RANGE_INV, i.e. 65535
+     */
+    private static final int SPAN = (int)RANGE;
+
+    /*
+     * Integer versions of the original double calculation, which was:
+     *
+     *     double index = (controlInput + ZEROIZE_INT) * (len - 2) * RANGE_INV + 1;
+     *     primary = Math.round(index), clamped to 1 - (len - 1)
+     *     secondaryWeight = |index - primary|, secondary = the next input in that direction (or just the primary input
+     *          at the end of the list)
+     *     Math.round((1 - secondaryWeight) * primaryInput + secondaryWeight * secondaryInput)
+     *
+     * With scaled = (controlInput + ZEROIZE_INT) * (len - 2), the exact index is scaled / SPAN + 1.  Since SPAN is odd,
+     * neither that nor the interpolated value can ever be exactly halfway between two integers, and they are always at
+     * least 1 / (2 * SPAN) away from it, so rounding them exactly gives the same results as the double calculation.
+     */
+
     @Override
     public short calcOutput(List<SignalProvider> inputs) {
-        int controlInput = inputs.get(0).getOutput();
-        int len = inputs.size();
-        
-        double index = (controlInput + ZEROIZE_INT) * (len - 2)
-                * RANGE_INV + 1;
-
-        int primary = (int)Math.round(index);
-        if (primary >= len) {
-            primary = len - 1;
-        }
-        else if (primary < 1) primary = 1;
-
-        double secondaryWeight = index - primary;
-        int secondary;
-        if (secondaryWeight >= 0) {
-            secondary = primary + 1;
-            if (secondary >= len) {
-                return inputs.get(primary).getOutput();
-            }
-
-        } else {
-            secondaryWeight = -secondaryWeight;
-
-            secondary = primary - 1;
-            if (secondary < 1) {
-                throw new IllegalStateException();
-            }
-        }
-
-        double primaryWeight = 1 - secondaryWeight;
-
-        return (short)Math.round(
-                primaryWeight * inputs.get(primary).getOutput()
-                        + secondaryWeight * inputs.get(secondary).getOutput());
+        int scaled = (inputs.get(0).getOutput() + ZEROIZE_INT) * (inputs.size() - 2);
+        int primary = (2 * scaled + SPAN) / (2 * SPAN) + 1; // never more than len - 1
+        int remainder = scaled - SPAN * (primary - 1); // secondaryWeight * SPAN, -SPAN/2 to SPAN/2
+
+        int primaryOutput = inputs.get(primary).getOutput();
+        if (remainder == 0) return (short)primaryOutput;
+
+        int secondaryOutput = inputs.get(remainder > 0 ? primary + 1 : primary - 1).getOutput();
+        return interpolate(primaryOutput, secondaryOutput, Math.abs(remainder));
+    }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        int scaled = (inputs[offset] + ZEROIZE_INT) * (length - 2);
+        int primary = (2 * scaled + SPAN) / (2 * SPAN) + 1; // never more than len - 1
+        int remainder = scaled - SPAN * (primary - 1); // secondaryWeight * SPAN, -SPAN/2 to SPAN/2
+
+        int primaryOutput = inputs[offset + primary];
+        if (remainder == 0) return (short)primaryOutput;
+
+        int secondaryOutput = inputs[offset + (remainder > 0 ? primary + 1 : primary - 1)];
+        return interpolate(primaryOutput, secondaryOutput, Math.abs(remainder));
+    }
+
+    /**
+     * Only the control input, the primary input, and the secondary input when it has any weight, are needed
+     */
+    @Override
+    public boolean isLazy() {
+        return true;
+    }
+
+    @Override
+    public int nextDemand(short[] inputs, int offset, int length, int step) {
+        if (step > 2) return NO_DEMAND;
+        if (step == 0) return 0;
+
+        int scaled = (inputs[offset] + ZEROIZE_INT) * (length - 2);
+        int primary = (2 * scaled + SPAN) / (2 * SPAN) + 1;
+        if (step == 1) return primary;
+
+        int remainder = scaled - SPAN * (primary - 1);
+        if (remainder == 0) return NO_DEMAND;
+        return remainder > 0 ? primary + 1 : primary - 1;
+    }
+
+    /**
+     * @return primaryOutput + (secondaryOutput - primaryOutput) * weight / SPAN, rounded to the nearest integer
+     */
+    private static short interpolate(int primaryOutput, int secondaryOutput, int weight) {
+        long difference = (long)(secondaryOutput - primaryOutput) * weight;
+        return (short)(primaryOutput + Math.floorDiv(2 * difference + SPAN, 2L * SPAN));
     }
 }
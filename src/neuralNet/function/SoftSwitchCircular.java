@@ -67,10 +67,76 @@ public enum SoftSwitchCircular implements NeuralFunction {
             if (secondary < 1) secondary = len - 1;
         }
 
+        short primaryOutput = inputs.get(primary).getOutput();
+        if (secondaryWeight == 0) return primaryOutput;
+
         double primaryWeight = 1 - secondaryWeight;
 
         return (short)Math.round(
-                  primaryWeight * inputs.get(primary).getOutput()
+                  primaryWeight * primaryOutput
               + secondaryWeight * inputs.get(secondary).getOutput());
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        int controlInput = inputs[offset];
+        int len = length;
+
+        double index = (controlInput + ZEROIZE_INT) * (len - 1)
+                        * RANGE_INV + 0.5;
+
+        int primary = (int)Math.round(index);
+        if (primary >= len) primary = len - 1;
+        else if (primary < 1) primary = 1;
+
+        double secondaryWeight = index - primary;
+        int secondary;
+        if (secondaryWeight >= 0) {
+            secondary = primary + 1;
+            if (secondary >= len) secondary = 1;
+
+        } else {
+            secondaryWeight = -secondaryWeight;
+
+            secondary = primary - 1;
+            if (secondary < 1) secondary = len - 1;
+        }
+
+        short primaryOutput = inputs[offset + primary];
+        if (secondaryWeight == 0) return primaryOutput;
+
+        double primaryWeight = 1 - secondaryWeight;
+
+        return (short)Math.round(
+                  primaryWeight * primaryOutput
+              + secondaryWeight * inputs[offset + secondary]);
+    }
+
+    /**
+     * Only the control input, the primary input, and the secondary input when it has any weight, are needed
+     */
+    @Override
+    public boolean isLazy() {
+        return true;
+    }
+
+    @Override
+    public int nextDemand(short[] inputs, int offset, int length, int step) {
+        if (step > 2) return NO_DEMAND;
+        if (step == 0) return 0;
+
+        double index = (inputs[offset] + ZEROIZE_INT) * (length - 1)
+                        * RANGE_INV + 0.5;
+
+        int primary = (int)Math.round(index);
+        if (primary >= length) primary = length - 1;
+        else if (primary < 1) primary = 1;
+
+        if (step == 1) return primary;
+
+        double secondaryWeight = index - primary;
+        if (secondaryWeight > 0) return primary + 1 < length ? primary + 1 : 1;
+        else if (secondaryWeight < 0) return primary > 1 ? primary - 1 : length - 1;
+        else return NO_DEMAND;
+    }
 }
@@ -29,6 +29,10 @@ public enum TriangleWave implements WaveFunction {
         if (phasePosition == 1.0) return NEGATIVE_ONE;
 
         // https://handwiki.org/wiki/Triangle_wave
-        return 2.0 * Math.abs(mod(phasePosition - 0.5, 2) - 1.0) - 1.0;
+        double position = phasePosition - 0.5;
+        if (position < 0.0 && position >= -2.0) position += 2.0; // same as mod(), without the remainder
+        else if (position < 0.0 || position >= 2.0) position = mod(position, 2);
+
+        return 2.0 * Math.abs(position - 1.0) - 1.0;
     }
 }
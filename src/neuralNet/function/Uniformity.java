@@ -39,28 +39,60 @@ public enum Uniformity implements NeuralFunction {
 
     @Override
     public short calcOutput(List<SignalProvider> inputs) {
-        int sum = 0;
-        int count = 0;
+        int length = inputs.size();
+        long sum = 0;
+        long sumSquares = 0;
+
+        for (SignalProvider input : inputs) {
+            int val = input.getOutput();
+            sum += val;
+            sumSquares += val * val;
+        }
+
+        long scaled = length * sumSquares - sum * sum; // see calcOutput(short[], int, int)
+        int rounded = roundClipEstimate(Short.MAX_VALUE - Math.sqrt(scaled) * 2 / length);
+        if (rounded != NOT_ROUNDED) return (short)rounded;
+
+        // too close to call, so repeat the original calculation.  The outputs are all cached by now
+        double mean = (double)sum / length;
+
+        double sumSq = 0;
 
-        short[] vals = new short[inputs.size()];
+        for (SignalProvider input : inputs) {
+            double diff = mean - input.getOutput();
+            sumSq += diff * diff;
+        }
 
-        for (SignalProvider neuron : inputs) {
-            short output = neuron.getOutput();
-            sum += output;
-            vals[count++] = output;
+        return roundClip(Short.MAX_VALUE - Math.sqrt(sumSq / length) * 2);
+    }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        int end = offset + length;
+        long sum = 0;
+        long sumSquares = 0;
+
+        for (int i = offset; i < end; i++) {
+            int val = inputs[i];
+            sum += val;
+            sumSquares += val * val;
         }
 
-        if (count != vals.length) throw new IllegalStateException();
+        // length^2 times the sum of the squared deviations from the mean, which is exact (at most 2^46) as a long, and
+        // so the estimate is within about 1e-11 of the exact result
+        long scaled = length * sumSquares - sum * sum;
+        int rounded = roundClipEstimate(Short.MAX_VALUE - Math.sqrt(scaled) * 2 / length);
+        if (rounded != NOT_ROUNDED) return (short)rounded;
 
-        double mean = (double)sum / count;
+        double mean = (double)sum / length;
 
         double sumSq = 0;
 
-        for (short val : vals) {
-            double diff = mean - val;
+        for (int i = offset; i < end; i++) {
+            double diff = mean - inputs[i];
             sumSq += diff * diff;
         }
 
-        return roundClip(Short.MAX_VALUE - Math.sqrt(sumSq / count) * 2);
+        return roundClip(Short.MAX_VALUE - Math.sqrt(sumSq / length) * 2);
     }
 }
@@ -25,6 +25,18 @@ public class VariableWeightedAverage implements NeuralFunction.Tweakable<Variabl
     public final double logMax;
     public final double logRange;
 
+    /**
+     * The weights are exp(k * logRange / RANGE + logMin) for the zeroized weight input k (0 - 65535).  For the kernel
+     * of calcOutput() they are looked up instead, as high[k >>> 8] * low[k & 0xff], which is within a relative error of
+     * about 1e-13 of the exp() as long as the exponents stay within MAX_TABLE_EXPONENT.  Calculated lazily, and NONE
+     * for instances with larger exponents, which always use exp()
+     */
+    private transient Exponentials exponentials;
+    public static final double MAX_TABLE_EXPONENT = 600; // well clear of overflow, and of the ROUNDING_TOLERANCE
+
+    private record Exponentials(double[] high, double[] low) { }
+    private static final Exponentials NONE = new Exponentials(null, null);
+
     public VariableWeightedAverage(double minWeight, double maxWeight) {
         if (!(minWeight > 0 && maxWeight > 0 && Double.isFinite(minWeight) && Double.isFinite(maxWeight))) {
             throw new IllegalArgumentException();
@@ -56,6 +68,32 @@ public class VariableWeightedAverage implements NeuralFunction.Tweakable<Variabl
 
     @Override
     public short calcOutput(List<SignalProvider> inputs) {
+        Exponentials exponentials = this.getExponentials();
+        if (exponentials != NONE) {
+            double[] high = exponentials.high, low = exponentials.low;
+            double sum = 0;
+            double sumWeight = 0;
+
+            Short val = null;
+
+            for (SignalProvider input : inputs) {
+                if (val == null) {
+                    val = input.getOutput();
+                    continue;
+                }
+
+                int k = input.getOutput() + ZEROIZE_INT;
+                double weight = high[k >>> 8] * low[k & 0xff];
+                sum += weight * val;
+                sumWeight += weight;
+                val = null;
+            }
+            if (val != null) throw new IllegalArgumentException("Odd number of inputs for VariableWeightedAverage: " + inputs.size());
+
+            int rounded = roundClipEstimate(sum / sumWeight);
+            if (rounded != NOT_ROUNDED) return (short)rounded;
+        }
+
         double sum = 0;
         double sumWeight = 0;
 
@@ -77,6 +115,56 @@ public class VariableWeightedAverage implements NeuralFunction.Tweakable<Variabl
         return roundClip(sum / sumWeight);
     }
 
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        if ((length & 1) != 0) throw new IllegalArgumentException("Odd number of inputs for VariableWeightedAverage: " + length);
+
+        Exponentials exponentials = this.getExponentials();
+        if (exponentials != NONE) {
+            double[] high = exponentials.high, low = exponentials.low;
+            double sum = 0;
+            double sumWeight = 0;
+
+            for (int i = offset, end = offset + length; i < end; i += 2) {
+                int k = inputs[i + 1] + ZEROIZE_INT;
+                double weight = high[k >>> 8] * low[k & 0xff];
+                sum += weight * inputs[i];
+                sumWeight += weight;
+            }
+
+            int rounded = roundClipEstimate(sum / sumWeight);
+            if (rounded != NOT_ROUNDED) return (short)rounded;
+        }
+
+        double sum = 0;
+        double sumWeight = 0;
+
+        for (int i = offset, end = offset + length; i < end; i += 2) {
+            double weight = Math.exp((inputs[i + 1] + ZEROIZE) * this.logRange / RANGE + this.logMin);
+            sum += weight * inputs[i];
+            sumWeight += weight;
+        }
+
+        return roundClip(sum / sumWeight);
+    }
+
+    private Exponentials getExponentials() {
+        Exponentials exponentials = this.exponentials;
+        if (exponentials != null) return exponentials;
+
+        if (!(Math.abs(this.logMin) + Math.abs(this.logRange) <= MAX_TABLE_EXPONENT)) {
+            return this.exponentials = NONE;
+        }
+
+        double[] high = new double[256];
+        double[] low = new double[256];
+        for (int i = 0; i < 256; i++) {
+            high[i] = Math.exp((i << 8) * this.logRange / RANGE + this.logMin);
+            low[i] = Math.exp(i * this.logRange / RANGE);
+        }
+        return this.exponentials = new Exponentials(high, low);
+    }
+
     @Override
     public List<Param> getTweakingParams() {
         return TWEAKING_PARAMS;
@@ -2,10 +2,19 @@ package neuralNet.function;
 
 import static neuralNet.evolve.Tweakable.*;
 import static neuralNet.neuron.StaticWaveProvider.*;
+import static neuralNet.util.Util.*;
 
 public interface WaveFunction {
     public double calc(double phasePosition);
 
+    /**
+     * The output of a wave neuron at the given phase position.  Implementations may override this with a faster
+     * calculation (e.g. SineWave's lookup table), but it must always return exactly the same value as this
+     */
+    default public short output(double phasePosition) {
+        return roundClip(this.calc(phasePosition) * MAX_PLUS_ONE - 0.5);
+    }
+
 
     default public Param getMutationParam() {
         return WAVE_FUNCTION_PARAMS.get(WAVE_FUNCTIONS.indexOf(this));
@@ -26,6 +26,18 @@ public class WeightedAverage implements NeuralFunction.Tweakable<WeightedAverage
     private final double weightSum;
     private transient List<Param> tweakingParams;
 
+    /**
+     * Each weight divided by the weightSum, as a fixed-point long with FIXED_BITS fractional bits, for the integer
+     * kernel of calcOutput().  Rounding every weight this way is off by at most 256 * MAX_PLUS_ONE / 2^FIXED_BITS in
+     * total (about 6e-8), far less than the ROUNDING_TOLERANCE.  Wrapped so that it is safely published between
+     * threads when calculated lazily (e.g. after deserialization)
+     */
+    private transient FixedWeights fixedWeights;
+    public static final int FIXED_BITS = 47;
+    private static final double FIXED_SCALE = (double)(1L << FIXED_BITS);
+
+    private record FixedWeights(long[] weights) { }
+
     public WeightedAverage(double ... weights) {
         if (weights.length < 2 || weights.length > 256) throw new IllegalArgumentException();
         this.weights = new double[weights.length];
@@ -69,9 +81,20 @@ public class WeightedAverage implements NeuralFunction.Tweakable<WeightedAverage
     public short calcOutput(List<SignalProvider> inputs) {
         if (inputs.size() != weights.length) throw new IllegalStateException();
 
-        double sum = 0;
+        long[] fixed = this.getFixedWeights();
+        long fixedSum = 0;
         int i = 0;
 
+        for (SignalProvider neuron : inputs) {
+            fixedSum += neuron.getOutput() * fixed[i++];
+        }
+
+        int rounded = roundClipEstimate(fixedSum / FIXED_SCALE);
+        if (rounded != NOT_ROUNDED) return (short)rounded;
+
+        double sum = 0;
+        i = 0;
+
         for (SignalProvider neuron : inputs) {
             sum += neuron.getOutput() * this.weights[i++];
         }
@@ -79,6 +102,49 @@ public class WeightedAverage implements NeuralFunction.Tweakable<WeightedAverage
         return roundClip(sum / this.weightSum);
     }
 
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        if (length != weights.length) throw new IllegalStateException();
+
+        long[] fixed = this.getFixedWeights();
+        long fixedSum = 0;
+
+        for (int i = 0; i < length; i++) {
+            fixedSum += inputs[offset + i] * fixed[i];
+        }
+
+        int rounded = roundClipEstimate(fixedSum / FIXED_SCALE);
+        if (rounded != NOT_ROUNDED) return (short)rounded;
+
+        double sum = 0;
+
+        for (int i = 0; i < length; i++) {
+            sum += inputs[offset + i] * this.weights[i];
+        }
+
+        return roundClip(sum / this.weightSum);
+    }
+
+    private long[] getFixedWeights() {
+        FixedWeights fixedWeights = this.fixedWeights;
+        if (fixedWeights != null) return fixedWeights.weights;
+
+        long[] weights = new long[this.weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = Math.round(this.weights[i] / this.weightSum * FIXED_SCALE);
+        }
+        this.fixedWeights = new FixedWeights(weights);
+        return weights;
+    }
+
+    public double getWeight(int index) {
+        return this.weights[index];
+    }
+
+    public double getWeightSum() {
+        return this.weightSum;
+    }
+
     @Override
     public List<Param> getTweakingParams() {
         if (this.tweakingParams != null) return this.tweakingParams;
@@ -55,4 +55,21 @@ public enum Widen implements NeuralFunction {
             else return (short)result;
         }
     }
+
+    @Override
+    public short calcOutput(short[] inputs, int offset, int length) {
+        int output = inputs[offset];
+        double result;
+
+        if (output >= 0) {
+            result = Math.round(Math.sqrt((output + 1) * 32768));
+            if (result >= Short.MAX_VALUE) return Short.MAX_VALUE;
+            else return (short) result;
+
+        } else {
+            result = -Math.round(Math.sqrt(-output * 32768));
+            if (result <= Short.MIN_VALUE) return Short.MIN_VALUE;
+            else return (short)result;
+        }
+    }
 }
@@ -0,0 +1,287 @@
+package neuralNet.network;
+
+import neuralNet.function.*;
+import neuralNet.neuron.*;
+
+import static neuralNet.util.Util.*;
+
+/**
+ * Evaluates one stateless NeuralNet (see ExecutionPlan.isStateless()) against many independent sensed objects at
+ * once, e.g. several game boards played in lockstep.  Signals are kept as a struct-of-arrays, signals[provider][lane],
+ * so each provider is evaluated for every active lane before moving on to the next provider.  The common functions
+ * (additions, averages, products, min/max, comparisons) are run through LaneKernels, which use the Vector API when
+ * it is available.  Every other function is gathered and calculated lane by lane with NeuralFunction.calcOutput().
+ *
+ * Lanes can be switched off with setActive() (e.g. when a game ends before the rest of the batch); inactive lanes are
+ * neither read nor written by evaluate().  Since the net is stateless, there is no before() / after() / reset(), and
+ * the provider objects of the net itself are never touched.
+ */
+public class BatchEvaluator {
+    /**
+     * Lane arrays are allocated in multiples of this, so the vector kernels never need a tail loop.  Covers the widest
+     * vector of shorts (512 bits = 32 lanes) with room to spare
+     */
+    static final int LANE_PADDING = 64;
+
+    private enum Kind {
+        SENSOR, CONSTANT, ALIAS,
+        ADDITION_CLIPPED, AVERAGE, WEIGHTED_AVERAGE, MULTIPLY_CLIPPED, MAX, MIN, COMPARE, GENERIC
+    }
+
+    /**
+     * @return a BatchEvaluator for the plan, or null if any provider the decision nodes depend upon is not stateless
+     */
+    public static BatchEvaluator forPlan(ExecutionPlan plan, int lanes) {
+        if (lanes < 1) throw new IllegalArgumentException();
+
+        boolean[] needed = plan.getDecisionDependencies();
+        if (needed == null) return null;
+
+        for (int i = 0; i < needed.length; i++) {
+            if (!needed[i]) continue;
+            SignalProvider provider = plan.getProvider(i);
+            if (!(provider instanceof SensorNode) && !ExecutionPlan.isStateless(provider)) return null;
+        }
+
+        return new BatchEvaluator(plan, needed, lanes);
+    }
+
+    private final LaneKernels kernels = LaneKernels.INSTANCE;
+    private final int lanes;
+
+    private final short[][] signals;
+    private final boolean[] active;
+
+    private final int[] order; // indexes of the providers which are evaluated, in plan order
+    private final Kind[] kinds;
+    private final int[][] inputs;
+    private final NeuralFunction[] functions;
+    private final double[][] weights; // for WEIGHTED_AVERAGE
+    private final double[] weightSums;
+    private final LaneKernels.Comparison[] comparisons;
+
+    private final short[][] sensorLanes; // by sensor index, null if the sensor isn't needed by any decision
+    private final int[] decisionInputs;
+
+    private final int[] intScratch;
+    private final double[] doubleScratch;
+    private final short[] gathered;
+
+    private BatchEvaluator(ExecutionPlan plan, boolean[] needed, int lanes) {
+        this.lanes = lanes;
+        int padded = (lanes + LANE_PADDING - 1) / LANE_PADDING * LANE_PADDING;
+        int size = plan.size();
+
+        this.signals = new short[size][];
+        this.active = new boolean[padded];
+        for (int lane = 0; lane < lanes; lane++) {
+            this.active[lane] = true;
+        }
+
+        this.kinds = new Kind[size];
+        this.inputs = new int[size][];
+        this.functions = new NeuralFunction[size];
+        this.weights = new double[size][];
+        this.weightSums = new double[size];
+        this.comparisons = new LaneKernels.Comparison[size];
+
+        int count = 0;
+        int maxInputs = 0;
+        for (int i = 0; i < size; i++) {
+            if (!needed[i]) continue;
+            count++;
+
+            SignalProvider provider = plan.getProvider(i);
+            int alias = plan.getAlias(i);
+            if (alias != -1) {
+                this.kinds[i] = Kind.ALIAS;
+                this.signals[i] = this.signals[alias]; // shares the original's lanes
+                continue;
+            }
+
+            this.signals[i] = new short[padded];
+            if (provider instanceof SensorNode) {
+                this.kinds[i] = Kind.SENSOR;
+
+            } else if (plan.isConstant(i)) { // includes FixedValueProviders
+                this.kinds[i] = Kind.CONSTANT;
+                short value = plan.getSignal(i);
+                for (int lane = 0; lane < padded; lane++) {
+                    this.signals[i][lane] = value;
+                }
+
+            } else {
+                NeuralFunction function = ((CachingNeuronUsingFunction) provider).outputFunction;
+                int[] inputs = plan.getInputIndexes(i);
+                this.inputs[i] = inputs;
+                this.functions[i] = function;
+                this.kinds[i] = this.kindOf(i, function, inputs);
+                if (inputs.length > maxInputs) maxInputs = inputs.length;
+            }
+        }
+
+        this.order = new int[count];
+        for (int i = 0, j = 0; i < size; i++) {
+            if (needed[i]) this.order[j++] = i;
+        }
+
+        this.sensorLanes = new short[plan.sensorCount()][];
+        for (int s = 0; s < this.sensorLanes.length; s++) {
+            int index = plan.indexOf(plan.getSensor(s));
+            if (index != -1 && needed[index]) this.sensorLanes[s] = this.signals[index];
+        }
+
+        this.decisionInputs = new int[plan.decisionCount()];
+        for (int d = 0; d < this.decisionInputs.length; d++) {
+            this.decisionInputs[d] = plan.getDecisionInputIndex(d);
+        }
+
+        this.intScratch = new int[padded];
+        this.doubleScratch = new double[padded];
+        this.gathered = new short[maxInputs];
+    }
+
+    private Kind kindOf(int index, NeuralFunction function, int[] inputs) {
+        if (inputs.length == 0) return Kind.GENERIC;
+
+        if (function == AdditionClipped.INSTANCE) return Kind.ADDITION_CLIPPED;
+        if (function == Average.INSTANCE) return Kind.AVERAGE;
+        if (function == MultiplyClipped.INSTANCE) return Kind.MULTIPLY_CLIPPED;
+        if (function == Max.INSTANCE) return Kind.MAX;
+        if (function == Min.INSTANCE) return Kind.MIN;
+
+        if (function instanceof WeightedAverage weighted && inputs.length == weighted.getMinInputs()) {
+            double[] weights = new double[inputs.length];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = weighted.getWeight(i);
+            }
+            this.weights[index] = weights;
+            this.weightSums[index] = weighted.getWeightSum();
+            return Kind.WEIGHTED_AVERAGE;
+        }
+
+        if (inputs.length == 2) {
+            LaneKernels.Comparison comparison = null;
+            if (function == GreaterThan.INSTANCE) comparison = LaneKernels.Comparison.GREATER_THAN;
+            else if (function == GreaterThanOrEqualTo.INSTANCE) {
+                comparison = LaneKernels.Comparison.GREATER_THAN_OR_EQUAL_TO;
+            }
+            else if (function == LessThan.INSTANCE) comparison = LaneKernels.Comparison.LESS_THAN;
+            else if (function == LessThanOrEqualTo.INSTANCE) comparison = LaneKernels.Comparison.LESS_THAN_OR_EQUAL_TO;
+
+            if (comparison != null) {
+                this.comparisons[index] = comparison;
+                return Kind.COMPARE;
+            }
+        }
+
+        return Kind.GENERIC;
+    }
+
+    public int lanes() {
+        return this.lanes;
+    }
+
+    public boolean isActive(int lane) {
+        return this.active[lane];
+    }
+
+    public void setActive(int lane, boolean active) {
+        if (lane >= this.lanes) throw new IndexOutOfBoundsException(lane);
+        this.active[lane] = active;
+    }
+
+    /**
+     * @param sensorIndex position of the sensor in the NeuralNet's getSensors() list
+     * @return the array (indexed by lane) which the sensor's values must be written into before evaluate(), or null
+     * if no decision depends upon that sensor
+     */
+    public short[] getSensorLanes(int sensorIndex) {
+        return this.sensorLanes[sensorIndex];
+    }
+
+    /**
+     * @param decisionIndex position of the decision node in the NeuralNet's getDecisionNodes() list
+     * @return the decision node's weight for the lane, from the most recent evaluate()
+     */
+    public short getDecisionWeight(int decisionIndex, int lane) {
+        return this.signals[this.decisionInputs[decisionIndex]][lane];
+    }
+
+    /**
+     * Calculates every needed provider for all active lanes, from the values currently in the sensor lanes
+     */
+    public void evaluate() {
+        LaneKernels kernels = this.kernels;
+        short[][] signals = this.signals;
+        boolean[] active = this.active;
+        int lanes = this.lanes;
+        int[] intScratch = this.intScratch;
+        double[] doubleScratch = this.doubleScratch;
+
+        for (int i : this.order) {
+            short[] out = signals[i];
+            int[] inputs = this.inputs[i];
+
+            switch (this.kinds[i]) {
+                case SENSOR:
+                case CONSTANT:
+                case ALIAS:
+                    break;
+
+                case ADDITION_CLIPPED:
+                    kernels.sum(signals, inputs, intScratch, active, lanes);
+                    for (int lane = 0; lane < lanes; lane++) {
+                        if (active[lane]) out[lane] = clip(intScratch[lane]);
+                    }
+                    break;
+
+                case AVERAGE:
+                    kernels.sum(signals, inputs, intScratch, active, lanes);
+                    for (int lane = 0; lane < lanes; lane++) {
+                        if (active[lane]) out[lane] = roundClip((double)intScratch[lane] / inputs.length);
+                    }
+                    break;
+
+                case WEIGHTED_AVERAGE:
+                    kernels.weightedSum(signals, inputs, this.weights[i], doubleScratch, active, lanes);
+                    double weightSum = this.weightSums[i];
+                    for (int lane = 0; lane < lanes; lane++) {
+                        if (active[lane]) out[lane] = roundClip(doubleScratch[lane] / weightSum);
+                    }
+                    break;
+
+                case MULTIPLY_CLIPPED:
+                    kernels.normalizedProduct(signals, inputs, doubleScratch, active, lanes);
+                    for (int lane = 0; lane < lanes; lane++) {
+                        if (active[lane]) out[lane] = clip(doubleScratch[lane] * MAX_PLUS_ONE - ZEROIZE);
+                    }
+                    break;
+
+                case MAX:
+                    kernels.max(signals, inputs, out, active, lanes);
+                    break;
+
+                case MIN:
+                    kernels.min(signals, inputs, out, active, lanes);
+                    break;
+
+                case COMPARE:
+                    kernels.compare(signals[inputs[0]], signals[inputs[1]], this.comparisons[i], out, active, lanes);
+                    break;
+
+                case GENERIC:
+                    NeuralFunction function = this.functions[i];
+                    short[] gathered = this.gathered;
+                    for (int lane = 0; lane < lanes; lane++) {
+                        if (!active[lane]) continue;
+                        for (int j = 0; j < inputs.length; j++) {
+                            gathered[j] = signals[inputs[j]][lane];
+                        }
+                        out[lane] = function.calcOutput(gathered, 0, inputs.length);
+                    }
+                    break;
+            }
+        }
+    }
+}
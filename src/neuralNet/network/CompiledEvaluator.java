@@ -0,0 +1,11 @@
+package neuralNet.network;
+
+/**
+ * Straight-line evaluator for a traced NeuralNet, generated at runtime by EvaluatorCompiler as a hidden class.
+ * Reads the sensor values (in getSensors() order) and writes the weight of every decision node (in
+ * getDecisionNodes() order).  Only nets made entirely of stateless providers can be compiled, so an evaluator
+ * has no state of its own and does not need before() / after() / reset()
+ */
+public interface CompiledEvaluator {
+    public void evaluate(short[] sensorInputs, short[] decisionWeights);
+}
@@ -2,7 +2,6 @@ package neuralNet.network;
 
 import java.io.*;
 import java.util.*;
-import java.util.stream.*;
 
 public interface DecisionConsumer<S extends Sensable<S>,
                                     C extends DecisionConsumer<S, C, F>,
@@ -22,37 +21,44 @@ public interface DecisionConsumer<S extends Sensable<S>,
 
     public int getMaxNoOpRounds();
 
+    /**
+     * Buffers used by runRound() and runNoOpRounds() to rank the decisions without allocating.  Implementations
+     * should keep and return a single instance, which is only ever used by the thread running this consumer's rounds.
+     * The default returns a new instance on every call
+     */
+    default public DecisionRanking getDecisionRanking() {
+        return new DecisionRanking();
+    }
+
     default public void runRound(DecisionProvider<S, ?, C> withProvider) {
         withProvider.runRound();
 
-        ArrayList<DecisionNode<?, C>> decisions = new ArrayList<>(withProvider.getDecisionNodes());
-        Collections.sort(decisions);
-        for (DecisionNode<?, C> decision : decisions) {
-            if (decision.getDecisionId() == -1) {
-                runNoOpRounds(withProvider);
+        DecisionRanking ranking = this.getDecisionRanking();
+        for (int decisionId : ranking.rank(withProvider, false)) {
+            if (decisionId == -1) {
+                runNoOpRounds(withProvider, ranking);
 
-            } else if (this.takeAction(decision.getDecisionId())) return;
+            } else if (this.takeAction(decisionId)) return;
         }
     }
 
     default public void runNoOpRounds(DecisionProvider<S, ?, C> withProvider) {
-        ArrayList<DecisionNode<?, C>> decisions = new ArrayList<>(withProvider.getDecisionNodes());
-        Map<DecisionNode<?, C>, Short> lastAttempt = null;
+        this.runNoOpRounds(withProvider, this.getDecisionRanking());
+    }
 
+    private void runNoOpRounds(DecisionProvider<S, ?, C> withProvider, DecisionRanking ranking) {
         int i;
         int end = this.getMaxNoOpRounds();
 
         for (i = 0; i < end; i++) {
             withProvider.runRound();
 
-            Collections.sort(decisions);
-            Map<DecisionNode<?, C>, Short> currentAttempt = decisions.stream().collect(Collectors.toMap(node -> node, DecisionNode::getWeight));
-            if (Objects.equals(currentAttempt, lastAttempt)) break;
-            lastAttempt = currentAttempt;
+            int[] ranked = ranking.rank(withProvider, true);
+            if (ranking.repeatsPreviousNoOpRound(i == 0)) break;
 
-            for (DecisionNode<?, C> decision : decisions) {
-                if (decision.getDecisionId() == -1) break;
-                if (this.takeAction(decision.getDecisionId())) return;
+            for (int decisionId : ranked) {
+                if (decisionId == -1) break;
+                if (this.takeAction(decisionId)) return;
             }
         }
 
@@ -63,11 +69,9 @@ public interface DecisionConsumer<S extends Sensable<S>,
         }
          */
 
-        Collections.sort(decisions);
-
-        for (DecisionNode<?, C> decision : decisions) {
-            if (decision.getDecisionId() == -1) continue;
-            if (this.takeAction(decision.getDecisionId())) return;
+        for (int decisionId : ranking.rank(withProvider, true)) {
+            if (decisionId == -1) continue;
+            if (this.takeAction(decisionId)) return;
         }
     }
 }
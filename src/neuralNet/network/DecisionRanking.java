@@ -0,0 +1,146 @@
+package neuralNet.network;
+
+import java.util.*;
+
+/**
+ * Reusable buffers for ranking a DecisionProvider's decision nodes in DecisionConsumer.runRound() and
+ * runNoOpRounds(), without allocating anything per round.  The order is exactly that of DecisionNode.compareTo():
+ * highest weight first, with ties broken by the same hashCode / class / provider / round mask.  The
+ * round-independent part of each node's mask is computed once per provider.
+ *
+ * Not thread-safe: each DecisionConsumer should keep its own instance (see DecisionConsumer.getDecisionRanking())
+ */
+public class DecisionRanking {
+    private DecisionProvider<?, ?, ?> provider;
+    private List<? extends DecisionNode<?, ?>> nodes;
+    private int count;
+
+    private DecisionNode<?, ?>[] decisions;
+    private int[] ids;
+    private int[] masks;
+    private short[] weights;
+    private short[] previousWeights;
+
+    private int[] order;
+    private int[] roundIds;
+    private int[] noOpIds;
+
+    private void load(DecisionProvider<?, ?, ?> provider) {
+        List<? extends DecisionNode<?, ?>> nodes = provider.getDecisionNodes();
+        if (provider == this.provider && nodes == this.nodes && nodes.size() == this.count) return;
+
+        int count = nodes.size();
+        this.provider = provider;
+        this.nodes = nodes;
+        this.count = count;
+
+        this.decisions = nodes.toArray(new DecisionNode<?, ?>[0]);
+        this.ids = new int[count];
+        this.masks = new int[count];
+        for (int d = 0; d < count; d++) {
+            this.ids[d] = this.decisions[d].getDecisionId();
+            this.masks[d] = tieBreakMask(this.decisions[d]);
+        }
+
+        this.weights = new short[count];
+        this.previousWeights = new short[count];
+        this.order = new int[count];
+        this.roundIds = new int[count];
+        this.noOpIds = new int[count];
+    }
+
+    /**
+     * Reads the current weights of the provider's decision nodes and ranks them
+     *
+     * @param noOpRound whether this is for runNoOpRounds(), which ranks into a separate buffer so that runRound()'s
+     *                  ranking is left intact while it is still iterating it
+     * @return the decision ids, in ranked order.  The array is reused by the next call with the same noOpRound
+     */
+    public int[] rank(DecisionProvider<?, ?, ?> provider, boolean noOpRound) {
+        this.load(provider);
+
+        DecisionNode<?, ?>[] decisions = this.decisions;
+        short[] weights = this.weights;
+        for (int d = 0; d < decisions.length; d++) {
+            weights[d] = decisions[d].getWeight();
+        }
+
+        sort(this.order, weights, this.masks, provider.getRound());
+
+        int[] ranked = noOpRound ? this.noOpIds : this.roundIds;
+        for (int i = 0; i < ranked.length; i++) {
+            ranked[i] = this.ids[this.order[i]];
+        }
+        return ranked;
+    }
+
+    /**
+     * Compares the weights read by the latest rank() with those from the previous NoOp round, and then remembers
+     * them for the next comparison.  Equivalent to the Map of node weights which runNoOpRounds() used to compare
+     *
+     * @param first whether this is the first NoOp round, which has nothing to compare against
+     */
+    public boolean repeatsPreviousNoOpRound(boolean first) {
+        boolean same = !first && Arrays.equals(this.weights, this.previousWeights);
+        System.arraycopy(this.weights, 0, this.previousWeights, 0, this.count);
+        return same;
+    }
+
+    /**
+     * @return the round-independent part of the tie-breaking mask in DecisionNode.compareTo()
+     */
+    public static int tieBreakMask(DecisionNode<?, ?> node) {
+        return Integer.reverse(node.hashCode())
+             ^ Integer.reverse(node.getClass().hashCode())
+             ^ Integer.reverse(node.getDecisionProvider().hashCode());
+    }
+
+    /**
+     * Fills order with the indexes of the decisions, ranked as by DecisionNode.compareTo().  Five decisions (the four
+     * moves of 2048 plus NoOp) use a fixed nine-comparator sorting network, anything else an insertion sort
+     *
+     * @param masks the tieBreakMask() of each decision
+     * @param round the current round of the decisions' provider
+     */
+    public static void sort(int[] order, short[] weights, int[] masks, long round) {
+        int roundMask = Integer.reverse((int)round);
+
+        if (order.length == 5) {
+            for (int i = 0; i < 5; i++) {
+                order[i] = i;
+            }
+            compareSwap(order, 0, 1, weights, masks, roundMask);
+            compareSwap(order, 3, 4, weights, masks, roundMask);
+            compareSwap(order, 2, 4, weights, masks, roundMask);
+            compareSwap(order, 2, 3, weights, masks, roundMask);
+            compareSwap(order, 1, 4, weights, masks, roundMask);
+            compareSwap(order, 0, 3, weights, masks, roundMask);
+            compareSwap(order, 0, 2, weights, masks, roundMask);
+            compareSwap(order, 1, 3, weights, masks, roundMask);
+            compareSwap(order, 1, 2, weights, masks, roundMask);
+            return;
+        }
+
+        for (int i = 0; i < order.length; i++) {
+            int j = i;
+            while (j > 0 && precedes(i, order[j - 1], weights, masks, roundMask)) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = i;
+        }
+    }
+
+    private static void compareSwap(int[] order, int a, int b, short[] weights, int[] masks, int roundMask) {
+        int first = order[a], second = order[b];
+        if (precedes(second, first, weights, masks, roundMask)) {
+            order[a] = second;
+            order[b] = first;
+        }
+    }
+
+    private static boolean precedes(int decision, int other, short[] weights, int[] masks, int roundMask) {
+        if (weights[decision] != weights[other]) return weights[decision] > weights[other];
+        return (masks[decision] ^ roundMask) < (masks[other] ^ roundMask);
+    }
+}
@@ -0,0 +1,696 @@
+package neuralNet.network;
+
+import neuralNet.function.*;
+import neuralNet.neuron.*;
+
+import java.io.*;
+import java.lang.invoke.*;
+import java.util.*;
+
+import static neuralNet.util.Util.*;
+
+/**
+ * Turns the ExecutionPlan of a traced NeuralNet into a CompiledEvaluator, by generating the bytecode for a hidden
+ * class whose single evaluate() method is straight-line code: each neuron's output is held in a local variable,
+ * and each NeuralFunction is inlined as the primitive arithmetic it performs.  The few functions whose logic needs
+ * branching (e.g. Negate, Widen, the comparisons) are emitted as calls to the small static kernels at the bottom of
+ * this class, which the JIT inlines.  Any other function is called through its primitive calcOutput(short[], int, int)
+ * variant, with its inputs gathered into a scratch array which is passed to the generated class's constructor along
+ * with the function instances.  Because the generated code has no branches, it needs no stack map frames.
+ *
+ * Only stateless providers are supported -- sensors, FixedValueProviders, and function neurons.  If any provider which
+ * a decision node depends upon is anything else (memory neurons, waves, random values, complex neurons) compile()
+ * returns null, and the net keeps running on the interpreted ExecutionPlan.
+ */
+public class EvaluatorCompiler {
+    private static final String CLASS_NAME = "neuralNet/network/GeneratedEvaluator";
+    private static final String KERNELS = "neuralNet/network/EvaluatorCompiler";
+    private static final String UTIL = "neuralNet/util/Util";
+    private static final String MATH = "java/lang/Math";
+    private static final String FUNCTION = "neuralNet/function/NeuralFunction";
+    private static final String FUNCTIONS_DESCRIPTOR = "[LneuralNet/function/NeuralFunction;";
+
+    private static final int CLASS_VERSION = 61; // Java 17
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    // local variable slots: 0 = this, 1 = sensorInputs, 2 = decisionWeights, then one int per provider
+    private static final int FIRST_LOCAL = 3;
+
+    /**
+     * @return a generated evaluator for the plan, or null if the plan contains a provider which is not supported
+     */
+    public static CompiledEvaluator compile(ExecutionPlan plan) {
+        EvaluatorCompiler compiler = new EvaluatorCompiler(plan);
+        byte[] bytes = compiler.generate();
+        if (bytes == null) return null;
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(),
+                    MethodType.methodType(void.class, NeuralFunction[].class, short[].class));
+
+            return (CompiledEvaluator) constructor.invoke(compiler.functions.toArray(new NeuralFunction[0]),
+                                                          new short[compiler.maxGathered]);
+
+        } catch (Throwable e) {
+            System.err.println("Could not define generated evaluator, falling back to interpreted ExecutionPlan:");
+            System.err.println(e);
+            return null;
+        }
+    }
+
+    private final ExecutionPlan plan;
+    private final Map<SignalProvider, Integer> sensorIndexes = new IdentityHashMap<>();
+
+    // functions which are called through their primitive calcOutput, and the scratch array size needed to do so
+    private final List<NeuralFunction> functions = new ArrayList<>();
+    private int maxGathered = 0;
+
+    private final List<byte[]> constants = new ArrayList<>();
+    private final Map<String, Integer> constantIndexes = new HashMap<>();
+    private int constantsCount = 1; // constant pool indexes start at 1
+
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private int stack = 0;
+    private int maxStack = 0;
+
+    private EvaluatorCompiler(ExecutionPlan plan) {
+        this.plan = plan;
+        for (int i = 0; i < plan.sensorCount(); i++) {
+            this.sensorIndexes.put(plan.getSensor(i), i);
+        }
+    }
+
+    private byte[] generate() {
+        int size = this.plan.size();
+        if (FIRST_LOCAL + size > 0xffff) return null;
+
+        // only the providers which the decision nodes actually depend upon are compiled
+        boolean[] needed = this.plan.getDecisionDependencies();
+        if (needed == null) return null;
+        int decisions = this.plan.decisionCount();
+
+        for (int i = 0; i < size; i++) {
+            if (!needed[i]) continue;
+            if (!this.emitProvider(this.plan.getProvider(i), this.plan.getInputIndexes(i), FIRST_LOCAL + i)) return null;
+            this.istore(FIRST_LOCAL + i);
+        }
+
+        for (int d = 0; d < decisions; d++) {
+            this.op(0x2c, 1);                   // aload_2
+            this.pushInt(d);
+            this.iload(FIRST_LOCAL + this.plan.getDecisionInputIndex(d));
+            this.op(0x56, -3);                  // sastore
+        }
+        this.op(0xb1, 0);                       // return
+
+        if (this.code.size() > MAX_CODE_LENGTH) return null;
+        return this.writeClass(this.code.toByteArray(), FIRST_LOCAL + size);
+    }
+
+    private boolean emitProvider(SignalProvider provider, int[] inputs, int slot) {
+        Integer sensorIndex = this.sensorIndexes.get(provider);
+        if (sensorIndex != null) {
+            this.op(0x2b, 1);                   // aload_1
+            this.pushInt(sensorIndex);
+            this.op(0x35, -1);                  // saload
+            return true;
+        }
+
+        if (!ExecutionPlan.isStateless(provider)) return false;
+
+        int index = slot - FIRST_LOCAL;
+        int alias = this.plan.getAlias(index);
+        if (alias != -1) {
+            this.iload(FIRST_LOCAL + alias);
+            return true;
+        }
+
+        if (this.plan.isConstant(index)) {
+            this.pushInt(this.plan.getSignal(index)); // folded by the plan, including FixedValueProviders
+            return true;
+
+        } else {
+            NeuralFunction function = ((CachingNeuronUsingFunction) provider).outputFunction;
+            if (!this.emitFunction(function, inputs, slot)) this.emitGathered(function, inputs);
+            return true;
+        }
+    }
+
+    /**
+     * Emits the bytecode for a single function, leaving its output on the operand stack.  Each case mirrors the
+     * arithmetic of the function's calcOutput(), in the same order, so that the results are bit-identical.
+     * The provider's own local variable slot may be used as a temporary, since the output is stored there afterwards
+     */
+    private boolean emitFunction(NeuralFunction function, int[] in, int slot) {
+        if (in.length == 0) return false;
+
+        if (function == AdditionCircular.INSTANCE) {
+            this.sum(in);
+            this.op(0x93, 0);                   // i2s
+
+        } else if (function == AdditionClipped.INSTANCE) {
+            this.sum(in);
+            this.invokeStatic(UTIL, "clip", "(I)S", 0);
+
+        } else if (function == Average.INSTANCE) {
+            this.sum(in);
+            this.op(0x87, 1);                   // i2d
+            this.pushDouble(in.length);
+            this.op(0x6f, -2);                  // ddiv
+            this.invokeStatic(UTIL, "roundClip", "(D)S", -1);
+
+        } else if (function == DifferenceCircular.INSTANCE && in.length == 2) {
+            this.difference(in);
+            this.op(0x93, 0);                   // i2s
+
+        } else if (function == DifferenceClipped.INSTANCE && in.length == 2) {
+            this.difference(in);
+            this.invokeStatic(UTIL, "clip", "(I)S", 0);
+
+        } else if (function == DifferenceNormalized.INSTANCE && in.length == 2) {
+            this.difference(in);
+            this.op(0x87, 1);                   // i2d
+            this.pushDouble(2.0);
+            this.op(0x6f, -2);                  // ddiv
+            this.invokeStatic(MATH, "floor", "(D)D", 0);
+            this.invokeStatic(UTIL, "clip", "(D)S", -1);
+
+        } else if (function == Max.INSTANCE) {
+            this.fold(in, MATH, "max");
+
+        } else if (function == Min.INSTANCE) {
+            this.fold(in, MATH, "min");
+
+        } else if (function == Closeness.INSTANCE) {
+            this.pushInt(Short.MAX_VALUE);
+            this.fold(in, MATH, "max");
+            this.op(0x64, -1);                  // isub
+            this.fold(in, MATH, "min");
+            this.op(0x60, -1);                  // iadd
+            this.op(0x93, 0);                   // i2s
+
+        } else if (function == Farness.INSTANCE) {
+            this.fold(in, MATH, "max");
+            this.fold(in, MATH, "min");
+            this.op(0x64, -1);                  // isub
+            this.pushInt(Short.MIN_VALUE);
+            this.op(0x60, -1);                  // iadd
+            this.op(0x93, 0);                   // i2s
+
+        } else if (function instanceof Ceiling ceiling) {
+            this.iload(FIRST_LOCAL + in[0]);
+            this.pushInt(ceiling.ceiling);
+            this.invokeStatic(MATH, "min", "(II)I", -1);
+
+        } else if (function instanceof Floor floor) {
+            this.iload(FIRST_LOCAL + in[0]);
+            this.pushInt(floor.floor);
+            this.invokeStatic(MATH, "max", "(II)I", -1);
+
+        } else if (function == GreaterThan.INSTANCE && in.length == 2) {
+            this.binaryKernel(in, "greaterThan");
+
+        } else if (function == GreaterThanOrEqualTo.INSTANCE && in.length == 2) {
+            this.binaryKernel(in, "greaterThanOrEqualTo");
+
+        } else if (function == LessThan.INSTANCE && in.length == 2) {
+            this.binaryKernel(in, "lessThan");
+
+        } else if (function == LessThanOrEqualTo.INSTANCE && in.length == 2) {
+            this.binaryKernel(in, "lessThanOrEqualTo");
+
+        } else if (function == Equals.INSTANCE && in.length == 2) {
+            this.binaryKernel(in, "equalTo");
+
+        } else if (function == NotEquals.INSTANCE && in.length == 2) {
+            this.binaryKernel(in, "notEqualTo");
+
+        } else if (function == HardSwitch.INSTANCE && in.length >= 2) {
+            // select the input without branching: sum of select(index, k, input k), which is zero except at the index
+            this.iload(FIRST_LOCAL + in[0]);
+            this.pushInt(in.length - 1);
+            this.invokeStatic(KERNELS, "hardSwitchIndex", "(II)I", -1);
+            this.istore(slot);
+
+            for (int k = 1; k < in.length; k++) {
+                this.iload(slot);
+                this.pushInt(k);
+                this.iload(FIRST_LOCAL + in[k]);
+                this.invokeStatic(KERNELS, "select", "(III)I", -2);
+                if (k > 1) this.op(0x60, -1);   // iadd
+            }
+
+        } else if (function == Negate.INSTANCE) {
+            this.iload(FIRST_LOCAL + in[0]);
+            this.invokeStatic(KERNELS, "negate", "(I)I", 0);
+
+        } else if (function == NegateBalanced.INSTANCE) {
+            this.iload(FIRST_LOCAL + in[0]);
+            this.op(0x02, 1);                   // iconst_m1
+            this.op(0x82, -1);                  // ixor  ...  -(x + 1) == ~x
+            this.op(0x93, 0);                   // i2s
+
+        } else if (function == Widen.INSTANCE) {
+            this.iload(FIRST_LOCAL + in[0]);
+            this.invokeStatic(KERNELS, "widen", "(I)I", 0);
+
+        } else if (function == Narrow.INSTANCE) {
+            this.iload(FIRST_LOCAL + in[0]);
+            this.invokeStatic(KERNELS, "narrow", "(I)I", 0);
+
+        } else if (function == Increase.INSTANCE) {
+            // ADDEND - NUMERATOR / (input + ADDEND)
+            this.pushDouble(Increase.ADDEND);
+            this.pushDouble(Increase.NUMERATOR);
+            this.iload(FIRST_LOCAL + in[0]);
+            this.op(0x87, 1);                   // i2d
+            this.pushDouble(Increase.ADDEND);
+            this.op(0x63, -2);                  // dadd
+            this.op(0x6f, -2);                  // ddiv
+            this.op(0x67, -2);                  // dsub
+            this.invokeStatic(UTIL, "roundClip", "(D)S", -1);
+
+        } else if (function == Decrease.INSTANCE) {
+            // -ADDEND - NUMERATOR / (input - ADDEND)
+            this.pushDouble(-Decrease.ADDEND);
+            this.pushDouble(Decrease.NUMERATOR);
+            this.iload(FIRST_LOCAL + in[0]);
+            this.op(0x87, 1);                   // i2d
+            this.pushDouble(Decrease.ADDEND);
+            this.op(0x67, -2);                  // dsub
+            this.op(0x6f, -2);                  // ddiv
+            this.op(0x67, -2);                  // dsub
+            this.invokeStatic(UTIL, "roundClip", "(D)S", -1);
+
+        } else if (function instanceof WeightedAverage weighted) {
+            if (in.length != weighted.getMinInputs()) return false;
+            this.op(0x0e, 2);                   // dconst_0
+            for (int i = 0; i < in.length; i++) {
+                this.iload(FIRST_LOCAL + in[i]);
+                this.op(0x87, 1);               // i2d
+                this.pushDouble(weighted.getWeight(i));
+                this.op(0x6b, -2);              // dmul
+                this.op(0x63, -2);              // dadd
+            }
+            this.pushDouble(weighted.getWeightSum());
+            this.op(0x6f, -2);                  // ddiv
+            this.invokeStatic(UTIL, "roundClip", "(D)S", -1);
+
+        } else if (function.getClass() == LinearTransformClipped.class
+                || function.getClass() == LinearTransformCircular.class) {
+
+            LinearTransformClipped transform = (LinearTransformClipped) function;
+            this.pushDouble(transform.coefficient);
+            this.iload(FIRST_LOCAL + in[0]);
+            this.op(0x87, 1);                   // i2d
+            this.op(0x6b, -2);                  // dmul
+            this.pushDouble(transform.offset);
+            this.op(0x63, -2);                  // dadd
+
+            if (function.getClass() == LinearTransformClipped.class) {
+                this.invokeStatic(UTIL, "roundClip", "(D)S", -1);
+
+            } else {
+                this.invokeStatic(MATH, "round", "(D)J", 0);
+                this.op(0x8a, 0);               // l2d
+                this.op(0x8e, -1);              // d2i
+                this.op(0x93, 0);               // i2s
+            }
+
+        } else return false;
+
+        return true;
+    }
+
+    /**
+     * Gathers the inputs into the scratch array, and calls the function's primitive calcOutput variant
+     */
+    private void emitGathered(NeuralFunction function, int[] in) {
+        int scratch = this.fieldRef("scratch", "[S");
+
+        for (int j = 0; j < in.length; j++) {
+            this.op(0x2a, 1);                   // aload_0
+            this.op(0xb4, 0);                   // getfield scratch
+            this.u2(scratch);
+            this.pushInt(j);
+            this.iload(FIRST_LOCAL + in[j]);
+            this.op(0x56, -3);                  // sastore
+        }
+
+        this.op(0x2a, 1);                       // aload_0
+        this.op(0xb4, 0);                       // getfield functions
+        this.u2(this.fieldRef("functions", FUNCTIONS_DESCRIPTOR));
+        this.pushInt(this.functions.size());
+        this.op(0x32, -1);                      // aaload
+        this.op(0x2a, 1);                       // aload_0
+        this.op(0xb4, 0);                       // getfield scratch
+        this.u2(scratch);
+        this.pushInt(0);
+        this.pushInt(in.length);
+        this.op(0xb9, -3);                      // invokeinterface
+        this.u2(this.interfaceMethodRef(FUNCTION, "calcOutput", "([SII)S"));
+        this.u1(4);
+        this.u1(0);
+
+        this.functions.add(function);
+        if (in.length > this.maxGathered) this.maxGathered = in.length;
+    }
+
+    private void sum(int[] in) {
+        this.iload(FIRST_LOCAL + in[0]);
+        for (int i = 1; i < in.length; i++) {
+            this.iload(FIRST_LOCAL + in[i]);
+            this.op(0x60, -1);                  // iadd
+        }
+    }
+
+    private void difference(int[] in) {
+        this.iload(FIRST_LOCAL + in[0]);
+        this.iload(FIRST_LOCAL + in[1]);
+        this.op(0x64, -1);                      // isub
+    }
+
+    private void fold(int[] in, String owner, String method) {
+        this.iload(FIRST_LOCAL + in[0]);
+        for (int i = 1; i < in.length; i++) {
+            this.iload(FIRST_LOCAL + in[i]);
+            this.invokeStatic(owner, method, "(II)I", -1);
+        }
+    }
+
+    private void binaryKernel(int[] in, String kernel) {
+        this.iload(FIRST_LOCAL + in[0]);
+        this.iload(FIRST_LOCAL + in[1]);
+        this.invokeStatic(KERNELS, kernel, "(II)I", -1);
+    }
+
+
+    /*
+     * Bytecode emission
+     */
+
+    private void op(int opcode, int stackChange) {
+        this.code.write(opcode);
+        this.stack += stackChange;
+        if (this.stack > this.maxStack) this.maxStack = this.stack;
+    }
+
+    private void u1(int value) {
+        this.code.write(value);
+    }
+
+    private void u2(int value) {
+        this.code.write(value >>> 8);
+        this.code.write(value);
+    }
+
+    private void iload(int slot) {
+        if (slot <= 3) this.op(0x1a + slot, 1);
+        else if (slot <= 0xff) {
+            this.op(0x15, 1);
+            this.u1(slot);
+
+        } else {
+            this.op(0xc4, 0);                   // wide
+            this.op(0x15, 1);
+            this.u2(slot);
+        }
+    }
+
+    private void istore(int slot) {
+        if (slot <= 3) this.op(0x3b + slot, -1);
+        else if (slot <= 0xff) {
+            this.op(0x36, -1);
+            this.u1(slot);
+
+        } else {
+            this.op(0xc4, 0);                   // wide
+            this.op(0x36, -1);
+            this.u2(slot);
+        }
+    }
+
+    private void pushInt(int value) {
+        if (value >= -1 && value <= 5) this.op(0x03 + value, 1);        // iconst_<n>
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            this.op(0x10, 1);                   // bipush
+            this.u1(value);
+
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            this.op(0x11, 1);                   // sipush
+            this.u2(value);
+
+        } else {
+            this.op(0x13, 1);                   // ldc_w
+            this.u2(this.constant("I" + value, 3, out -> out.writeInt(value)));
+        }
+    }
+
+    private void pushDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        if (bits == 0L) this.op(0x0e, 2);                                       // dconst_0
+        else if (bits == Double.doubleToRawLongBits(1.0)) this.op(0x0f, 2);     // dconst_1
+        else {
+            this.op(0x14, 2);                   // ldc2_w
+            this.u2(this.constant("D" + bits, 6, out -> out.writeDouble(value)));
+        }
+    }
+
+    private void invokeStatic(String owner, String name, String descriptor, int stackChange) {
+        this.op(0xb8, stackChange);
+        this.u2(this.methodRef(owner, name, descriptor));
+    }
+
+
+    /*
+     * Constant pool
+     */
+
+    private interface ConstantWriter {
+        public void write(DataOutputStream out) throws IOException;
+    }
+
+    private int constant(String key, int tag, ConstantWriter writer) {
+        Integer index = this.constantIndexes.get(key);
+        if (index != null) return index;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(tag);
+            writer.write(out);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        index = this.constantsCount;
+        this.constants.add(bytes.toByteArray());
+        this.constantIndexes.put(key, index);
+        this.constantsCount += tag == 5 || tag == 6 ? 2 : 1; // longs and doubles take two slots
+        return index;
+    }
+
+    private int utf8(String value) {
+        return this.constant("U" + value, 1, out -> out.writeUTF(value));
+    }
+
+    private int classRef(String name) {
+        int utf8 = this.utf8(name);
+        return this.constant("C" + name, 7, out -> out.writeShort(utf8));
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        int nameIndex = this.utf8(name), descriptorIndex = this.utf8(descriptor);
+        return this.constant("N" + name + ":" + descriptor, 12, out -> {
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+    }
+
+    private int methodRef(String owner, String name, String descriptor) {
+        int ownerIndex = this.classRef(owner), nameAndType = this.nameAndType(name, descriptor);
+        return this.constant("M" + owner + "." + name + ":" + descriptor, 10, out -> {
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private int interfaceMethodRef(String owner, String name, String descriptor) {
+        int ownerIndex = this.classRef(owner), nameAndType = this.nameAndType(name, descriptor);
+        return this.constant("K" + owner + "." + name + ":" + descriptor, 11, out -> {
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private int fieldRef(String name, String descriptor) {
+        int ownerIndex = this.classRef(CLASS_NAME), nameAndType = this.nameAndType(name, descriptor);
+        return this.constant("F" + name + ":" + descriptor, 9, out -> {
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private byte[] writeClass(byte[] evaluateCode, int maxLocals) {
+        int thisClass = this.classRef(CLASS_NAME);
+        int superClass = this.classRef("java/lang/Object");
+        int evaluatorInterface = this.classRef("neuralNet/network/CompiledEvaluator");
+        int objectInit = this.methodRef("java/lang/Object", "<init>", "()V");
+        int init = this.utf8("<init>"), initDescriptor = this.utf8("(" + FUNCTIONS_DESCRIPTOR + "[S)V");
+        int functionsField = this.fieldRef("functions", FUNCTIONS_DESCRIPTOR), scratchField = this.fieldRef("scratch", "[S");
+        int functionsName = this.utf8("functions"), functionsDescriptor = this.utf8(FUNCTIONS_DESCRIPTOR);
+        int scratchName = this.utf8("scratch"), scratchDescriptor = this.utf8("[S");
+        int evaluate = this.utf8("evaluate"), evaluateDescriptor = this.utf8("([S[S)V");
+        int codeAttribute = this.utf8("Code");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeInt(0xcafebabe);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+
+            out.writeShort(this.constantsCount);
+            for (byte[] constant : this.constants) {
+                out.write(constant);
+            }
+
+            out.writeShort(0x0031);             // ACC_PUBLIC | ACC_FINAL | ACC_SUPER
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(evaluatorInterface);
+            out.writeShort(2);                  // fields
+            writeField(out, functionsName, functionsDescriptor);
+            writeField(out, scratchName, scratchDescriptor);
+
+            out.writeShort(2);                  // methods
+            byte[] initCode = new byte[] {
+                    0x2a,                                                           // aload_0
+                    (byte) 0xb7, (byte) (objectInit >>> 8), (byte) objectInit,      // invokespecial Object.<init>
+                    0x2a, 0x2b,                                                     // aload_0, aload_1
+                    (byte) 0xb5, (byte) (functionsField >>> 8), (byte) functionsField,  // putfield functions
+                    0x2a, 0x2c,                                                     // aload_0, aload_2
+                    (byte) 0xb5, (byte) (scratchField >>> 8), (byte) scratchField,  // putfield scratch
+                    (byte) 0xb1                                                     // return
+            };
+            writeMethod(out, init, initDescriptor, codeAttribute, initCode, 2, 3);
+            writeMethod(out, evaluate, evaluateDescriptor, codeAttribute, evaluateCode, this.maxStack, maxLocals);
+
+            out.writeShort(0);                  // class attributes
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static void writeField(DataOutputStream out, int name, int descriptor) throws IOException {
+        out.writeShort(0x0012);                 // ACC_PRIVATE | ACC_FINAL
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(0);                      // attributes
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeAttribute,
+                                    byte[] code, int maxStack, int maxLocals) throws IOException {
+
+        out.writeShort(0x0001);                 // ACC_PUBLIC
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);                      // attributes
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);                      // exception table
+        out.writeShort(0);                      // code attributes
+    }
+
+
+    /*
+     * Kernels for the functions which need branching.  These are invoked from the generated classes, which are
+     * defined as hidden classes in this package, and mirror the calcOutput() of the corresponding function
+     */
+
+    static int greaterThan(int a, int b) {
+        return a > b ? Short.MAX_VALUE : Short.MIN_VALUE;
+    }
+
+    static int greaterThanOrEqualTo(int a, int b) {
+        return a >= b ? Short.MAX_VALUE : Short.MIN_VALUE;
+    }
+
+    static int lessThan(int a, int b) {
+        return a < b ? Short.MAX_VALUE : Short.MIN_VALUE;
+    }
+
+    static int lessThanOrEqualTo(int a, int b) {
+        return a <= b ? Short.MAX_VALUE : Short.MIN_VALUE;
+    }
+
+    static int equalTo(int a, int b) {
+        return a == b ? Short.MAX_VALUE : Short.MIN_VALUE;
+    }
+
+    static int notEqualTo(int a, int b) {
+        return a != b ? Short.MAX_VALUE : Short.MIN_VALUE;
+    }
+
+    static int hardSwitchIndex(int controlInput, int len) {
+        int index = (int)((controlInput + ZEROIZE_INT) * len
+                * RANGE_INV) + 1;
+
+        if (index >= len) index = len;
+        else if (index < 1) index = 1;
+
+        return index;
+    }
+
+    static int select(int index, int k, int value) {
+        return index == k ? value : 0;
+    }
+
+    static int negate(int input) {
+        if (input == Short.MAX_VALUE) return Short.MIN_VALUE;
+        if (input == Short.MIN_VALUE) return Short.MAX_VALUE;
+        else return (short)-input;
+    }
+
+    static int widen(int output) {
+        double result;
+
+        if (output >= 0) {
+            result = Math.round(Math.sqrt((output + 1) * 32768));
+            if (result >= Short.MAX_VALUE) return Short.MAX_VALUE;
+            else return (short) result;
+
+        } else {
+            result = -Math.round(Math.sqrt(-output * 32768));
+            if (result <= Short.MIN_VALUE) return Short.MIN_VALUE;
+            else return (short) result;
+        }
+    }
+
+    static int narrow(int output) {
+        double result;
+
+        if (output >= 0) {
+            result = Math.round(output * output * Narrow.INV_MULTIPLIER);
+            if (result >= Short.MAX_VALUE) return Short.MAX_VALUE;
+            else return (short) result;
+
+        } else {
+            output += 1;
+            result = -Math.round(output * output * Narrow.INV_MULTIPLIER);
+            if (result <= Short.MIN_VALUE) return Short.MIN_VALUE;
+            else return (short) result;
+        }
+    }
+}
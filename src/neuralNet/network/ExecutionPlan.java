@@ -0,0 +1,968 @@
+package neuralNet.network;
+
+import neuralNet.evolve.*;
+import neuralNet.function.*;
+import neuralNet.neuron.*;
+
+import java.util.*;
+
+import static neuralNet.util.Util.*;
+
+/**
+ * A flattened, int-indexed view of a traced NeuralNet, used to run rounds without recursing through the
+ * provider/consumer graph.  Every SignalProvider of the net is assigned an index into a single short[]
+ * signals array, in an order where each provider comes AFTER all of the providers its current output
+ * depends upon.  LoopingNeurons (i.e. memory neurons) are treated as sources, because their current
+ * output only depends upon the inputs of PREVIOUS rounds.
+ *
+ * The object graph of the NeuralNet remains the source of truth for mutation, cloning and hashing.  A plan
+ * is a derived artifact which is cached by its NeuralNet and discarded whenever traceNeuronsSet() is invoked.
+ *
+ * The plan is also an evaluation-only simplification of the net: stateless providers whose output can never change
+ * are folded into constants (see foldConstants()), and providers which cannot influence any decision node are never
+ * run at all.  Neither affects the net itself, so hashing and mutation still see all of the inert structure.
+ *
+ * PassThrough providers are followed to their sources, so that the internal nets of ComplexNeurons (including nested
+ * ones) are flattened into this plan: their internal neurons are indexed, ordered, folded, merged and run like any
+ * other provider of the outer net, while the members and internal sensors just copy their sources' outputs.
+ */
+public class ExecutionPlan {
+    private final SignalProvider[] providers;
+
+    /**
+     * Indexes into the signals array for each provider's inputs, or null when the provider is not a consumer
+     */
+    private final int[][] inputs;
+
+    /**
+     * Index into the signals array for the input of each decision node (by position in getDecisionNodes()),
+     * or -1 if the decision node has no input
+     */
+    private final int[] decisionInputs;
+    private final List<? extends DecisionNode<?, ?>> decisionNodes;
+
+    private final short[] signals;
+
+    /**
+     * Stateless providers whose output is the same every round, regardless of the sensors.  Their value is
+     * calculated once, when the plan is created, and left in the signals array
+     */
+    private final boolean[] constant;
+
+    /**
+     * For each provider which duplicates an earlier one (see mergeDuplicates()), the index of that earlier provider,
+     * otherwise -1.  A duplicate's output is copied from the original rather than calculated
+     */
+    private final int[] aliases;
+
+    /**
+     * Indexes of the providers which runRound() actually runs, in plan order: every provider which can influence a
+     * decision node (in this round, or a later one through a LoopingNeuron), except for the constant ones
+     */
+    private final int[] running;
+    private final SignalProvider[] runningProviders;
+    private final SignalProvider[] runningAfter; // the running providers whose after() isn't a no-op
+
+    /**
+     * Incremental mode (see setIncremental()).  triggers holds, for each running provider, the indexes whose change
+     * forces it to be recalculated -- its inputs, or its original if it is a duplicate -- or null if it must be
+     * recalculated every round (sensors and stateful providers).  Built the first time incremental mode is enabled
+     */
+    private boolean incremental = false;
+    private boolean primed = false;
+    private int[][] triggers;
+    private boolean[] changed;
+    private boolean[] recalculated;
+
+    /**
+     * Lazy mode (see setLazy()), built the first time it is enabled.  functions holds the NeuralFunction of each
+     * running stateless neuron (otherwise null), whose demanded inputs are gathered into the scratch array starting
+     * at its scratchOffset.  steps is the number of inputs it has demanded so far in the current round, and
+     * evaluated is the stamp of the last round in which its output was calculated.  stateful holds the positions
+     * (in runningProviders) of the providers which are evaluated every round regardless, and loopingInputs the
+     * indexes of the inputs which the LoopingNeurons' after() will read
+     */
+    private boolean lazy = false;
+    private NeuralFunction[] functions;
+    private int[] scratchOffsets;
+    private short[] scratch;
+    private int[] steps;
+    private int[] evaluated;
+    private int stamp = 0;
+    private int[] pending; // the explicit stack used by demand()
+    private int[] stateful;
+    private int[] loopingInputs;
+
+    private final SensorNode<?, ?>[] sensors;
+    private final Map<SignalProvider, Integer> indexes;
+
+    /**
+     * Optional generated evaluator (see EvaluatorCompiler) which replaces the interpreted round when every provider
+     * the decision nodes depend upon is stateless.  When verifyCompiled is set, both are run each round and the
+     * decision weights are compared, with the plan permanently falling back to the interpreted round on a mismatch
+     */
+    private CompiledEvaluator compiled;
+    private boolean compileAttempted = false;
+    private boolean verifyCompiled = false;
+    private short[] sensorInputs;
+    private short[] decisionWeights;
+
+    private BatchEvaluator batch;
+    private boolean batchUnsupported = false;
+
+    ExecutionPlan(NeuralNet<?, ?, ?> net) {
+        Map<SignalProvider, Integer> indexes = new IdentityHashMap<>(net.getProviders().size());
+        List<SignalProvider> order = new ArrayList<>(net.getProviders().size());
+
+        for (SignalProvider provider : net.getProviders()) {
+            addInOrder(provider, indexes, order);
+        }
+
+        this.sensors = net.getSensors().toArray(new SensorNode<?, ?>[0]);
+        this.decisionNodes = net.getDecisionNodes();
+        this.decisionInputs = new int[this.decisionNodes.size()];
+
+        int d = 0;
+        for (DecisionNode<?, ?> node : this.decisionNodes) {
+            List<SignalProvider> inputs = node.getInputs();
+            if (inputs.size() == 0) {
+                this.decisionInputs[d++] = -1;
+                continue;
+            }
+
+            SignalProvider input = inputs.get(0);
+            addInOrder(input, indexes, order);
+            this.decisionInputs[d++] = indexes.get(input);
+        }
+
+        // the rest of the complexes' internal nets (e.g. the inputs of their LoopingNeurons), including nested ones
+        for (int i = 0; i < order.size(); i++) {
+            if (!(order.get(i) instanceof ComplexNeuronMember complex)) continue;
+            for (SignalProvider provider : complex.getInternalDecisionProvider().getProviders()) {
+                addInOrder(provider, indexes, order);
+            }
+        }
+
+        this.indexes = indexes;
+        this.providers = order.toArray(new SignalProvider[0]);
+        this.inputs = new int[this.providers.length][];
+        this.signals = new short[this.providers.length];
+
+        for (int i = 0; i < this.providers.length; i++) {
+            SignalProvider source = passThroughSource(this.providers[i]);
+            if (source != null) {
+                this.inputs[i] = new int[] { indexes.get(source) };
+                continue;
+            }
+
+            if (!(this.providers[i] instanceof SignalConsumer consumer)) continue;
+
+            List<SignalProvider> inputs = consumer.getInputs();
+            int[] inputIndexes = new int[inputs.size()];
+            int j = 0;
+            for (SignalProvider input : inputs) {
+                Integer index = indexes.get(input);
+                if (index == null) throw new IllegalStateException("Untraced input: " + input);
+                inputIndexes[j++] = index;
+            }
+            this.inputs[i] = inputIndexes;
+        }
+
+        this.constant = this.foldConstants();
+        this.aliases = this.mergeDuplicates();
+        this.running = this.findRunning();
+        this.runningProviders = new SignalProvider[this.running.length];
+        for (int i = 0; i < this.running.length; i++) {
+            this.runningProviders[i] = this.providers[this.running[i]];
+        }
+
+        this.runningAfter = Arrays.stream(this.runningProviders).filter(NeuralNet::needsAfter)
+                .toArray(SignalProvider[]::new);
+    }
+
+    /**
+     * Range analysis over the plan, in dependency order.  Each provider gets the lowest and highest output it could
+     * possibly produce, given the ranges of its inputs; a stateless provider whose range is a single value is
+     * constant.  Besides subgraphs made only of FixedValueProviders, this catches functions which ignore some of
+     * their inputs because of a constant, e.g. a Min with a Short.MIN_VALUE input, an AdditionClipped saturated by
+     * its constants, or a comparison that can only go one way.  Anything not specifically handled is only folded
+     * when all of its inputs are constant.
+     */
+    private boolean[] foldConstants() {
+        int size = this.providers.length;
+        boolean[] constant = new boolean[size];
+        short[] lo = new short[size];
+        short[] hi = new short[size];
+        short[] gathered = new short[0];
+
+        for (int i = 0; i < size; i++) {
+            SignalProvider provider = this.providers[i];
+            lo[i] = Short.MIN_VALUE;
+            hi[i] = Short.MAX_VALUE;
+
+            if (!isStateless(provider)) continue;
+
+            if (provider instanceof FixedValueProvider fixed) {
+                lo[i] = hi[i] = fixed.value;
+
+            } else if (provider instanceof PassThrough) {
+                int source = this.inputs[i][0];
+                lo[i] = lo[source];
+                hi[i] = hi[source];
+
+            } else {
+                int[] inputs = this.inputs[i];
+                if (inputs.length > gathered.length) gathered = new short[inputs.length];
+                range(((CachingNeuronUsingFunction) provider).outputFunction, inputs, lo, hi, i, gathered);
+            }
+
+            if (lo[i] == hi[i]) {
+                constant[i] = true;
+                this.signals[i] = lo[i];
+            }
+        }
+
+        return constant;
+    }
+
+    private static void range(NeuralFunction function, int[] inputs, short[] lo, short[] hi, int i, short[] gathered) {
+        boolean allConstant = true;
+        for (int input : inputs) {
+            if (lo[input] != hi[input]) {
+                allConstant = false;
+                break;
+            }
+        }
+
+        if (allConstant) {
+            for (int j = 0; j < inputs.length; j++) {
+                gathered[j] = lo[inputs[j]];
+            }
+            lo[i] = hi[i] = function.calcOutput(gathered, 0, inputs.length);
+            return;
+        }
+
+        if (inputs.length == 0) return;
+
+        if (function == AdditionClipped.INSTANCE || function == Average.INSTANCE) {
+            int min = 0, max = 0;
+            for (int input : inputs) {
+                min += lo[input];
+                max += hi[input];
+            }
+            if (function == AdditionClipped.INSTANCE) {
+                lo[i] = clip(min);
+                hi[i] = clip(max);
+
+            } else {
+                lo[i] = roundClip((double)min / inputs.length);
+                hi[i] = roundClip((double)max / inputs.length);
+            }
+
+        } else if (function == Min.INSTANCE || function == Max.INSTANCE) {
+            boolean isMin = function == Min.INSTANCE;
+            short min = lo[inputs[0]], max = hi[inputs[0]];
+            for (int input : inputs) {
+                if (isMin ? lo[input] < min : lo[input] > min) min = lo[input];
+                if (isMin ? hi[input] < max : hi[input] > max) max = hi[input];
+            }
+            lo[i] = min;
+            hi[i] = max;
+
+        } else if (inputs.length == 2) {
+            short aLo = lo[inputs[0]], aHi = hi[inputs[0]], bLo = lo[inputs[1]], bHi = hi[inputs[1]];
+            Boolean result = null;
+
+            if (function == GreaterThan.INSTANCE) {
+                if (aLo > bHi) result = true;
+                else if (aHi <= bLo) result = false;
+
+            } else if (function == GreaterThanOrEqualTo.INSTANCE) {
+                if (aLo >= bHi) result = true;
+                else if (aHi < bLo) result = false;
+
+            } else if (function == LessThan.INSTANCE) {
+                if (aHi < bLo) result = true;
+                else if (aLo >= bHi) result = false;
+
+            } else if (function == LessThanOrEqualTo.INSTANCE) {
+                if (aHi <= bLo) result = true;
+                else if (aLo > bHi) result = false;
+            }
+
+            if (result != null) lo[i] = hi[i] = result ? Short.MAX_VALUE : Short.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Common-subexpression elimination within the net.  Like Hybridizer.findEquivalentProviders(), candidates are
+     * grouped by their neural hash and then confirmed with sameBehavior(), but here they must also have exactly the
+     * same inputs, in the same order (after the inputs themselves have been merged, which the plan order guarantees
+     * has already happened).  Only stateless function neurons are merged, since two stateful neurons with identical
+     * inputs may still be in different states.  PassThrough providers are simply aliases of their sources.  Returns
+     * the aliases array.
+     */
+    private int[] mergeDuplicates() {
+        int size = this.providers.length;
+        int[] aliases = new int[size];
+        int[][] canonicalInputs = new int[size][];
+        Map<Long, List<Integer>> byHash = new HashMap<>();
+
+        for (int i = 0; i < size; i++) {
+            aliases[i] = -1;
+            SignalProvider provider = this.providers[i];
+            if (this.constant[i] || !isStateless(provider) || provider instanceof FixedValueProvider) continue;
+
+            if (provider instanceof PassThrough) {
+                int source = this.inputs[i][0];
+                aliases[i] = aliases[source] != -1 ? aliases[source] : source;
+                continue;
+            }
+
+            // the plan keeps the real inputs, because the providers still read each other through the object graph
+            int[] inputs = this.inputs[i].clone();
+            for (int j = 0; j < inputs.length; j++) {
+                if (aliases[inputs[j]] != -1) inputs[j] = aliases[inputs[j]];
+            }
+            canonicalInputs[i] = inputs;
+
+            List<Integer> candidates = byHash.computeIfAbsent(provider.getNeuralHash(), h -> new ArrayList<>(1));
+            for (int candidate : candidates) {
+                SignalProvider other = this.providers[candidate];
+                if (other.getClass() == provider.getClass() && other.sameBehavior(provider)
+                        && Arrays.equals(canonicalInputs[candidate], inputs)) {
+
+                    aliases[i] = candidate;
+                    break;
+                }
+            }
+            if (aliases[i] == -1) candidates.add(i);
+        }
+
+        return aliases;
+    }
+
+    /**
+     * Walks backwards from the decision nodes' inputs, through the inputs of everything except constants and
+     * duplicates.  Unlike getDecisionDependencies(), this follows the inputs of LoopingNeurons, since they are needed
+     * by after().  Duplicates are still run, but only to copy the original's output into their caches, for any
+     * consumer which reads them through the object graph
+     */
+    private int[] findRunning() {
+        int size = this.providers.length;
+        boolean[] live = new boolean[size];
+        Deque<Integer> stack = new ArrayDeque<>();
+
+        for (int index : this.decisionInputs) {
+            if (index != -1 && !live[index]) {
+                live[index] = true;
+                stack.push(index);
+            }
+        }
+
+        while (!stack.isEmpty()) {
+            int i = stack.pop();
+            if (this.constant[i] || this.inputs[i] == null) continue;
+
+            int alias = this.aliases[i];
+            if (alias != -1) {
+                if (!live[alias]) {
+                    live[alias] = true;
+                    stack.push(alias);
+                }
+                continue;
+            }
+
+            for (int input : this.inputs[i]) {
+                if (live[input]) continue;
+                live[input] = true;
+                stack.push(input);
+            }
+        }
+
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (live[i] && !this.constant[i]) count++;
+        }
+
+        int[] running = new int[count];
+        for (int i = 0, j = 0; i < size; i++) {
+            if (live[i] && !this.constant[i]) running[j++] = i;
+        }
+        return running;
+    }
+
+    /**
+     * Iterative depth-first post-order traversal, so that every provider is appended to the order only after
+     * all of the providers its current output depends upon.
+     */
+    private static void addInOrder(SignalProvider root,
+                                   Map<SignalProvider, Integer> indexes,
+                                   List<SignalProvider> order) {
+
+        if (indexes.containsKey(root)) return;
+
+        Set<SignalProvider> visiting = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<SignalProvider> stack = new ArrayDeque<>();
+        Deque<Iterator<SignalProvider>> iterators = new ArrayDeque<>();
+
+        visiting.add(root);
+        stack.push(root);
+        iterators.push(dependencies(root));
+
+        while (!stack.isEmpty()) {
+            Iterator<SignalProvider> iterator = iterators.peek();
+
+            if (iterator.hasNext()) {
+                SignalProvider next = iterator.next();
+                if (indexes.containsKey(next)) continue;
+                if (!visiting.add(next)) throw new IllegalStateException("Illegal circular neural loop!");
+
+                stack.push(next);
+                iterators.push(dependencies(next));
+
+            } else {
+                SignalProvider provider = stack.pop();
+                iterators.pop();
+                visiting.remove(provider);
+
+                indexes.put(provider, order.size());
+                order.add(provider);
+            }
+        }
+    }
+
+    private static Iterator<SignalProvider> dependencies(SignalProvider provider) {
+        SignalProvider source = passThroughSource(provider);
+        if (source != null) return List.of(source).iterator();
+
+        if (provider instanceof LoopingNeuron || !(provider instanceof SignalConsumer consumer)) {
+            return Collections.emptyIterator();
+        }
+        return consumer.getInputs().iterator();
+    }
+
+    /**
+     * Attempts to generate a CompiledEvaluator for this plan, which is then used by runRound() in place of the
+     * interpreted providers.  Only attempted once per plan; since the plan is discarded whenever its net is
+     * re-traced, so is the evaluator.
+     *
+     * @param verify if true, every round is ALSO run through the interpreted providers, and the compiled evaluator
+     *               is discarded if it ever produces different decision weights
+     * @return true if the compiled evaluator is in use, false if the plan contains an unsupported provider
+     */
+    public synchronized boolean compile(boolean verify) {
+        if (!this.compileAttempted) {
+            this.compileAttempted = true;
+            CompiledEvaluator compiled = EvaluatorCompiler.compile(this);
+            if (compiled != null) {
+                this.sensorInputs = new short[this.sensors.length];
+                this.decisionWeights = new short[this.decisionInputs.length];
+                this.compiled = compiled;
+            }
+        }
+        this.verifyCompiled = verify;
+        return this.compiled != null;
+    }
+
+    public boolean isCompiled() {
+        return this.compiled != null;
+    }
+
+    /**
+     * In incremental mode, the interpreted runRound() only recalculates the stateful providers (including the
+     * sensors), plus the stateless providers which have an input whose output changed since the previous round.
+     * Every other stateless provider keeps last round's output, with its cache still valid because before() isn't
+     * invoked on it either.  In 2048 a move typically changes only a few of the sensors, so most of a large net's
+     * stateless region can be skipped between moves.  The outputs are identical to a full round either way.
+     */
+    public synchronized void setIncremental(boolean incremental) {
+        if (incremental && this.triggers == null) this.prepareIncremental();
+        this.incremental = incremental;
+        this.primed = false;
+    }
+
+    private void prepareIncremental() {
+        int[][] triggers = new int[this.running.length][];
+        for (int i = 0; i < this.running.length; i++) {
+            int index = this.running[i];
+            if (this.aliases[index] != -1) triggers[i] = new int[] { this.aliases[index] };
+            else if (isStateless(this.runningProviders[i])) triggers[i] = this.inputs[index];
+        }
+        this.changed = new boolean[this.providers.length];
+        this.recalculated = new boolean[this.running.length];
+        this.triggers = triggers;
+    }
+
+    public boolean isIncremental() {
+        return this.incremental;
+    }
+
+    /**
+     * In lazy mode, the interpreted runRound() only calculates the stateless providers whose output is actually
+     * needed this round, by demanding the decision nodes' inputs and following NeuralFunction.nextDemand() from
+     * there, e.g. only the branch a HardSwitch selects.  Stateful providers (including the sensors) are still
+     * calculated every round in plan order, so that their state and any random draws are the same as in a full
+     * round, as are the inputs which LoopingNeurons remember.  The decision weights are identical to a full round,
+     * but the signals (and caches) of the providers which weren't needed are left stale.
+     *
+     * Lazy mode takes precedence over incremental mode.  A compiled evaluator (when not verifying) still calculates
+     * everything, since its straight-line code is cheaper than the bookkeeping
+     */
+    public synchronized void setLazy(boolean lazy) {
+        if (lazy && this.functions == null) this.prepareLazy();
+        this.lazy = lazy;
+        this.primed = false;
+    }
+
+    public boolean isLazy() {
+        return this.lazy;
+    }
+
+    private void prepareLazy() {
+        int size = this.providers.length;
+        NeuralFunction[] functions = new NeuralFunction[size];
+        int[] scratchOffsets = new int[size];
+        int scratchSize = 0;
+
+        List<Integer> stateful = new ArrayList<>();
+        List<Integer> loopingInputs = new ArrayList<>();
+
+        for (int i = 0; i < this.running.length; i++) {
+            int index = this.running[i];
+            SignalProvider provider = this.runningProviders[i];
+            if (this.aliases[index] != -1) continue;
+
+            if (!isStateless(provider)) {
+                stateful.add(i);
+                if (provider instanceof LoopingNeuron && this.inputs[index] != null) {
+                    for (int input : this.inputs[index]) {
+                        loopingInputs.add(input);
+                    }
+                }
+
+            } else if (provider instanceof CachingNeuronUsingFunction neuron) {
+                functions[index] = neuron.outputFunction;
+                scratchOffsets[index] = scratchSize;
+                scratchSize += this.inputs[index].length;
+            }
+        }
+
+        this.scratchOffsets = scratchOffsets;
+        this.scratch = new short[scratchSize];
+        this.steps = new int[size];
+        this.evaluated = new int[size];
+        this.pending = new int[size];
+        this.stateful = stateful.stream().mapToInt(Integer::intValue).toArray();
+        this.loopingInputs = loopingInputs.stream().mapToInt(Integer::intValue).toArray();
+        this.functions = functions; // last, since setLazy() checks it
+    }
+
+    /**
+     * Invoked when the net is reset, so that the next incremental round recalculates everything
+     */
+    void reset() {
+        this.primed = false;
+    }
+
+    /**
+     * @param lanes number of independent sensed objects to evaluate in lockstep
+     * @return a BatchEvaluator for this plan, or null if the plan contains a provider which cannot be batched.
+     * The most recently created evaluator is cached, as long as the number of lanes is the same
+     */
+    public synchronized BatchEvaluator getBatchEvaluator(int lanes) {
+        if (this.batch != null && this.batch.lanes() == lanes) return this.batch;
+        if (this.batchUnsupported) return null;
+
+        this.batch = BatchEvaluator.forPlan(this, lanes);
+        if (this.batch == null) this.batchUnsupported = true;
+        return this.batch;
+    }
+
+    /**
+     * @return which providers (by index) the decision nodes depend upon, directly or indirectly, or null if any
+     * decision node has no input.  Dependencies always have a lower index than their consumers, except for the
+     * inputs of LoopingNeurons and constants, which are not followed.  Duplicates depend upon their original
+     */
+    public boolean[] getDecisionDependencies() {
+        boolean[] needed = new boolean[this.providers.length];
+        for (int index : this.decisionInputs) {
+            if (index == -1) return null;
+            needed[index] = true;
+        }
+
+        for (int i = needed.length - 1; i >= 0; i--) {
+            if (!needed[i] || this.constant[i] || this.providers[i] instanceof LoopingNeuron) continue;
+            if (this.aliases[i] != -1) {
+                needed[this.aliases[i]] = true;
+                continue;
+            }
+
+            int[] inputs = this.inputs[i];
+            if (inputs == null) continue;
+            for (int input : inputs) {
+                needed[input] = true;
+            }
+        }
+
+        return needed;
+    }
+
+    /**
+     * Whether the provider's output depends only upon its current inputs (or upon nothing at all), so that it can
+     * be evaluated outside of the provider object itself, e.g. by a CompiledEvaluator or BatchEvaluator
+     */
+    public static boolean isStateless(SignalProvider provider) {
+        return provider.getClass() == FixedValueProvider.class
+                || provider.getClass() == CachingNeuronUsingFunction.class
+                || provider.getClass() == CachingNeuronUsingTweakableFunction.class
+                || passThroughSource(provider) != null;
+    }
+
+    /**
+     * @return the source of a PassThrough provider, or null if it isn't one (or currently has no source, in which
+     * case it is treated like any other stateful provider)
+     */
+    private static SignalProvider passThroughSource(SignalProvider provider) {
+        return provider instanceof PassThrough passThrough ? passThrough.getPassThroughSource() : null;
+    }
+
+    /**
+     * Runs a full round in the same phases as DecisionProvider.runRound(): before() on every provider, then
+     * every output is calculated in dependency order, then after() on every provider.  Because each provider
+     * is evaluated only after all of its inputs, the getOutput() calls never recurse beyond a cache hit.
+     * Constant providers, and those which cannot influence a decision, are skipped entirely.  Duplicates of another
+     * provider are given its output instead of calculating their own.
+     *
+     * When a compiled evaluator is in use, the sensors are sensed and the evaluator calculates the decision weights
+     * directly, without touching the other providers (which are all stateless in that case)
+     */
+    public void runRound() {
+        CompiledEvaluator compiled = this.compiled;
+        if (compiled != null && !this.verifyCompiled) {
+            this.runCompiled(compiled);
+            return;
+        }
+
+        if (this.lazy) {
+            this.runLazy();
+            if (compiled != null) this.verifyCompiled(compiled);
+            return;
+        }
+
+        if (this.incremental) {
+            this.runIncremental();
+            if (compiled != null) this.verifyCompiled(compiled);
+            return;
+        }
+
+        SignalProvider[] providers = this.runningProviders;
+        int[] running = this.running;
+        int[] aliases = this.aliases;
+        short[] signals = this.signals;
+
+        for (SignalProvider provider : providers) {
+            provider.before();
+        }
+
+        for (int i = 0; i < providers.length; i++) {
+            int index = running[i];
+            int alias = aliases[index];
+            if (alias == -1) signals[index] = providers[i].getOutput();
+            else ((CachingProvider)providers[i]).setCachedOutput(signals[index] = signals[alias]);
+        }
+
+        for (SignalProvider provider : this.runningAfter) {
+            provider.after();
+        }
+
+        if (compiled != null) this.verifyCompiled(compiled);
+    }
+
+    /**
+     * Dirty propagation in plan order.  before() is invoked on each provider just before its output is requested
+     * (rather than all at once) which is equivalent, since before() only invalidates the provider's own cache, and
+     * all of a provider's inputs come earlier in the plan.  after() is still invoked on the recalculated providers
+     * only once all of the outputs are known.  The first round after the plan is created or reset recalculates
+     * everything
+     */
+    private void runIncremental() {
+        SignalProvider[] providers = this.runningProviders;
+        int[] running = this.running;
+        int[] aliases = this.aliases;
+        int[][] triggers = this.triggers;
+        short[] signals = this.signals;
+        boolean[] changed = this.changed;
+        boolean[] recalculated = this.recalculated;
+        boolean all = !this.primed;
+
+        for (int i = 0; i < providers.length; i++) {
+            int index = running[i];
+            boolean recalculate = all || triggers[i] == null;
+
+            if (!recalculate) {
+                for (int trigger : triggers[i]) {
+                    if (changed[trigger]) {
+                        recalculate = true;
+                        break;
+                    }
+                }
+            }
+
+            recalculated[i] = recalculate;
+            if (!recalculate) {
+                changed[index] = false;
+                continue;
+            }
+
+            SignalProvider provider = providers[i];
+            provider.before();
+
+            short output;
+            int alias = aliases[index];
+            if (alias == -1) output = provider.getOutput();
+            else ((CachingProvider)provider).setCachedOutput(output = signals[alias]);
+
+            changed[index] = all || output != signals[index];
+            signals[index] = output;
+        }
+
+        for (int i = 0; i < providers.length; i++) {
+            if (recalculated[i]) providers[i].after();
+        }
+
+        this.primed = true;
+    }
+
+    /**
+     * See setLazy().  Each stateful provider's inputs are demanded just before it is calculated (except for those of
+     * LoopingNeurons, which aren't needed until after()), so that demand() only ever meets stateless providers which
+     * haven't been calculated yet
+     */
+    private void runLazy() {
+        SignalProvider[] providers = this.runningProviders;
+        int[] running = this.running;
+        short[] signals = this.signals;
+
+        for (SignalProvider provider : providers) {
+            provider.before();
+        }
+
+        if (++this.stamp == 0) {
+            Arrays.fill(this.evaluated, 0);
+            this.stamp = 1;
+        }
+
+        for (int i : this.stateful) {
+            int index = running[i];
+            SignalProvider provider = providers[i];
+
+            int[] inputs = this.inputs[index];
+            if (inputs != null && !(provider instanceof LoopingNeuron)) {
+                for (int input : inputs) {
+                    this.demand(input);
+                }
+            }
+
+            signals[index] = provider.getOutput();
+            this.evaluated[index] = this.stamp;
+        }
+
+        for (int index : this.decisionInputs) {
+            if (index != -1) this.demand(index);
+        }
+
+        for (int index : this.loopingInputs) {
+            this.demand(index);
+        }
+
+        for (SignalProvider provider : this.runningAfter) {
+            provider.after();
+        }
+    }
+
+    /**
+     * Calculates the provider's output for this round (if it hasn't been already) along with whichever of its inputs
+     * its function demands, depth-first with an explicit stack.  A provider waiting on an input is simply revisited
+     * once the input is done, and asks its function for the same demand again, since nextDemand() only depends upon
+     * the inputs demanded so far
+     */
+    private void demand(int root) {
+        int stamp = this.stamp;
+        int[] evaluated = this.evaluated;
+        boolean[] constant = this.constant;
+        if (evaluated[root] == stamp || constant[root]) return;
+
+        short[] signals = this.signals;
+        short[] scratch = this.scratch;
+        int[] pending = this.pending;
+        int top = 0;
+        pending[top++] = root;
+
+        while (top > 0) {
+            int index = pending[top - 1];
+
+            int alias = this.aliases[index];
+            if (alias != -1) {
+                if (evaluated[alias] != stamp) {
+                    pending[top++] = alias;
+                    continue;
+                }
+                ((CachingProvider)this.providers[index]).setCachedOutput(signals[index] = signals[alias]);
+                evaluated[index] = stamp;
+                top--;
+                continue;
+            }
+
+            NeuralFunction function = this.functions[index];
+            if (function == null) { // shouldn't happen, but the object graph can always calculate it
+                signals[index] = this.providers[index].getOutput();
+                evaluated[index] = stamp;
+                top--;
+                continue;
+            }
+
+            int[] inputs = this.inputs[index];
+            int offset = this.scratchOffsets[index];
+            int step = this.steps[index];
+            int demanded;
+
+            while ((demanded = function.nextDemand(scratch, offset, inputs.length, step)) != NeuralFunction.NO_DEMAND) {
+                int input = inputs[demanded];
+                if (evaluated[input] != stamp && !constant[input]) break;
+
+                scratch[offset + demanded] = signals[input];
+                step++;
+            }
+
+            if (demanded != NeuralFunction.NO_DEMAND) {
+                this.steps[index] = step;
+                pending[top++] = inputs[demanded];
+                continue;
+            }
+
+            this.steps[index] = 0;
+            short output = function.calcOutput(scratch, offset, inputs.length);
+            ((CachingProvider)this.providers[index]).setCachedOutput(signals[index] = output);
+            evaluated[index] = stamp;
+            top--;
+        }
+    }
+
+    private void runCompiled(CompiledEvaluator compiled) {
+        SensorNode<?, ?>[] sensors = this.sensors;
+        short[] sensorInputs = this.sensorInputs;
+
+        for (int i = 0; i < sensors.length; i++) {
+            sensorInputs[i] = sensors[i].sense();
+        }
+
+        compiled.evaluate(sensorInputs, this.decisionWeights);
+    }
+
+    private void verifyCompiled(CompiledEvaluator compiled) {
+        this.runCompiled(compiled);
+
+        for (int d = 0; d < this.decisionInputs.length; d++) {
+            short interpreted = this.signals[this.decisionInputs[d]];
+            if (this.decisionWeights[d] == interpreted) continue;
+
+            System.err.println("Compiled evaluator mismatch for " + this.decisionNodes.get(d) + " (compiled: "
+                    + this.decisionWeights[d] + ", interpreted: " + interpreted
+                    + ").  Falling back to interpreted ExecutionPlan");
+
+            this.compiled = null;
+            return;
+        }
+    }
+
+    public int size() {
+        return this.providers.length;
+    }
+
+    /**
+     * @return the index of the provider in this plan, or -1 if it is not part of the plan
+     */
+    public int indexOf(SignalProvider provider) {
+        Integer index = this.indexes.get(provider);
+        return index != null ? index : -1;
+    }
+
+    public int sensorCount() {
+        return this.sensors.length;
+    }
+
+    public SensorNode<?, ?> getSensor(int sensorIndex) {
+        return this.sensors[sensorIndex];
+    }
+
+    public SignalProvider getProvider(int index) {
+        return this.providers[index];
+    }
+
+    public int[] getInputIndexes(int index) {
+        return this.inputs[index];
+    }
+
+    /**
+     * @return the provider's output from the most recent round.  Only kept up to date for providers which can
+     * influence a decision node (and in lazy mode, only for those which were actually needed)
+     */
+    public short getSignal(int index) {
+        return this.signals[index];
+    }
+
+    public boolean isConstant(int index) {
+        return this.constant[index];
+    }
+
+    /**
+     * @return the index of the earlier provider which this one duplicates, or -1 if it isn't a duplicate
+     */
+    public int getAlias(int index) {
+        return this.aliases[index];
+    }
+
+    /**
+     * @return how many providers are run each round by the interpreted runRound(), after folding constants and
+     * skipping those which cannot influence a decision
+     */
+    public int runningCount() {
+        return this.running.length;
+    }
+
+    public int decisionCount() {
+        return this.decisionInputs.length;
+    }
+
+    /**
+     * @param decisionIndex position of the decision node in the NeuralNet's getDecisionNodes() list
+     * @return index into the signals array of the decision node's input, or -1 if it has no input
+     */
+    public int getDecisionInputIndex(int decisionIndex) {
+        return this.decisionInputs[decisionIndex];
+    }
+
+    /**
+     * @param decisionIndex position of the decision node in the NeuralNet's getDecisionNodes() list
+     * @return the weight of the decision node from the most recently run round
+     */
+    public short getDecisionWeight(int decisionIndex) {
+        if (this.compiled != null) return this.decisionWeights[decisionIndex];
+
+        int index = this.decisionInputs[decisionIndex];
+        if (index == -1) return this.decisionNodes.get(decisionIndex).getWeight();
+        return this.signals[index];
+    }
+
+    /**
+     * @return the weight of the decision node from the most recently run round
+     * @throws IllegalArgumentException if the decision node does not belong to this plan's net
+     */
+    public short getDecisionWeight(DecisionNode<?, ?> node) throws IllegalArgumentException {
+        for (int d = 0; d < this.decisionInputs.length; d++) {
+            if (this.decisionNodes.get(d) == node) return this.getDecisionWeight(d);
+        }
+        throw new IllegalArgumentException();
+    }
+}
@@ -0,0 +1,143 @@
+package neuralNet.network;
+
+import static neuralNet.util.Util.*;
+
+/**
+ * The data-parallel parts of BatchEvaluator's operations, applied across the lanes (i.e. independent sensed
+ * objects) of a struct-of-arrays signals table, where signals[provider][lane].  Only lanes whose active flag is set
+ * are read or written.  All arrays must be at least BatchEvaluator.LANE_PADDING-aligned in length, with the padding
+ * lanes inactive.
+ *
+ * The kernels only do the exact, order-preserving arithmetic of each function (integer sums, double products and
+ * weighted sums accumulated in input order, min/max, comparisons).  The final rounding/clipping back into a short is
+ * left to the caller, so that every lane is bit-identical to the scalar NeuralFunction.
+ */
+interface LaneKernels {
+    /**
+     * The Vector API implementation when the jdk.incubator.vector module is available (e.g. the JVM was started with
+     * --add-modules jdk.incubator.vector) and the preferred vector shape is wide enough, otherwise plain loops
+     */
+    LaneKernels INSTANCE = load();
+
+    private static LaneKernels load() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (LaneKernels) Class.forName("neuralNet.network.VectorLaneKernels")
+                        .getDeclaredConstructor().newInstance();
+
+            } catch (ReflectiveOperationException | LinkageError | IllegalArgumentException e) {
+                // fall through to the scalar kernels
+            }
+        }
+        return new Scalar();
+    }
+
+    enum Comparison { GREATER_THAN, GREATER_THAN_OR_EQUAL_TO, LESS_THAN, LESS_THAN_OR_EQUAL_TO }
+
+    /**
+     * out[lane] = sum of signals[input][lane] for each input, as an int
+     */
+    void sum(short[][] signals, int[] inputs, int[] out, boolean[] active, int lanes);
+
+    /**
+     * out[lane] = sum of (signals[inputs[i]][lane] * weights[i]), accumulated in input order
+     */
+    void weightedSum(short[][] signals, int[] inputs, double[] weights, double[] out, boolean[] active, int lanes);
+
+    /**
+     * out[lane] = product of ((signals[input][lane] + ZEROIZE) / MAX_PLUS_ONE), accumulated in input order
+     */
+    void normalizedProduct(short[][] signals, int[] inputs, double[] out, boolean[] active, int lanes);
+
+    void max(short[][] signals, int[] inputs, short[] out, boolean[] active, int lanes);
+
+    void min(short[][] signals, int[] inputs, short[] out, boolean[] active, int lanes);
+
+    /**
+     * out[lane] = Short.MAX_VALUE if (a[lane] comparison b[lane]) holds, otherwise Short.MIN_VALUE
+     */
+    void compare(short[] a, short[] b, Comparison comparison, short[] out, boolean[] active, int lanes);
+
+
+    final class Scalar implements LaneKernels {
+        @Override
+        public void sum(short[][] signals, int[] inputs, int[] out, boolean[] active, int lanes) {
+            for (int lane = 0; lane < lanes; lane++) {
+                if (!active[lane]) continue;
+                int sum = 0;
+                for (int input : inputs) {
+                    sum += signals[input][lane];
+                }
+                out[lane] = sum;
+            }
+        }
+
+        @Override
+        public void weightedSum(short[][] signals, int[] inputs, double[] weights, double[] out,
+                                boolean[] active, int lanes) {
+
+            for (int lane = 0; lane < lanes; lane++) {
+                if (!active[lane]) continue;
+                double sum = 0;
+                for (int i = 0; i < inputs.length; i++) {
+                    sum += signals[inputs[i]][lane] * weights[i];
+                }
+                out[lane] = sum;
+            }
+        }
+
+        @Override
+        public void normalizedProduct(short[][] signals, int[] inputs, double[] out, boolean[] active, int lanes) {
+            for (int lane = 0; lane < lanes; lane++) {
+                if (!active[lane]) continue;
+                double product = 1;
+                for (int input : inputs) {
+                    product *= (signals[input][lane] + ZEROIZE) / MAX_PLUS_ONE;
+                }
+                out[lane] = product;
+            }
+        }
+
+        @Override
+        public void max(short[][] signals, int[] inputs, short[] out, boolean[] active, int lanes) {
+            for (int lane = 0; lane < lanes; lane++) {
+                if (!active[lane]) continue;
+                short max = signals[inputs[0]][lane];
+                for (int i = 1; i < inputs.length; i++) {
+                    short val = signals[inputs[i]][lane];
+                    if (val > max) max = val;
+                }
+                out[lane] = max;
+            }
+        }
+
+        @Override
+        public void min(short[][] signals, int[] inputs, short[] out, boolean[] active, int lanes) {
+            for (int lane = 0; lane < lanes; lane++) {
+                if (!active[lane]) continue;
+                short min = signals[inputs[0]][lane];
+                for (int i = 1; i < inputs.length; i++) {
+                    short val = signals[inputs[i]][lane];
+                    if (val < min) min = val;
+                }
+                out[lane] = min;
+            }
+        }
+
+        @Override
+        public void compare(short[] a, short[] b, Comparison comparison, short[] out, boolean[] active, int lanes) {
+            for (int lane = 0; lane < lanes; lane++) {
+                if (!active[lane]) continue;
+                boolean result;
+                switch (comparison) {
+                    case GREATER_THAN: result = a[lane] > b[lane]; break;
+                    case GREATER_THAN_OR_EQUAL_TO: result = a[lane] >= b[lane]; break;
+                    case LESS_THAN: result = a[lane] < b[lane]; break;
+                    case LESS_THAN_OR_EQUAL_TO: result = a[lane] <= b[lane]; break;
+                    default: throw new IllegalStateException();
+                }
+                out[lane] = result ? Short.MAX_VALUE : Short.MIN_VALUE;
+            }
+        }
+    }
+}
@@ -56,6 +56,50 @@ public abstract class NeuralNet<S extends Sensable<S>,
     private transient long round = 0;
 
     private transient Long hashCache = null;
+    private transient ExecutionPlan plan;
+
+    /**
+     * Arrays of the providers which actually do any work in before(), after() and reset(), so that those don't
+     * iterate (and expunge) the weak providers set.  Like the ExecutionPlan, they are rebuilt lazily after the
+     * providers set is re-traced
+     */
+    private transient Lifecycle lifecycle;
+
+    private record Lifecycle(SignalProvider[] before, SignalProvider[] after, SignalProvider[] reset) { }
+
+    private static final int BEFORE = 0b001, AFTER = 0b010, RESET = 0b100;
+
+    /**
+     * Which of the lifecycle hooks each provider class overrides with something other than a no-op.  The no-op
+     * implementations are SignalProvider's defaults, and FixedValueProvider's before() and reset()
+     */
+    private static final ClassValue<Integer> LIFECYCLE_HOOKS = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            int hooks = 0;
+            if (overridesHook(type, "before")) hooks |= BEFORE;
+            if (overridesHook(type, "after")) hooks |= AFTER;
+            if (overridesHook(type, "reset")) hooks |= RESET;
+            return hooks;
+        }
+    };
+
+    private static boolean overridesHook(Class<?> type, String hook) {
+        try {
+            Class<?> declaringClass = type.getMethod(hook).getDeclaringClass();
+            return declaringClass != SignalProvider.class && declaringClass != FixedValueProvider.class;
+
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @return false if the provider's after() is known to be a no-op
+     */
+    static boolean needsAfter(SignalProvider provider) {
+        return (LIFECYCLE_HOOKS.get(provider.getClass()) & AFTER) != 0;
+    }
 
     @Serial
     private Object writeReplace() throws ObjectStreamException {
@@ -252,7 +296,9 @@ public abstract class NeuralNet<S extends Sensable<S>,
 
     /**
      * Makes clones of all the neurons from the cloned NeuralNet, mapping the old neurons to the new ones,
-     * and then replaces the inputs and consumers of each copied neuron using the map of old to new.
+     * and then replaces the inputs and consumers of each copied neuron using the map of old to new.  Unless there
+     * are substitutions, each clone also inherits the neural hash of its original, so that hashing a mutant only
+     * recalculates the neurons downstream of whatever the mutation changed (see CachingNeuron.invalidateNeuralHashes)
      *
      * IMPORTANT: It is CRITICAL to ensure that the NeuralNet being cloned has valid neuron sets
      * (providers and consumers) BEFORE undertaking the cloneNeurons operation.  See neuralNet.traceNeurons().
@@ -268,17 +314,20 @@ public abstract class NeuralNet<S extends Sensable<S>,
      *
      * @param cloneFrom the neural net we are cloning
      * @param providersMap any special signalProviders substitutions to use.  NOTE THAT ANY PASSED MAP WILL BE MUTATED.
-     *                      If null, an empty HashMap will be constructed and used to map neurons from the old
+     *                      If null, an empty IdentityHashMap will be constructed and used to map neurons from the old
      *                      net to cloned copies for the new one
      *
      * @param consumersMap any special signalConsumers substitutions to use.  NOTE THAT ANY PASSED MAP WILL BE MUTATED.
-     *                      If null, an empty HashMap will be constructed and used to map neurons from the old
+     *                      If null, an empty IdentityHashMap will be constructed and used to map neurons from the old
      *                      net to cloned copies for the new one
      */
     protected void cloneNeurons(NeuralNet cloneFrom,
                                 Map<SignalProvider, SignalProvider> providersMap,
                                 Map<SignalConsumer, SignalConsumer> consumersMap) {
         //cloneFrom.validateNeuronsSet();
+        // with substitutions, the hashes of the original's neurons don't necessarily apply to their clones
+        boolean inheritHashes = providersMap == null && consumersMap == null;
+
         if (providersMap != null) {
             if (consumersMap != null) Util.syncMaps(providersMap, consumersMap);
             else consumersMap = Util.convertProvidersMap(providersMap);
@@ -316,6 +365,7 @@ public abstract class NeuralNet<S extends Sensable<S>,
 
         this.providers.addAll(providers.values());
         this.consumers.addAll(consumers.values());
+        this.lifecycle = null;
 
         for (SignalProvider provider : this.providers) {
             provider.replaceConsumers(consumers);
@@ -327,6 +377,16 @@ public abstract class NeuralNet<S extends Sensable<S>,
         for (SignalConsumer consumer : this.consumers) {
             consumer.replaceInputs(providers);
         }
+
+        if (inheritHashes) {
+            for (Map.Entry<SignalProvider, SignalProvider> entry : providers.entrySet()) {
+                if (!(entry.getKey() instanceof SensorNode)) entry.getValue().inheritHashCache(entry.getKey());
+            }
+        }
+
+        // ranks for CachingNeuron's checks against circular references (see NeuralOrder)
+        if (inheritHashes) NeuralOrder.inherit(providers);
+        else NeuralOrder.rank(this.providers);
     }
 
     @Override
@@ -354,14 +414,58 @@ public abstract class NeuralNet<S extends Sensable<S>,
         return this.round;
     }
 
-    public void before() {
+    /**
+     * Runs the round through the compiled ExecutionPlan, rather than the default
+     * before() / sense() / weighDecisions() / after() sequence from DecisionProvider
+     */
+    @Override
+    public void runRound() {
+        this.getExecutionPlan().runRound();
+        this.round++;
+    }
+
+    /**
+     * @return the compiled ExecutionPlan for this net, compiling it first if the net has been (re-)traced since
+     * the last time it was compiled
+     */
+    public ExecutionPlan getExecutionPlan() {
+        ExecutionPlan plan = this.plan;
+        if (plan != null) return plan;
+        return this.compileExecutionPlan();
+    }
+
+    private synchronized ExecutionPlan compileExecutionPlan() {
+        if (this.plan == null) this.plan = new ExecutionPlan(this);
+        return this.plan;
+    }
+
+    private Lifecycle getLifecycle() {
+        Lifecycle lifecycle = this.lifecycle;
+        if (lifecycle != null) return lifecycle;
+
+        List<SignalProvider> before = new ArrayList<>();
+        List<SignalProvider> after = new ArrayList<>();
+        List<SignalProvider> reset = new ArrayList<>();
+
         for (SignalProvider neuron : this.providers) {
+            int hooks = LIFECYCLE_HOOKS.get(neuron.getClass());
+            if ((hooks & BEFORE) != 0) before.add(neuron);
+            if ((hooks & AFTER) != 0) after.add(neuron);
+            if ((hooks & RESET) != 0) reset.add(neuron);
+        }
+
+        return this.lifecycle = new Lifecycle(before.toArray(new SignalProvider[0]),
+                after.toArray(new SignalProvider[0]), reset.toArray(new SignalProvider[0]));
+    }
+
+    public void before() {
+        for (SignalProvider neuron : this.getLifecycle().before) {
             neuron.before();
         }
     }
 
     public void after() {
-        for (SignalProvider neuron : this.providers) {
+        for (SignalProvider neuron : this.getLifecycle().after) {
             neuron.after();
         }
         this.round++;
@@ -369,9 +473,25 @@ public abstract class NeuralNet<S extends Sensable<S>,
 
     public void reset() {
         this.round = 0;
-        for (SignalProvider neuron : this.providers) {
+        for (SignalProvider neuron : this.getLifecycle().reset) {
             neuron.reset();
         }
+        ExecutionPlan plan = this.plan;
+        if (plan != null) plan.reset();
+    }
+
+    /**
+     * Releases the runtime state of a net which is no longer being evaluated, e.g. once its fitness has been recorded
+     * and it is only kept in a NetTracker: the ExecutionPlan, the lifecycle arrays and the memory neurons' buffers
+     * (see SignalProvider.clearRuntimeState()).  They are all rebuilt from a reset state the next time the net runs
+     */
+    public synchronized void clearRuntimeState() {
+        this.round = 0;
+        this.plan = null;
+        this.lifecycle = null;
+        for (SignalProvider provider : this.providers) {
+            provider.clearRuntimeState();
+        }
     }
 
     @Override
@@ -382,131 +502,92 @@ public abstract class NeuralNet<S extends Sensable<S>,
     /**
      * IMPORTANT: MUST BE RUN AFTER MUTATING A NETWORK, BEFORE THE NETWORK IS USED OR CLONED --
      * Clears the set of neurons and repopulates it with all SignalProviders which are reachable from
-     * the sensors and decision nodes, by tracing inputs and consumers recursively.
+     * the sensors and decision nodes, by tracing inputs and consumers.  Any compiled ExecutionPlan is
+     * discarded, and will be re-compiled from the new neuron sets on the next round.
+     *
+     * The tracing uses explicit worklists and identity-based sets rather than recursion, so its cost is linear in
+     * the size of the net regardless of how deep the net is
      *
      * @return 'this', for chaining
      *
      */
     public synchronized N traceNeuronsSet() {
         this.hashCache = null;
+        this.plan = null;
+        this.lifecycle = null;
         this.providers.clear();
         this.consumers.clear();
 
-        Set<SignalProvider> knownProviders = new HashSet<>(this.getSensors());
-        Set<SignalConsumer> knownConsumers = new HashSet<>(this.getDecisionNodes());
-
-        knownProviders.forEach(node -> knownConsumers.addAll(node.getConsumers()));
-        knownConsumers.forEach(node -> knownProviders.addAll(node.getInputs()));
-
-        Set<SignalProvider> providersInvoked = new HashSet<>();
-        Set<SignalConsumer> consumersInvoked = new HashSet<>();
+        Tracing tracing = new Tracing();
 
-        while (runTracingLoops(knownProviders, knownConsumers, providersInvoked, consumersInvoked)) {
-            knownConsumers.addAll(consumersInvoked);
-            knownProviders.addAll(providersInvoked);
-
-            providersInvoked.retainAll(this.providers);
-            consumersInvoked.retainAll(this.consumers);
+        for (SensorNode<S, N> sensor : this.getSensors()) {
+            tracing.traceProvider(sensor);
         }
-
-        if (!(Objects.equals(providersInvoked, this.providers) && Objects.equals(consumersInvoked, this.consumers))) {
-            throw new IllegalStateException();
+        for (DecisionNode<N, C> decision : this.getDecisionNodes()) {
+            tracing.traceConsumer(decision);
         }
 
-        return (N) this;
-    }
-
-    private boolean runTracingLoops(Set<SignalProvider> knownProviders,
-                                    Set<SignalConsumer> knownConsumers,
-                                    Set<SignalProvider> providersInvoked,
-                                    Set<SignalConsumer> consumersInvoked) {
-
-        boolean failed = false;
-
-        for (SignalProvider provider : knownProviders) try {
-            this.traceProvidersConsumers(provider, providersInvoked, consumersInvoked);
+        while (!(tracing.providersQueue.isEmpty() && tracing.consumersQueue.isEmpty())) {
+            while (!tracing.consumersQueue.isEmpty()) {
+                for (SignalProvider provider : tracing.consumersQueue.pop().getInputs()) {
+                    tracing.traceProvider(provider);
+                }
+            }
 
-        } catch (StackOverflowError e) {
-            failed = true;
-            System.err.println("\tRecoverable error:"); // ...see explanation in cloneNeurons()
-            System.err.println(e);
-            // if this happens, just continue iterating on knownProviders/knownConsumers, and then return false so
-            // repeat the entire process will be repeated.  As the 'known' and 'invoked' sets are populated,
-            // the two tracing functions will not need to recurse as deeply the next time around
+            while (!tracing.providersQueue.isEmpty()) {
+                for (SignalConsumer consumer : tracing.providersQueue.pop().getConsumers()) {
+                    tracing.traceConsumer(consumer);
+                }
+            }
         }
 
-        for (SignalConsumer consumer : knownConsumers) try {
-            this.traceConsumersInputs(consumer, providersInvoked, consumersInvoked);
-
-        } catch (StackOverflowError e) {
-            failed = true;
-            System.err.println("\tRecoverable error:"); // ...see explanation in cloneNeurons()
-            System.err.println(e);
-        }
+        this.providers.addAll(tracing.providers);
+        this.consumers.addAll(tracing.consumers);
 
-        return failed;
+        return (N) this;
     }
 
-    private void traceConsumersInputs(SignalConsumer neuron,
-                                      Set<SignalProvider> providersInvoked,
-                                      Set<SignalConsumer> consumersInvoked)
-            throws StackOverflowError {
-
-        if (consumersInvoked.contains(neuron)) return;
-        if (neuron instanceof DecisionNode decision && decision.getDecisionProvider() != this)
-            throw new IllegalStateException();
-
-        // We assume that all members of a complex neuron share the same inputs list, and therefore
-        // this method only needs to be run once for the entire complex.
-        // Note that this method also ensures the other method is invoked on every member (see the end)
-        if (neuron instanceof ComplexNeuronMember complex) consumersInvoked.addAll(complex.getMembers());
-        else consumersInvoked.add(neuron);
-
-        for (SignalProvider provider : neuron.getInputs()) {
-            if (provider instanceof SignalConsumer consumer) {
-                this.traceConsumersInputs(consumer, providersInvoked, consumersInvoked);
-            }
-
-            this.traceProvidersConsumers(provider, providersInvoked, consumersInvoked);
-        }
-
-        if (neuron instanceof ComplexNeuronMember complex) {
-            for (ComplexNeuronMember member : complex.getMembers()) {
-                traceProvidersConsumers(member, providersInvoked, consumersInvoked);
+    /**
+     * Worklists for traceNeuronsSet().  Every neuron which is both a provider and a consumer is traced both ways,
+     * i.e. its inputs AND its consumers are followed
+     */
+    private class Tracing {
+        private final Set<SignalProvider> providers = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<SignalConsumer> consumers = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Deque<SignalProvider> providersQueue = new ArrayDeque<>();
+        private final Deque<SignalConsumer> consumersQueue = new ArrayDeque<>();
+
+        private void traceConsumer(SignalConsumer neuron) {
+            if (this.consumers.contains(neuron)) return;
+            if (neuron instanceof DecisionNode decision && decision.getDecisionProvider() != NeuralNet.this)
+                throw new IllegalStateException();
+
+            if (neuron instanceof ComplexNeuronMember complex) {
+                // We assume that all members of a complex neuron share the same inputs list, and therefore
+                // only this member's inputs need to be traced for the entire complex.  Every member is still
+                // traced as a provider though
+                List<ComplexNeuronMember> members = complex.getMembers();
+                this.consumers.addAll(members);
+                this.consumersQueue.push(neuron);
+                for (ComplexNeuronMember member : members) {
+                    this.traceProvider(member);
+                }
+                return;
             }
-            this.consumers.addAll(complex.getMembers());
 
-        } else {
             this.consumers.add(neuron);
+            this.consumersQueue.push(neuron);
+            if (neuron instanceof SignalProvider provider) this.traceProvider(provider);
         }
-    }
-
-    private void traceProvidersConsumers(SignalProvider neuron,
-                                         Set<SignalProvider> providersInvoked,
-                                         Set<SignalConsumer> consumersInvoked)
-            throws StackOverflowError {
 
-        if (providersInvoked.contains(neuron)) return;
-        if (neuron instanceof SensorNode sensor && sensor.getDecisionProvider() != this)
-            throw new IllegalStateException();
+        private void traceProvider(SignalProvider neuron) {
+            if (!this.providers.add(neuron)) return;
+            if (neuron instanceof SensorNode sensor && sensor.getDecisionProvider() != NeuralNet.this)
+                throw new IllegalStateException();
 
-
-        providersInvoked.add(neuron);
-
-        if (neuron instanceof ComplexNeuronMember complex) {
-            this.traceConsumersInputs(complex, providersInvoked, consumersInvoked);
-            // traceConsumersInputs (other method) ensures that each member has this method invoked on it
-        }
-
-        for (SignalConsumer consumer : neuron.getConsumers()) {
-            this.traceConsumersInputs(consumer, providersInvoked, consumersInvoked);
-
-            if (consumer instanceof SignalProvider provider) {
-                this.traceProvidersConsumers(provider, providersInvoked, consumersInvoked);
-            }
+            this.providersQueue.push(neuron);
+            if (neuron instanceof SignalConsumer consumer) this.traceConsumer(consumer);
         }
-
-        this.providers.add(neuron);
     }
 
 
@@ -529,7 +610,7 @@ public abstract class NeuralNet<S extends Sensable<S>,
     private Map<SignalProvider, SignalProvider> populateSensorCloneMap(NeuralNet clonedFrom,
                                                                     Map<SignalProvider, SignalProvider> usingMap) {
 
-        if (usingMap == null) usingMap = new HashMap<>(((NeuralNet<S, N, C>)clonedFrom).providers.size());
+        if (usingMap == null) usingMap = new IdentityHashMap<>(clonedFrom.getProviders().size());
 
         for (Iterator<? extends SensorNode<S, N>>
                 origIt = clonedFrom.getSensors().listIterator(),
@@ -561,7 +642,7 @@ public abstract class NeuralNet<S extends Sensable<S>,
      */
     private Map<SignalConsumer, SignalConsumer> populateDecisionCloneMap(NeuralNet clonedFrom,
                                                                      Map<SignalConsumer, SignalConsumer> usingMap) {
-        if (usingMap == null) usingMap = new HashMap<>();
+        if (usingMap == null) usingMap = new IdentityHashMap<>(clonedFrom.getDecisionNodes().size());
 
         for (ListIterator<? extends DecisionNode>
                 origIt = clonedFrom.getDecisionNodes().listIterator(),
@@ -652,6 +733,17 @@ public abstract class NeuralNet<S extends Sensable<S>,
         @Override
         public abstract int getDecisionId();
 
+        /**
+         * When the net is running on a compiled evaluator, the input providers are not evaluated, so the weight
+         * comes from the ExecutionPlan instead
+         */
+        @Override
+        public short getWeight() {
+            ExecutionPlan plan = NeuralNet.this.plan;
+            if (plan != null && plan.isCompiled()) return plan.getDecisionWeight(this);
+            return DecisionNode.super.getWeight();
+        }
+
         @Override
         public List<SignalProvider> getInputs() {
             return this.inputsView;
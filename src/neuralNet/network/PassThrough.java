@@ -0,0 +1,16 @@
+package neuralNet.network;
+
+import neuralNet.neuron.*;
+
+/**
+ * A provider whose output is always exactly the current output of another provider, e.g. the members of a
+ * ComplexNeuron (the inputs of its internal decision nodes) and its internal sensors (the complex's own inputs).
+ * ExecutionPlan treats it as a duplicate of that provider and follows it into the nested net, so that a complex's
+ * internal neurons are flattened into the outer net's evaluation order rather than pulled through the object graph.
+ */
+public interface PassThrough extends SignalProvider {
+    /**
+     * @return the provider whose output this passes through, or null if there currently isn't one
+     */
+    public SignalProvider getPassThroughSource();
+}
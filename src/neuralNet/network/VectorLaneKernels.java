@@ -0,0 +1,129 @@
+package neuralNet.network;
+
+import jdk.incubator.vector.*;
+
+import static neuralNet.util.Util.*;
+
+/**
+ * LaneKernels using the (incubating) Vector API.  Short, int and double vectors are all used with the same number of
+ * lanes, so that a single active-lane mask can be cast between them.  This class is only ever loaded reflectively by
+ * LaneKernels.load(), after checking that the jdk.incubator.vector module is present.  If the preferred shape is too
+ * narrow for matching short vectors, the static initializer throws and the scalar kernels are used instead
+ */
+final class VectorLaneKernels implements LaneKernels {
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> I =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(D.vectorBitSize() / 2));
+    private static final VectorSpecies<Short> S =
+            VectorSpecies.of(short.class, VectorShape.forBitSize(D.vectorBitSize() / 4));
+    private static final int L = D.length();
+
+    static {
+        if (I.length() != L || S.length() != L || BatchEvaluator.LANE_PADDING % L != 0) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static ShortVector load(short[] signals, int base, VectorMask<Short> mask) {
+        return ShortVector.fromArray(S, signals, base, mask);
+    }
+
+    private static DoubleVector loadDouble(short[] signals, int base, VectorMask<Short> mask) {
+        return (DoubleVector) load(signals, base, mask).convertShape(VectorOperators.S2D, D, 0);
+    }
+
+    @Override
+    public void sum(short[][] signals, int[] inputs, int[] out, boolean[] active, int lanes) {
+        for (int base = 0; base < lanes; base += L) {
+            VectorMask<Short> mask = VectorMask.fromArray(S, active, base);
+            if (!mask.anyTrue()) continue;
+
+            IntVector sum = IntVector.zero(I);
+            for (int input : inputs) {
+                sum = sum.add((IntVector) load(signals[input], base, mask).convertShape(VectorOperators.S2I, I, 0));
+            }
+            sum.intoArray(out, base, mask.cast(I));
+        }
+    }
+
+    @Override
+    public void weightedSum(short[][] signals, int[] inputs, double[] weights, double[] out,
+                            boolean[] active, int lanes) {
+
+        for (int base = 0; base < lanes; base += L) {
+            VectorMask<Short> mask = VectorMask.fromArray(S, active, base);
+            if (!mask.anyTrue()) continue;
+
+            // separate mul and add (rather than fma) so the rounding matches WeightedAverage exactly
+            DoubleVector sum = DoubleVector.zero(D);
+            for (int i = 0; i < inputs.length; i++) {
+                sum = sum.add(loadDouble(signals[inputs[i]], base, mask).mul(weights[i]));
+            }
+            sum.intoArray(out, base, mask.cast(D));
+        }
+    }
+
+    @Override
+    public void normalizedProduct(short[][] signals, int[] inputs, double[] out, boolean[] active, int lanes) {
+        for (int base = 0; base < lanes; base += L) {
+            VectorMask<Short> mask = VectorMask.fromArray(S, active, base);
+            if (!mask.anyTrue()) continue;
+
+            DoubleVector product = DoubleVector.broadcast(D, 1);
+            for (int input : inputs) {
+                product = product.mul(loadDouble(signals[input], base, mask).add(ZEROIZE).div(MAX_PLUS_ONE));
+            }
+            product.intoArray(out, base, mask.cast(D));
+        }
+    }
+
+    @Override
+    public void max(short[][] signals, int[] inputs, short[] out, boolean[] active, int lanes) {
+        for (int base = 0; base < lanes; base += L) {
+            VectorMask<Short> mask = VectorMask.fromArray(S, active, base);
+            if (!mask.anyTrue()) continue;
+
+            ShortVector max = load(signals[inputs[0]], base, mask);
+            for (int i = 1; i < inputs.length; i++) {
+                max = max.max(load(signals[inputs[i]], base, mask));
+            }
+            max.intoArray(out, base, mask);
+        }
+    }
+
+    @Override
+    public void min(short[][] signals, int[] inputs, short[] out, boolean[] active, int lanes) {
+        for (int base = 0; base < lanes; base += L) {
+            VectorMask<Short> mask = VectorMask.fromArray(S, active, base);
+            if (!mask.anyTrue()) continue;
+
+            ShortVector min = load(signals[inputs[0]], base, mask);
+            for (int i = 1; i < inputs.length; i++) {
+                min = min.min(load(signals[inputs[i]], base, mask));
+            }
+            min.intoArray(out, base, mask);
+        }
+    }
+
+    @Override
+    public void compare(short[] a, short[] b, Comparison comparison, short[] out, boolean[] active, int lanes) {
+        VectorOperators.Comparison op;
+        switch (comparison) {
+            case GREATER_THAN: op = VectorOperators.GT; break;
+            case GREATER_THAN_OR_EQUAL_TO: op = VectorOperators.GE; break;
+            case LESS_THAN: op = VectorOperators.LT; break;
+            case LESS_THAN_OR_EQUAL_TO: op = VectorOperators.LE; break;
+            default: throw new IllegalStateException();
+        }
+
+        ShortVector min = ShortVector.broadcast(S, Short.MIN_VALUE);
+
+        for (int base = 0; base < lanes; base += L) {
+            VectorMask<Short> mask = VectorMask.fromArray(S, active, base);
+            if (!mask.anyTrue()) continue;
+
+            VectorMask<Short> result = load(a, base, mask).compare(op, load(b, base, mask));
+            min.blend(Short.MAX_VALUE, result).intoArray(out, base, mask);
+        }
+    }
+}
@@ -8,9 +8,9 @@ public abstract class CachingNeuron extends CachingProvider implements Neuron {
 
     protected final ArrayList<SignalProvider> inputs;
     private transient List<SignalProvider> inputsView;
-    private transient Map<LoopingNeuron, Long> hashesFor;
-    protected transient Set<LoopingNeuron> noLoops;
-    protected transient Set<LoopingNeuron> loops;
+    transient NeuralLoop loop; // null until traced, then NeuralLoop.NONE if this isn't part of a loop
+    transient NeuralOrder order; // see NeuralOrder, null if unranked
+    transient int rank;
 
     @Override
     protected Object readResolve() throws ObjectStreamException {
@@ -59,53 +59,70 @@ public abstract class CachingNeuron extends CachingProvider implements Neuron {
 
     protected abstract short calcOutput(List<SignalProvider> inputs);
 
-    protected long calcNeuralHash() {
-        return this.calcNeuralHashFor(null);
-    }
-
-    protected abstract long calcNeuralHashFor(LoopingNeuron looper);
+    /**
+     * Calculates this neuron's hash from the (already cached) hashes of its inputs.  See NeuralLoop for how the
+     * hashes of neurons which are part of a feedback loop are derived from this
+     */
+    protected abstract long calcNeuralHash();
 
     @Override
-    public boolean checkForLoops(LoopingNeuron looper) {
-        if (this.noLoops != null && this.noLoops.contains(looper)) return false;
-        if (this.loops != null && this.loops.contains(looper)) return true;
-
-        for (SignalProvider provider : this.inputs) {
-            if (provider.checkForLoops(looper)) {
-                if (this.loops == null) this.loops = new HashSet<>();
-                this.loops.add(looper);
-                return true;
-            }
-        }
+    public long getNeuralHash() {
+        if (this.hashCache == null) NeuralLoop.trace(this);
+        return this.hashCache;
+    }
 
-        if (this.noLoops == null) this.noLoops = new HashSet<>();
-        this.noLoops.add(looper);
-        return false;
+    /**
+     * @return the feedback loop (strongly-connected component) which this neuron is part of, or null if none
+     */
+    public NeuralLoop getLoop() {
+        if (this.loop == null) NeuralLoop.trace(this);
+        return this.loop == NeuralLoop.NONE ? null : this.loop;
     }
 
     @Override
     public void clearHashCache() {
         this.hashCache = null;
-        this.noLoops = null;
-        this.loops = null;
-        //this.checkingForLoops = null;
+        this.loop = null;
     }
 
+    /**
+     * Clears the cached hashes of this neuron and of everything downstream of it, after its inputs have changed.
+     * Upstream providers keep their hashes, so a mutated clone (which inherits its original's hashes, see
+     * NeuralNet.cloneNeurons) only recalculates the hashes of the neurons which the mutation actually affected
+     */
+    protected void invalidateNeuralHashes() {
+        this.clearHashCache();
+        ArrayDeque<CachingNeuron> queue = new ArrayDeque<>();
+        queue.add(this);
+
+        while (!queue.isEmpty()) {
+            for (SignalConsumer consumer : queue.poll().getConsumers()) {
+                // a neuron without a hash can't have anything downstream with one, because a hash is only calculated
+                // after those of all the neuron's inputs, and every neuron given a new input is invalidated here
+                if (consumer instanceof CachingNeuron downstream && downstream.hashCache != null) {
+                    downstream.clearHashCache();
+                    queue.add(downstream);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether NeuralOrder can rank this neuron by its own inputs and consumers.  Neurons which override
+     * traceConsumers() to also trace something else (e.g. ComplexNeuron) must return false, so that the checks for
+     * circular references involving them always trace.  Memory neurons are never ranked in the first place
+     */
+    protected boolean ranksByOwnEdges() {
+        return true;
+    }
 
     @Override
-    public long getNeuralHashFor(LoopingNeuron looper) {
-        if (looper == null) {
-            if (this.hashCache != null) return this.hashCache;
-            else return this.hashCache = calcNeuralHashFor(null);
-        }
-        if (this.hashesFor == null) this.hashesFor = new HashMap<>();
-        else {
-            Long hash = this.hashesFor.get(looper);
-            if (hash != null) return hash;
+    public boolean checkForCircularReferences() {
+        for (SignalProvider provider : this.inputs) {
+            if (provider == null) throw new NullPointerException();
+            if (provider instanceof SignalConsumer && NeuralOrder.createsCircularReference(provider, this)) return true;
         }
-        long hash = this.calcNeuralHashFor(looper);
-        this.hashesFor.put(looper, hash);
-        return hash;
+        return false;
     }
 
     @Override
@@ -152,43 +169,49 @@ public abstract class CachingNeuron extends CachingProvider implements Neuron {
 
         if (this.checkForCircularReferences()) {
             //restore previous state, then throw exception
+            List<SignalProvider> rejected = new ArrayList<>(this.inputs);
             this.inputs.clear();
             this.inputs.addAll(oldInputs);
 
-            this.populateConsumers(oldInputs, this.inputs);
+            this.populateConsumers(oldInputs, rejected);
+            NeuralOrder.invalidate(this); // it may have been re-ranked for some of the rejected inputs
 
             throw new IllegalArgumentException("Illegal circular neural loop!");
         }
+        this.invalidateNeuralHashes();
     }
 
     @Override
     public void addInput(SignalProvider newProvider) {
         this.inputs.add(newProvider);
-        if (newProvider.addConsumer(this) && newProvider instanceof SignalConsumer newConsumer) {
-            if (this.traceConsumers(newConsumer)) {
+        if (newProvider.addConsumer(this) && newProvider instanceof SignalConsumer) {
+            if (NeuralOrder.createsCircularReference(newProvider, this)) {
                 this.inputs.remove(this.inputs.size() - 1);
                 if (!this.inputs.contains(newProvider)) newProvider.removeConsumer(this);
                 throw new IllegalArgumentException("Illegal circular neural loop!");
             }
         }
+        this.invalidateNeuralHashes();
     }
 
     @Override
     public void addInput(int index, SignalProvider newProvider) {
         this.inputs.add(index, newProvider);
-        if (newProvider.addConsumer(this) && newProvider instanceof SignalConsumer newConsumer) {
-            if (this.traceConsumers(newConsumer)) {
+        if (newProvider.addConsumer(this) && newProvider instanceof SignalConsumer) {
+            if (NeuralOrder.createsCircularReference(newProvider, this)) {
                 this.inputs.remove(index);
                 if (!this.inputs.contains(newProvider)) newProvider.removeConsumer(this);
                 throw new IllegalArgumentException("Illegal circular neural loop!");
             }
         }
+        this.invalidateNeuralHashes();
     }
 
     @Override
     public SignalProvider removeInput(int index) {
         SignalProvider old = this.inputs.remove(index);
         if (!this.inputs.contains(old)) old.removeConsumer(this);
+        this.invalidateNeuralHashes();
         return old;
     }
 
@@ -205,6 +228,7 @@ public abstract class CachingNeuron extends CachingProvider implements Neuron {
             }
         }
         removeAll.removeConsumer(this);
+        if (removed) this.invalidateNeuralHashes();
         return removed;
     }
 
@@ -218,17 +242,18 @@ public abstract class CachingNeuron extends CachingProvider implements Neuron {
         SignalProvider old = this.inputs.set(index, newProvider);
         if (!this.inputs.contains(old)) old.removeConsumer(this);
 
-        if (newProvider.addConsumer(this) && newProvider instanceof SignalConsumer consumer) {
+        if (newProvider.addConsumer(this) && newProvider instanceof SignalConsumer) {
             //only do this check if this is actually a new consumer for the provider,
             // and there is a possibility of an infinite loop
 
-            if (this.traceConsumers(consumer)) {
+            if (NeuralOrder.createsCircularReference(newProvider, this)) {
                 this.inputs.set(index, old);
                 old.addConsumer(this);
                 if (!this.inputs.contains(newProvider)) newProvider.removeConsumer(this);
                 throw new IllegalArgumentException("Illegal circular neural loop!");
             }
         }
+        this.invalidateNeuralHashes();
         return old;
     }
 
@@ -258,11 +283,11 @@ public abstract class CachingNeuron extends CachingProvider implements Neuron {
             oldProvider.removeConsumer(this);
         }
 
-        if (newProvider.addConsumer(this) && newProvider instanceof SignalConsumer newConsumer) {
+        if (newProvider.addConsumer(this) && newProvider instanceof SignalConsumer) {
             //only do this check if this is actually a new consumer for the provider,
             // and there is a possibility of an infinite loop
 
-            if (this.traceConsumers(newConsumer)) {
+            if (NeuralOrder.createsCircularReference(newProvider, this)) {
                 //undo everything... then throw exception
                 for (int i = 0; i < replaced.length; i++) {
                     if (replaced[i]) {
@@ -276,6 +301,7 @@ public abstract class CachingNeuron extends CachingProvider implements Neuron {
             }
         }
 
+        this.invalidateNeuralHashes();
         return true;
     }
 
@@ -298,6 +324,7 @@ public abstract class CachingNeuron extends CachingProvider implements Neuron {
             }
             iterator.set(replacement);
         }
+        NeuralOrder.invalidate(this);
     }
 
     @Override
@@ -306,6 +333,7 @@ public abstract class CachingNeuron extends CachingProvider implements Neuron {
             provider.removeConsumer(this);
         }
         this.inputs.clear();
+        this.invalidateNeuralHashes();
     }
 
     /*public abstract long getProviderHash();
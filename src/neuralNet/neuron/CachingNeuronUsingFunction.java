@@ -9,6 +9,12 @@ public class CachingNeuronUsingFunction extends CachingNeuron {
 
     public final NeuralFunction outputFunction;
 
+    /**
+     * Reusable scratch array which the input values are gathered into, for the primitive calcOutput variant.  For a
+     * lazy function, the positions it didn't demand this round are left holding stale values
+     */
+    private transient short[] gathered;
+
     /*
     protected Object readResolve() throws ObjectStreamException {
         return new CachingNeuronUsingFunction(this, (Void)null);
@@ -75,21 +81,41 @@ public class CachingNeuronUsingFunction extends CachingNeuron {
 
     @Override
     protected short calcOutput(List<SignalProvider> inputs) {
-        return this.outputFunction.calcOutput(inputs);
+        int size = inputs.size();
+        short[] gathered = this.gathered;
+        if (gathered == null || gathered.length < size) gathered = this.gathered = new short[size];
+
+        NeuralFunction function = this.outputFunction;
+        if (function.isLazy()) {
+            // only evaluate the inputs which the function actually needs this round (see NeuralFunction.nextDemand)
+            for (int step = 0, index; (index = function.nextDemand(gathered, 0, size, step)) != NeuralFunction.NO_DEMAND;
+                 step++) {
+
+                gathered[index] = inputs.get(index).getOutput();
+            }
+
+        } else {
+            int i = 0;
+            for (SignalProvider input : inputs) {
+                gathered[i++] = input.getOutput();
+            }
+        }
+
+        return function.calcOutput(gathered, 0, size);
     }
 
     @Override
-    public long calcNeuralHashFor(LoopingNeuron looper) {
+    public long calcNeuralHash() {
         long hash = this.outputFunction.getNeuralHash() ^ Long.rotateLeft((long)this.inputs.size(), 27);
         if (this.outputFunction.inputOrderMatters()) {
             int i = 0;
             for (SignalProvider provider: this.inputs) {
-                hash ^= Long.rotateRight(provider.getNeuralHashFor(looper), i += 17);
+                hash ^= Long.rotateRight(provider.getNeuralHash(), i += 17);
             }
 
         } else {
             for (SignalProvider provider : this.inputs) {
-                hash ^= Long.rotateRight(provider.getNeuralHashFor(looper), 17);
+                hash ^= Long.rotateRight(provider.getNeuralHash(), 17);
             }
         }
         return hash;
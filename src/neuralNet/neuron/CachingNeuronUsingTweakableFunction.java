@@ -58,11 +58,6 @@ public class CachingNeuronUsingTweakableFunction extends CachingNeuronUsingFunct
         this.lastTweaked = -1;
     }
 
-    @Override
-    protected short calcOutput(List<SignalProvider> inputs) {
-        return this.outputFunction.calcOutput(inputs);
-    }
-
     @Override
     public CachingNeuronUsingTweakableFunction clone() {
         return new CachingNeuronUsingTweakableFunction(this);
@@ -11,7 +11,15 @@ public abstract class CachingProvider implements SignalProvider {
     private final Set<SignalConsumer> consumers = new SerializableWeakHashSet<>();;
     private transient Set<SignalConsumer> consumersView = ((SerializableWeakHashSet<SignalConsumer>) this.consumers).getView();;
 
-    private transient Short output;
+    /**
+     * Primitive output cache.  Validity is tracked by comparing cacheStamp against the provider's own round
+     * counter, so that invalidating the cache in before() doesn't box or allocate anything.  The stamp is
+     * stored as round + 1, so the default values of the transient fields (e.g. after deserialization or
+     * cloning) always represent an empty cache.
+     */
+    private transient short output;
+    private transient int round;
+    private transient int cacheStamp;
     protected transient Long hashCache;
 
     protected Object readResolve() throws ObjectStreamException {
@@ -38,23 +46,38 @@ public abstract class CachingProvider implements SignalProvider {
 
     @Override
     public void before() {
-        this.output = null;
+        this.round++;
     }
 
     @Override
     public void reset() {
-        this.output = null;
+        this.round++;
+    }
+
+    protected final boolean isCached() {
+        return this.cacheStamp == this.round + 1;
     }
 
-    protected final Short getCache() { return this.output; }
+    protected final Short getCache() { return this.isCached() ? this.output : null; }
     protected final void setCache(short value) {
         this.output = value;
+        this.cacheStamp = this.round + 1;
+    }
+
+    /**
+     * Populates the cache for the current round with an output which was calculated elsewhere, e.g. by ExecutionPlan
+     * from an identical provider in the same net, so that getOutput() doesn't recalculate it
+     */
+    public final void setCachedOutput(short output) {
+        this.setCache(output);
     }
 
     @Override
     public short getOutput() {
-        if (this.output != null) return this.output;
-        return this.output = this.calcOutput();
+        if (this.cacheStamp == this.round + 1) return this.output;
+        short output = this.calcOutput();
+        this.setCache(output);
+        return output;
     }
 
     @Override
@@ -64,25 +87,21 @@ public abstract class CachingProvider implements SignalProvider {
 
     protected abstract long calcNeuralHash();
 
-    public boolean checkForLoops(LoopingNeuron looper) {
-        return false;
-    }
-
     @Override
     public long getNeuralHash() {
         if (this.hashCache != null) return this.hashCache;
         else return this.hashCache = this.calcNeuralHash();
     }
 
-    // IMPORTANT TO OVERRIDE IN CachingNeuron
     @Override
-    public long getNeuralHashFor(LoopingNeuron looper) {
-        return this.getNeuralHash();
+    public void clearHashCache() {
+        this.hashCache = null;
     }
 
     @Override
-    public void clearHashCache() {
-        this.hashCache = null;
+    public void inheritHashCache(SignalProvider original) {
+        if (original.getClass() != this.getClass()) throw new IllegalArgumentException();
+        this.hashCache = ((CachingProvider)original).hashCache;
     }
 
     @Override
@@ -118,19 +137,17 @@ public abstract class CachingProvider implements SignalProvider {
 
     @Override
     public void replaceConsumers(Map<SignalConsumer, SignalConsumer> neuronMap) {
-        Set<SignalConsumer> newConsumers = new HashSet<>(this.consumers.size());
+        SignalConsumer[] oldConsumers = this.consumers.toArray(new SignalConsumer[0]);
+        this.consumers.clear();
 
-        for (SignalConsumer orig : this.consumers) {
+        for (SignalConsumer orig : oldConsumers) {
             SignalConsumer replacement = neuronMap.get(orig);
             if (replacement == null) {
                 System.err.println("UNEXPECTED: missing SignalConsumer replacement: " + orig);
                 //throw new IllegalStateException();
             }
-            newConsumers.add(replacement);
+            this.consumers.add(replacement);
         }
-
-        this.consumers.clear();
-        this.consumers.addAll(newConsumers);
     }
 
     /*
@@ -47,7 +47,10 @@ public class LongTermMemoryNeuron extends MemoryNeuron<LongTermMemoryNeuron> {
     private transient double fadeInWeight;
     private transient double fadeInPlusOne;
 
-    private transient AccumulatedAverage accumulated = new AccumulatedAverage();
+    /**
+     * Allocated by the first after(), see clearRuntimeState().  recent stays null when there is no delay or fadeIn
+     */
+    private transient AccumulatedAverage accumulated;
     private transient double[] recent;
     private transient int index = 0;
     private transient int size = 0;
@@ -58,11 +61,6 @@ public class LongTermMemoryNeuron extends MemoryNeuron<LongTermMemoryNeuron> {
         this.delayDbl = this.delay;
         this.fadeInWeight = (double) fadeIn / 2.0;
         this.fadeInPlusOne = this.fadeIn + 1;
-        this.accumulated = new AccumulatedAverage();
-
-        if (this.delay == 0 && this.fadeIn == 0) this.recent = null;
-        else this.recent = new double[this.delay + this.fadeIn];
-
         return super.readResolve();
     }
 
@@ -96,9 +94,6 @@ public class LongTermMemoryNeuron extends MemoryNeuron<LongTermMemoryNeuron> {
         this.fadeInPlusOne = cloneFrom.fadeInPlusOne;
         this.fadeInWeight = cloneFrom.fadeInWeight;
         this.tweakingParams = cloneFrom.tweakingParams;
-
-        if (delay == 0 && fadeIn == 0) this.recent = null;
-        else this.recent = new double[delay + fadeIn];
     }
 
     public LongTermMemoryNeuron(LongTermMemoryNeuron cloneFrom, short defaultVal, int delay, int fadeIn, boolean forTrial)
@@ -122,9 +117,6 @@ public class LongTermMemoryNeuron extends MemoryNeuron<LongTermMemoryNeuron> {
         // in comparison to ONE full-strength memory
         // NOTE: x * (x + 1) / 2 is the formula for the sum of all integers between 1 and x (inclusive)
         // To arrive at the fadeInWeight, divide this by (x + 1), which algebraically simplifies to x / 2
-
-        if (delay == 0 && fadeIn == 0) this.recent = null;
-        else this.recent = new double[delay + fadeIn];
     }
 
     public LongTermMemoryNeuron(List<SignalProvider> input, int delayAndFadeIn)
@@ -149,9 +141,6 @@ public class LongTermMemoryNeuron extends MemoryNeuron<LongTermMemoryNeuron> {
         this.fadeIn = fadeIn;
         this.fadeInPlusOne = fadeIn + 1;
         this.fadeInWeight = (double)fadeIn / 2.0;
-
-        if (delay == 0 && fadeIn == 0) this.recent = null;
-        else this.recent = new double[delay + fadeIn];
     }
 
     public LongTermMemoryNeuron(List<SignalProvider> inputs, short defaultVal, int delay, int fadeIn)
@@ -170,9 +159,6 @@ public class LongTermMemoryNeuron extends MemoryNeuron<LongTermMemoryNeuron> {
         this.fadeIn = fadeIn;
         this.fadeInPlusOne = fadeIn + 1;
         this.fadeInWeight = (double)fadeIn / 2.0;
-
-        if (delay == 0 && fadeIn == 0) this.recent = null;
-        else this.recent = new double[delay + fadeIn];
     }
 
 
@@ -207,6 +193,11 @@ public class LongTermMemoryNeuron extends MemoryNeuron<LongTermMemoryNeuron> {
 
         List<SignalProvider> inputs = this.getInputs();
 
+        if (this.accumulated == null) {
+            this.accumulated = new AccumulatedAverage();
+            if (this.delay != 0 || this.fadeIn != 0) this.recent = new double[this.delay + this.fadeIn];
+        }
+
         if (this.recent == null) {
             // no delay and no fade in... skip right to adding to the accumulated store
             this.nextOutput = roundClip(this.accumulated.addAndGetAverage(inputs.get(0).getOutput()));
@@ -330,10 +321,20 @@ public class LongTermMemoryNeuron extends MemoryNeuron<LongTermMemoryNeuron> {
         this.nextOutput = this.defaultVal;
         this.size = 0;
         this.index = 0;
-        this.accumulated.clear();
+        if (this.accumulated != null) this.accumulated.clear();
         super.reset();
     }
 
+    /**
+     * Drops the memories, which the next after() allocates again
+     */
+    @Override
+    public void clearRuntimeState() {
+        this.reset();
+        this.accumulated = null;
+        this.recent = null;
+    }
+
     @Override
     public Set<SignalProvider> traceProviders() {
         return null;
@@ -405,8 +406,8 @@ public class LongTermMemoryNeuron extends MemoryNeuron<LongTermMemoryNeuron> {
     public static final long HASH_HEADER = NeuralHash.HEADERS.get(MethodHandles.lookup().lookupClass());
 
     @Override
-    protected long calcNeuralHashFor(LoopingNeuron looper) {
-        return HASH_HEADER ^ Long.rotateRight(this.inputs.get(0).getNeuralHashFor(looper), 17)
+    protected long calcNeuralHash() {
+        return HASH_HEADER ^ Long.rotateRight(this.inputs.get(0).getNeuralHash(), 17)
                 ^ Long.rotateLeft(this.defaultVal & 0xffff, 51)
                 ^ Long.rotateLeft(this.delay, 37) ^ Long.rotateLeft(this.fadeIn, 23);
     }
@@ -0,0 +1,235 @@
+package neuralNet.neuron;
+
+import java.util.*;
+
+/**
+ * A strongly-connected component of CachingNeurons, i.e. a feedback loop.  Every such loop passes through at least
+ * one LoopingNeuron, since those are the only neurons which may (indirectly) consume their own output.
+ *
+ * The loops are found by a single iterative Tarjan decomposition of everything upstream of a neuron whose hash is
+ * requested, and every neuron it visits is hashed in the same pass, in dependency order.  Neurons which aren't part of
+ * a loop are hashed exactly as before, from the hashes of their inputs.  The neurons of a loop get a canonical hash in
+ * two rounds:
+ *
+ *   1. A 'base' hash of each member, with every LoopingNeuron of the loop cut to 0 where it is an input (as it used to
+ *      be for the LoopingNeuron whose hash was being calculated).
+ *   2. Each LoopingNeuron is then given a 'leaf' hash mixing its base with an order-independent summary of all the
+ *      members' bases, and every member is hashed again, using the leaves wherever a LoopingNeuron is an input.
+ *
+ * The result only depends upon the structure of the loop and its inputs, never on the order of traversal, and the cost
+ * is linear in the size of the net no matter how many memory neurons it has.
+ *
+ * The loop of each neuron (or NONE) is cached along with its hash, and both are cleared together by clearHashCache()
+ * and CachingNeuron.invalidateNeuralHashes().
+ */
+public final class NeuralLoop {
+    /**
+     * Marks a CachingNeuron which has been traced, but isn't part of any loop
+     */
+    static final NeuralLoop NONE = new NeuralLoop(new CachingNeuron[0]);
+
+    private final CachingNeuron[] members;
+
+    private NeuralLoop(CachingNeuron[] members) {
+        this.members = members;
+    }
+
+    public int size() {
+        return this.members.length;
+    }
+
+    public List<CachingNeuron> getMembers() {
+        return Collections.unmodifiableList(Arrays.asList(this.members));
+    }
+
+    /**
+     * Finds the loops of every untraced neuron upstream of (and including) the given one, and calculates all of
+     * their hashes which aren't already cached.  Neurons which were already traced are never revisited
+     */
+    static void trace(CachingNeuron start) {
+        if (start.loop != null) return;
+        new Tarjan().run(start);
+    }
+
+    private static class Frame {
+        private final CachingNeuron neuron;
+        private final List<SignalProvider> inputs;
+        private int next = 0;
+
+        private Frame(CachingNeuron neuron) {
+            this.neuron = neuron;
+            this.inputs = neuron.getInputs();
+        }
+    }
+
+    private static class Tarjan {
+        private final Map<CachingNeuron, Integer> indexes = new IdentityHashMap<>();
+        private final ArrayList<Integer> lowLinks = new ArrayList<>();
+        private final ArrayDeque<CachingNeuron> stack = new ArrayDeque<>();
+        private final Set<CachingNeuron> onStack = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+
+        private void push(CachingNeuron neuron) {
+            int index = this.lowLinks.size();
+            this.indexes.put(neuron, index);
+            this.lowLinks.add(index);
+            this.stack.push(neuron);
+            this.onStack.add(neuron);
+            this.frames.push(new Frame(neuron));
+        }
+
+        private void run(CachingNeuron start) {
+            this.push(start);
+
+            while (!this.frames.isEmpty()) {
+                Frame frame = this.frames.peek();
+                int index = this.indexes.get(frame.neuron);
+
+                if (frame.next < frame.inputs.size()) {
+                    // untraced neurons are followed, everything else already has its loop and hash
+                    if (!(frame.inputs.get(frame.next++) instanceof CachingNeuron input) || input.loop != null) {
+                        continue;
+                    }
+
+                    Integer inputIndex = this.indexes.get(input);
+                    if (inputIndex == null) this.push(input);
+                    else if (this.onStack.contains(input) && inputIndex < this.lowLinks.get(index)) {
+                        this.lowLinks.set(index, inputIndex);
+                    }
+                    continue;
+                }
+
+                this.frames.pop();
+                int lowLink = this.lowLinks.get(index);
+                if (!this.frames.isEmpty()) {
+                    int parent = this.indexes.get(this.frames.peek().neuron);
+                    if (lowLink < this.lowLinks.get(parent)) this.lowLinks.set(parent, lowLink);
+                }
+                if (lowLink != index) continue;
+
+                // frame.neuron is the root of a strongly-connected component, which is complete
+                ArrayList<CachingNeuron> component = new ArrayList<>();
+                CachingNeuron member;
+                do {
+                    member = this.stack.pop();
+                    this.onStack.remove(member);
+                    component.add(member);
+                } while (member != frame.neuron);
+
+                if (component.size() == 1 && !member.getInputs().contains(member)) {
+                    if (member.hashCache == null) member.hashCache = member.calcNeuralHash();
+                    member.loop = NONE;
+
+                } else {
+                    NeuralLoop loop = new NeuralLoop(component.toArray(new CachingNeuron[0]));
+                    loop.calcNeuralHashes();
+                    for (CachingNeuron neuron : loop.members) {
+                        neuron.loop = loop;
+                    }
+                }
+            }
+        }
+    }
+
+    private void calcNeuralHashes() {
+        boolean cached = true;
+        for (CachingNeuron member : this.members) {
+            if (member.hashCache == null) {
+                cached = false;
+                break;
+            }
+        }
+        if (cached) return; // inherited from the original of a clone, see NeuralNet.cloneNeurons()
+
+        List<CachingNeuron> loopers = new ArrayList<>();
+        for (CachingNeuron member : this.members) {
+            if (member instanceof LoopingNeuron) loopers.add(member);
+        }
+        List<CachingNeuron> ordered = this.orderNonLoopers();
+
+        // round 1: base hashes, with the LoopingNeurons cut to 0
+        long[] base = new long[loopers.size()];
+        for (CachingNeuron looper : loopers) {
+            looper.hashCache = 0L;
+        }
+        for (CachingNeuron neuron : ordered) {
+            neuron.hashCache = neuron.calcNeuralHash();
+        }
+        for (int i = 0; i < base.length; i++) {
+            base[i] = loopers.get(i).calcNeuralHash();
+        }
+
+        // order-independent summary of the whole loop
+        long summary = mix(this.members.length);
+        for (CachingNeuron neuron : ordered) {
+            summary += mix(neuron.hashCache);
+        }
+        for (long hash : base) {
+            summary += mix(hash);
+        }
+
+        // round 2: leaves for the LoopingNeurons, then the final hashes
+        for (int i = 0; i < base.length; i++) {
+            loopers.get(i).hashCache = mix(base[i] ^ summary);
+        }
+        for (CachingNeuron neuron : ordered) {
+            neuron.hashCache = neuron.calcNeuralHash();
+        }
+        long[] hashes = new long[base.length];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = loopers.get(i).calcNeuralHash();
+        }
+        for (int i = 0; i < hashes.length; i++) {
+            loopers.get(i).hashCache = hashes[i];
+        }
+    }
+
+    /**
+     * @return the members which aren't LoopingNeurons, ordered so that each comes after any of its inputs which are
+     * also non-looping members.  Without the LoopingNeurons, there are no cycles left between them
+     */
+    private List<CachingNeuron> orderNonLoopers() {
+        Set<CachingNeuron> remaining = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (CachingNeuron member : this.members) {
+            if (!(member instanceof LoopingNeuron)) remaining.add(member);
+        }
+
+        Map<CachingNeuron, Integer> pending = new IdentityHashMap<>();
+        Map<CachingNeuron, List<CachingNeuron>> dependents = new IdentityHashMap<>();
+        ArrayDeque<CachingNeuron> ready = new ArrayDeque<>();
+
+        for (CachingNeuron neuron : remaining) {
+            int count = 0;
+            for (SignalProvider input : neuron.getInputs()) {
+                if (input instanceof CachingNeuron in && remaining.contains(in)) {
+                    count++;
+                    dependents.computeIfAbsent(in, n -> new ArrayList<>()).add(neuron);
+                }
+            }
+            if (count == 0) ready.add(neuron);
+            else pending.put(neuron, count);
+        }
+
+        List<CachingNeuron> ordered = new ArrayList<>(remaining.size());
+        while (!ready.isEmpty()) {
+            CachingNeuron neuron = ready.poll();
+            ordered.add(neuron);
+            for (CachingNeuron dependent : dependents.getOrDefault(neuron, List.of())) {
+                // counts each occurrence in the inputs, the same as above
+                int count = pending.merge(dependent, -1, Integer::sum);
+                if (count == 0) ready.add(dependent);
+            }
+        }
+
+        if (ordered.size() != remaining.size()) throw new IllegalStateException("Loop without a LoopingNeuron");
+        return ordered;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
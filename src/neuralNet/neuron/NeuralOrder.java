@@ -0,0 +1,268 @@
+package neuralNet.neuron;
+
+import java.util.*;
+
+/**
+ * An incrementally maintained topological order of the neurons of a net, used by CachingNeuron to accept or reject
+ * new inputs without tracing all of a neuron's consumers every time (Pearce & Kelly's dynamic topological sort).
+ *
+ * Every CachingNeuron which isn't a LoopingNeuron has a rank, and each of its inputs which is also ranked must be
+ * ranked below it.  Memory neurons don't consume their inputs' CURRENT output (see Neuron.traceConsumers()), so they
+ * never take part.  A new input which is ranked below its consumer is accepted immediately.  Otherwise only the
+ * neurons ranked between the two are searched, and if no circular reference is found those neurons are re-ranked
+ * amongst themselves so the new input comes first.
+ *
+ * Nets get an order when they are cloned (see NeuralNet.cloneNeurons()), and new neurons join it when they are first
+ * connected to it.  Anything the order can't account for (neurons from elsewhere, inputs rewired by
+ * replaceInputs(Map), ComplexNeurons, or a failed setInputs()) invalidates it, and the checks fall back to
+ * traceConsumers() until the net is cloned again.
+ */
+public final class NeuralOrder {
+    private boolean valid = true;
+    private int first; // lowest rank handed out so far
+    private int next;  // one past the highest rank handed out so far
+
+    private NeuralOrder(int first, int next) {
+        this.first = first;
+        this.next = next;
+    }
+
+    /**
+     * Ranks the given neurons in a new order, using Kahn's algorithm.  If any of them can't be ranked (see
+     * CachingNeuron.ranksByOwnEdges()) they are all left without an order
+     */
+    public static void rank(Collection<? extends SignalProvider> providers) {
+        List<CachingNeuron> nodes = new ArrayList<>(providers.size());
+        boolean rankable = true;
+        for (SignalProvider provider : providers) {
+            if (!(provider instanceof CachingNeuron neuron)) continue;
+            neuron.order = null;
+            if (!isNode(neuron)) continue;
+            nodes.add(neuron);
+            if (!neuron.ranksByOwnEdges()) rankable = false;
+        }
+        if (!rankable) return;
+
+        Map<CachingNeuron, Integer> pending = new IdentityHashMap<>(nodes.size() * 2);
+        for (CachingNeuron neuron : nodes) {
+            pending.put(neuron, 0);
+        }
+
+        Map<CachingNeuron, List<CachingNeuron>> dependents = new IdentityHashMap<>(nodes.size() * 2);
+        ArrayDeque<CachingNeuron> ready = new ArrayDeque<>();
+        for (CachingNeuron neuron : nodes) {
+            int count = 0;
+            for (SignalProvider input : neuron.getInputs()) {
+                if (input instanceof CachingNeuron in && pending.containsKey(in)) {
+                    count++;
+                    dependents.computeIfAbsent(in, n -> new ArrayList<>()).add(neuron);
+                }
+            }
+            if (count == 0) ready.add(neuron);
+            pending.put(neuron, count);
+        }
+
+        List<CachingNeuron> ordered = new ArrayList<>(nodes.size());
+        while (!ready.isEmpty()) {
+            CachingNeuron neuron = ready.poll();
+            ordered.add(neuron);
+            for (CachingNeuron dependent : dependents.getOrDefault(neuron, List.of())) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) ready.add(dependent);
+            }
+        }
+        if (ordered.size() != nodes.size()) return; // circular reference, which shouldn't be possible
+
+        NeuralOrder order = new NeuralOrder(0, ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            CachingNeuron neuron = ordered.get(i);
+            neuron.order = order;
+            neuron.rank = i;
+        }
+    }
+
+    /**
+     * Gives each clone the same rank as its original, in a new order, when all the originals share one valid
+     * order.  Otherwise the clones are ranked from scratch
+     *
+     * @param clones map of the original providers to their clones, whose inputs are the clones of the originals' inputs
+     */
+    public static void inherit(Map<SignalProvider, SignalProvider> clones) {
+        NeuralOrder original = null;
+        for (SignalProvider provider : clones.keySet()) {
+            if (!(provider instanceof CachingNeuron neuron) || !isNode(neuron)) continue;
+            if (neuron.order == null || !neuron.order.valid || (original != null && neuron.order != original)) {
+                rank(clones.values());
+                return;
+            }
+            original = neuron.order;
+        }
+        if (original == null) return;
+
+        NeuralOrder order = new NeuralOrder(original.first, original.next);
+        for (Map.Entry<SignalProvider, SignalProvider> entry : clones.entrySet()) {
+            if (!(entry.getKey() instanceof CachingNeuron neuron) || !isNode(neuron)) continue;
+            CachingNeuron clone = (CachingNeuron)entry.getValue();
+            clone.order = order;
+            clone.rank = neuron.rank;
+        }
+    }
+
+    /**
+     * Makes any further checks involving this neuron's order fall back to tracing
+     */
+    public static void invalidate(CachingNeuron neuron) {
+        if (neuron.order != null) neuron.order.valid = false;
+    }
+
+    /**
+     * @return true if the provider is known not to be downstream of the consumer, without tracing anything.  False
+     * means it may or may not be
+     */
+    public static boolean precedes(SignalProvider provider, CachingNeuron consumer) {
+        if (!(provider instanceof CachingNeuron neuron) || !isNode(neuron) || !isNode(consumer)) return true;
+        NeuralOrder order = consumer.order;
+        return order != null && order.valid && neuron.order == order && neuron.rank < consumer.rank;
+    }
+
+    /**
+     * Checks whether making the provider an input of the consumer would create a circular reference, with the same
+     * result as consumer.traceConsumers(provider).  When it wouldn't, the order is updated to account for the new input.
+     */
+    static boolean createsCircularReference(SignalProvider provider, CachingNeuron consumer) {
+        if (!(provider instanceof CachingNeuron input)) return consumer.traceConsumers((SignalConsumer)provider);
+        if (!isNode(input) || !isNode(consumer)) return false; // memory neurons are never traced
+        if (input == consumer) return true;
+
+        if (!input.ranksByOwnEdges() || !consumer.ranksByOwnEdges()) {
+            invalidate(input);
+            invalidate(consumer);
+            return consumer.traceConsumers(input);
+        }
+
+        NeuralOrder order = consumer.order;
+        if (order == null || !order.valid) {
+            order = input.order;
+            if (order == null || !order.valid) return consumer.traceConsumers(input);
+        }
+
+        if (input.order != order) {
+            // a new neuron which isn't connected to anything ranked yet can simply join the order
+            if (isFree(input, consumer)) {
+                input.order = order;
+                input.rank = --order.first;
+                return false;
+            }
+            order.valid = false;
+            return consumer.traceConsumers(input);
+        }
+
+        if (consumer.order != order) {
+            if (isFree(consumer, input)) {
+                consumer.order = order;
+                consumer.rank = order.next++;
+                return false;
+            }
+            order.valid = false;
+            return consumer.traceConsumers(input);
+        }
+
+        if (input.rank < consumer.rank) return false;
+
+        Boolean circular = order.insert(input, consumer);
+        if (circular != null) return circular;
+
+        order.valid = false;
+        return consumer.traceConsumers(input);
+    }
+
+    /**
+     * Pearce-Kelly insertion of an input which is currently ranked above its new consumer
+     *
+     * @return whether it creates a circular reference, or null if the search came across a neuron the order doesn't
+     * account for
+     */
+    private Boolean insert(CachingNeuron input, CachingNeuron consumer) {
+        int lower = consumer.rank;
+        int upper = input.rank;
+
+        // the consumer and everything downstream of it which is ranked between it and the input
+        List<CachingNeuron> forward = new ArrayList<>();
+        Set<CachingNeuron> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<CachingNeuron> stack = new ArrayDeque<>();
+        visited.add(consumer);
+        stack.push(consumer);
+
+        while (!stack.isEmpty()) {
+            CachingNeuron neuron = stack.pop();
+            forward.add(neuron);
+            for (SignalConsumer next : neuron.getConsumers()) {
+                if (!(next instanceof Neuron)) continue;
+                if (!(next instanceof CachingNeuron downstream) || !downstream.ranksByOwnEdges()) return null;
+                if (!isNode(downstream)) continue;
+                if (downstream.order != this) return null;
+                if (downstream == input) return true;
+                if (downstream.rank > lower && downstream.rank < upper && visited.add(downstream)) stack.push(downstream);
+            }
+        }
+
+        // the input and everything upstream of it which is ranked above the consumer
+        List<CachingNeuron> backward = new ArrayList<>();
+        visited.clear();
+        visited.add(input);
+        stack.push(input);
+
+        while (!stack.isEmpty()) {
+            CachingNeuron neuron = stack.pop();
+            backward.add(neuron);
+            for (SignalProvider previous : neuron.getInputs()) {
+                if (!(previous instanceof CachingNeuron upstream) || !isNode(upstream)) continue;
+                if (upstream.order != this || !upstream.ranksByOwnEdges()) return null;
+                if (upstream.rank > lower && visited.add(upstream)) stack.push(upstream);
+            }
+        }
+
+        // reuse the same ranks, with everything upstream of the input now ahead of everything downstream of the consumer
+        Comparator<CachingNeuron> byRank = Comparator.comparingInt(neuron -> neuron.rank);
+        backward.sort(byRank);
+        forward.sort(byRank);
+
+        int[] ranks = new int[backward.size() + forward.size()];
+        int i = 0;
+        for (CachingNeuron neuron : backward) {
+            ranks[i++] = neuron.rank;
+        }
+        for (CachingNeuron neuron : forward) {
+            ranks[i++] = neuron.rank;
+        }
+        Arrays.sort(ranks);
+
+        i = 0;
+        for (CachingNeuron neuron : backward) {
+            neuron.rank = ranks[i++];
+        }
+        for (CachingNeuron neuron : forward) {
+            neuron.rank = ranks[i++];
+        }
+        return false;
+    }
+
+    private static boolean isNode(CachingNeuron neuron) {
+        return !(neuron instanceof LoopingNeuron);
+    }
+
+    /**
+     * @return whether the neuron has no inputs or consumers which would need to be ranked relative to it, other than
+     * the one whose new connection to it is being checked
+     */
+    private static boolean isFree(CachingNeuron neuron, CachingNeuron connecting) {
+        for (SignalProvider input : neuron.getInputs()) {
+            if (input != connecting && input instanceof CachingNeuron in && isNode(in)) return false;
+        }
+        for (SignalConsumer consumer : neuron.getConsumers()) {
+            if (consumer != connecting && consumer instanceof Neuron && !(consumer instanceof LoopingNeuron)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -34,11 +34,6 @@ public class RandomValueProvider extends CachingProvider {
         return NEURAL_HASH;
     }
 
-    @Override
-    public long getNeuralHashFor(LoopingNeuron looper) {
-        return NEURAL_HASH;
-    }
-
     @Override
     public boolean sameBehavior(SignalProvider other) {
         return other.getClass() == RandomValueProvider.class;
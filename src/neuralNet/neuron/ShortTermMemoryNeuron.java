@@ -49,16 +49,23 @@ public class ShortTermMemoryNeuron extends MemoryNeuron<ShortTermMemoryNeuron> {
      */
     public final int fadeOut;
 
-    private transient double[] memory;
+    private transient short[] memory; // allocated by the first after(), see clearRuntimeState()
     private transient int index = 0;
     private transient int size = 0;
 
-    private transient short nextOutput;
+    /*
+     * Running sums over the memories in each part of the window, updated as the memories age by one round in after()
+     * rather than re-weighing the whole window every round.  Totals are the plain sums of the memories, sums are
+     * weighted, weights are the sums of the weights.  The full-length weight is the same for every memory, so only
+     * the total and count are needed there.  All are exact (long), so the output is identical to weighing the whole
+     * window with doubles, as this used to, as long as those double sums were exact too, i.e. a total weight below
+     * 2^38 (fadeIn and fadeOut of several hundred thousand rounds, or a length of a few hundred thousand)
+     */
+    private transient long fadeInTotal, fadeInCount, fadeInSum, fadeInWeights;
+    private transient long lengthTotal, lengthCount;
+    private transient long fadeOutTotal, fadeOutCount, fadeOutSum, fadeOutWeights;
 
-    protected Object readResolve() throws ObjectStreamException {
-        this.memory = new double[this.delay + this.fadeIn + this.length + this.fadeOut];
-        return super.readResolve();
-    }
+    private transient short nextOutput;
 
     /*
     private Object readResolve() throws ObjectStreamException {
@@ -73,7 +80,7 @@ public class ShortTermMemoryNeuron extends MemoryNeuron<ShortTermMemoryNeuron> {
         this.fadeIn = deserializedFrom.fadeIn;
         this.length = deserializedFrom.length;
         this.fadeOut = deserializedFrom.fadeOut;
-        this.memory = new double[delay + fadeIn + length + fadeOut];
+        this.memory = new short[delay + fadeIn + length + fadeOut];
     }
      */
 
@@ -105,7 +112,6 @@ public class ShortTermMemoryNeuron extends MemoryNeuron<ShortTermMemoryNeuron> {
         this.fadeIn = fadeIn;
         this.length = length;
         this.fadeOut = fadeOut;
-        this.memory = new double[delay + fadeIn + length + fadeOut];
     }
 
     public ShortTermMemoryNeuron(SignalProvider input, short defaultVal, int delay, int fadeIn, int length, int fadeOut)
@@ -127,7 +133,6 @@ public class ShortTermMemoryNeuron extends MemoryNeuron<ShortTermMemoryNeuron> {
         this.fadeIn = fadeIn;
         this.length = length;
         this.fadeOut = fadeOut;
-        this.memory = new double[delay + fadeIn + length + fadeOut];
     }
 
     public ShortTermMemoryNeuron(ShortTermMemoryNeuron cloneFrom) {
@@ -138,8 +143,6 @@ public class ShortTermMemoryNeuron extends MemoryNeuron<ShortTermMemoryNeuron> {
         this.fadeIn = cloneFrom.fadeIn;
         this.length = cloneFrom.length;
         this.fadeOut = cloneFrom.fadeOut;
-
-        this.memory = new double[cloneFrom.memory.length];
     }
 
     public ShortTermMemoryNeuron(ShortTermMemoryNeuron cloneFrom, short defaultVal,
@@ -161,7 +164,6 @@ public class ShortTermMemoryNeuron extends MemoryNeuron<ShortTermMemoryNeuron> {
         this.fadeIn = fadeIn;
         this.length = length;
         this.fadeOut = fadeOut;
-        this.memory = new double[delay + fadeIn + length + fadeOut];
     }
 
     @Override
@@ -199,89 +201,91 @@ public class ShortTermMemoryNeuron extends MemoryNeuron<ShortTermMemoryNeuron> {
         // the NEXT round, while the neuralNet.neuron's current output is not reliant upon its current input (though current
         // output would rely upon its output from the PREVIOUS round, in the case of the described loop)
 
-        List<SignalProvider> inputs = this.getInputs();
-        this.memory[this.index] = inputs.get(0).getOutput();
+        if (this.memory == null) this.memory = new short[this.delay + this.fadeIn + this.length + this.fadeOut];
 
-        if (this.size != memory.length) {
-            this.size++;
-        }
+        short value = this.getInputs().get(0).getOutput();
+        int previousSize = this.size;
+        if (this.size != this.memory.length) this.size++;
 
-        double sum = 0;
-        double weightSum = 0;
+        // every memory is now a round older, so those fading in gain a unit of weight and those fading out lose one
+        this.fadeInSum += this.fadeInTotal;
+        this.fadeInWeights += this.fadeInCount;
+        this.fadeOutSum -= this.fadeOutTotal;
+        this.fadeOutWeights -= this.fadeOutCount;
 
-        int fadeIn = 0;
-        int length = 0;
-        int fadeOut = this.fadeOut;
+        // ...and the memories which just reached the start of the next part of the window move into it
+        int fadeOutEnd = this.memory.length;
+        int lengthEnd = fadeOutEnd - this.fadeOut;
+        int fadeInEnd = lengthEnd - this.length;
 
-        int i;
-        boolean first; //flag to mark the first iteration when it starts at the ending index (below)
-        int end;
+        this.moveAt(fadeOutEnd, previousSize); // forgotten
+        if (lengthEnd != fadeOutEnd) this.moveAt(lengthEnd, previousSize);
+        if (fadeInEnd != lengthEnd) this.moveAt(fadeInEnd, previousSize);
+        if (this.delay != fadeInEnd) this.moveAt(this.delay, previousSize);
 
-        if (this.delay == 0) {
-            i = this.index;
-            if (this.size == this.memory.length) {
-                first = true;
-                end = this.index;
+        this.memory[this.index] = value;
+        this.weigh(value, 0, 0, 1);
+        if (++this.index == this.memory.length) this.index = 0;
 
-            } else {
-                first = false;
-                end = this.memory.length - 1;
-            }
+        long weightSum = this.fadeInWeights + this.lengthCount * this.length + this.fadeOutWeights;
+
+        if (weightSum == 0) {
+            this.nextOutput = this.defaultVal;
 
         } else {
-            first = false;
-            i = this.index - this.delay;
-            if (this.size == this.memory.length) {
-                end = this.index;
-                if (i < 0) i += this.memory.length;
-
-            } else if (i < 0) end = i;
-            else end = this.memory.length - 1;
+            long sum = this.fadeInSum + this.lengthTotal * this.length + this.fadeOutSum;
+            this.nextOutput = roundClip((double)sum / (double)weightSum);
         }
+    }
 
-        while (true) {
-            if (i == end) {
-                if (first) first = false;
-                else break;
-            }
-
-
-            if (fadeIn != this.fadeIn) {
-                fadeIn++;
-                //double weight = fadeIn / this.fadeInPlusOneDbl;
-                sum += this.memory[i] * fadeIn; //weight;
-                weightSum += fadeIn; //weight; // TODO calculate weightSum using a single polynomial equation instead
-
-
-            } else if (length != this.length) {
-                sum += this.memory[i] * this.length;
-                // full-strength memories' weight is added at the end
-                length++;
+    /**
+     * Moves the memory which is now 'age' rounds old from the part of the window it was in during the previous round
+     * into the part it has just reached, if there is such a memory
+     *
+     * @param previousSize the number of memories before the current round's was added
+     */
+    private void moveAt(int age, int previousSize) {
+        if (age == 0 || age > previousSize) return;
 
-            } else if (fadeOut != 0) {
-                //double weight = fadeOut / this.fadeOutPlusOneDbl;
-                sum += this.memory[i] * fadeOut; //* weight;
-                weightSum += fadeOut; //weight; // TODO calculate weightSum using a single polynomial equation instead
-                fadeOut--;
+        int i = this.index - age;
+        if (i < 0) i += this.memory.length;
 
-            } else {
-                throw new IllegalStateException();
-                //break; //should be unreachable if iteration logic works correctly
-            }
+        short value = this.memory[i];
+        this.weigh(value, age - 1, age, -1);
+        this.weigh(value, age, age, 1);
+    }
 
-            if (i != 0) i--;
-            else i = this.memory.length - 1;
+    /**
+     * Adds (sign = 1) or removes (sign = -1) a memory to/from the running sums of the part of the window which
+     * 'partAge' falls in, with the weight it has there at 'age'
+     */
+    private void weigh(short value, int partAge, int age, int sign) {
+        if (partAge < this.delay) return;
+
+        partAge -= this.delay;
+        if (partAge < this.fadeIn) {
+            long weight = age - this.delay + 1;
+            this.fadeInTotal += sign * value;
+            this.fadeInCount += sign;
+            this.fadeInSum += sign * value * weight;
+            this.fadeInWeights += sign * weight;
+            return;
         }
 
-        weightSum += length * this.length; //more efficient than incrementing/adding to weightSum each time?
-
-        if (++this.index == this.memory.length) this.index = 0;
-
-        if (weightSum == 0) {
-            this.nextOutput = this.defaultVal;
+        partAge -= this.fadeIn;
+        if (partAge < this.length) {
+            this.lengthTotal += sign * value;
+            this.lengthCount += sign;
+            return;
+        }
 
-        } else {
-            this.nextOutput = roundClip(sum / weightSum);
+        partAge -= this.length;
+        if (partAge < this.fadeOut) {
+            long weight = this.memory.length - age;
+            this.fadeOutTotal += sign * value;
+            this.fadeOutCount += sign;
+            this.fadeOutSum += sign * value * weight;
+            this.fadeOutWeights += sign * weight;
         }
     }
 
@@ -290,9 +294,21 @@ public class ShortTermMemoryNeuron extends MemoryNeuron<ShortTermMemoryNeuron> {
         this.nextOutput = this.defaultVal;
         this.size = 0;
         this.index = 0;
+        this.fadeInTotal = this.fadeInCount = this.fadeInSum = this.fadeInWeights = 0;
+        this.lengthTotal = this.lengthCount = 0;
+        this.fadeOutTotal = this.fadeOutCount = this.fadeOutSum = this.fadeOutWeights = 0;
         super.reset();
     }
 
+    /**
+     * Drops the memories, which the next after() allocates again
+     */
+    @Override
+    public void clearRuntimeState() {
+        this.reset();
+        this.memory = null;
+    }
+
     @Override
     public ShortTermMemoryNeuron clone() {
         return new ShortTermMemoryNeuron(this);
@@ -376,8 +392,8 @@ public class ShortTermMemoryNeuron extends MemoryNeuron<ShortTermMemoryNeuron> {
     public static final long HASH_HEADER = NeuralHash.HEADERS.get(MethodHandles.lookup().lookupClass());
 
     @Override
-    protected long calcNeuralHashFor(LoopingNeuron looper) {
-        return HASH_HEADER ^ Long.rotateRight(this.inputs.get(0).getNeuralHashFor(looper), 17)
+    protected long calcNeuralHash() {
+        return HASH_HEADER ^ Long.rotateRight(this.inputs.get(0).getNeuralHash(), 17)
                 ^ Long.rotateLeft(this.defaultVal & 0xffff, 51)
                 ^ Long.rotateLeft(this.delay, 37)  ^ Long.rotateLeft(this.fadeIn, 29)
                 ^ Long.rotateLeft(this.length, 17) ^ Long.rotateLeft(this.fadeOut, 7);
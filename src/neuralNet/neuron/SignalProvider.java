@@ -8,10 +8,15 @@ public interface SignalProvider extends Serializable {
 
     public Set<SignalConsumer> getConsumers();
     public long getNeuralHash();
-    public long getNeuralHashFor(LoopingNeuron looper);
-    public boolean checkForLoops(LoopingNeuron looper);
     public void clearHashCache();
 
+    /**
+     * Adopts the neural hash(es) cached by the provider which this one was cloned from.  Only valid when this
+     * provider's inputs are clones of the original's inputs, which is the case in NeuralNet.cloneNeurons().
+     * Any later change to the inputs clears the adopted hashes again, along with those of everything downstream
+     */
+    default public void inheritHashCache(SignalProvider original) { }
+
     public boolean sameBehavior(SignalProvider other);
 
     /**
@@ -64,6 +69,15 @@ public interface SignalProvider extends Serializable {
      */
     public void reset();
 
+    /**
+     * Invoked by the neural net once it is no longer being evaluated (see NeuralNet.clearRuntimeState()), e.g. while
+     * it is only kept in a NetTracker.  Releases whatever was allocated for running the net, such as the memory
+     * neurons' buffers, which are allocated again from a reset state the next time the net is run
+     */
+    default public void clearRuntimeState() {
+        this.reset();
+    }
+
     public SignalProvider clone();
 
     public interface Tweakable<P extends SignalProvider.Tweakable<P>>
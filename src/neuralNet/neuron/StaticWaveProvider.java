@@ -177,7 +177,7 @@ public class StaticWaveProvider extends CachingProvider implements SignalProvide
                 this.currentPhase %= 2.0;
                 if (this.currentPhase < 0.0) this.currentPhase += 2.0;
 
-            } else if (this.currentPhase <= 2.0) {
+            } else if (this.currentPhase < 0.0) {
                 this.currentPhase += 2.0;
             }
         }
@@ -185,7 +185,7 @@ public class StaticWaveProvider extends CachingProvider implements SignalProvide
 
     @Override
     protected short calcOutput() {
-        return roundClip(this.waveFunction.calc(this.currentPhase) * MAX_PLUS_ONE - 0.5);
+        return this.waveFunction.output(this.currentPhase);
     }
 
     @Override
@@ -204,12 +204,14 @@ public class VariableWaveNeuron extends CachingNeuron implements SignalProvider.
         }
 
         if (this.nextPosition >= 2.0) {
-            this.nextPosition %= 2;
+            // exact either way, but the subtraction is much cheaper than the remainder
+            if (this.nextPosition < 4.0) this.nextPosition -= 2;
+            else this.nextPosition %= 2;
         }
 
 
         if (inputs.size() == 1) {
-            return roundClip(this.waveFunction.calc(this.nextPosition) * MAX_PLUS_ONE - 0.5);
+            return this.waveFunction.output(this.nextPosition);
         }
 
         this.currentPhaseShift = (inputs.get(1).getOutput() / MAX_PLUS_ONE);
@@ -218,7 +220,7 @@ public class VariableWaveNeuron extends CachingNeuron implements SignalProvider.
         if (position >= 2) position -= 2;
         else if (position < 0) position += 2;
 
-        return roundClip(this.waveFunction.calc(position) * MAX_PLUS_ONE - 0.5);
+        return this.waveFunction.output(position);
     }
 
     @Override
@@ -312,12 +314,12 @@ public class VariableWaveNeuron extends CachingNeuron implements SignalProvider.
     public static final long HASH_HEADER = NeuralHash.HEADERS.get(MethodHandles.lookup().lookupClass());
 
     @Override
-    public long calcNeuralHashFor(LoopingNeuron looper) {
-        long hash = HASH_HEADER ^ Long.rotateRight(this.inputs.get(0).getNeuralHashFor(looper), 17)
+    public long calcNeuralHash() {
+        long hash = HASH_HEADER ^ Long.rotateRight(this.inputs.get(0).getNeuralHash(), 17)
                 ^ Long.rotateLeft(Double.doubleToLongBits(this.periodMin), 13)
                 ^ Long.rotateLeft(Double.doubleToLongBits(this.periodMax), 17);
 
         if (this.inputs.size() == 1) return hash;
-        return hash ^ Long.rotateRight(this.inputs.get(1).getNeuralHashFor(looper), 34); //17 * 2
+        return hash ^ Long.rotateRight(this.inputs.get(1).getNeuralHash(), 34); //17 * 2
     }
 }
\ No newline at end of file
@@ -130,8 +130,8 @@ public class CompoundNeuron extends CachingNeuron {
     }
 
     @Override
-    protected long calcNeuralHashFor(LoopingNeuron looper) {
-        return this.neurons.get(this.neurons.size() - 1).getNeuralHashFor(looper);
+    protected long calcNeuralHash() {
+        return this.neurons.get(this.neurons.size() - 1).getNeuralHash();
     }
 
     @Override
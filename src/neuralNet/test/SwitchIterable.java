@@ -159,16 +159,6 @@ public class SwitchIterable implements Iterable<Short>, Iterator<Short>, SignalP
         return 0;
     }
 
-    @Override
-    public long getNeuralHashFor(LoopingNeuron looper) {
-        return 0;
-    }
-
-    @Override
-    public boolean checkForLoops(LoopingNeuron looper) {
-        return false;
-    }
-
     @Override
     public void clearHashCache() { }
 
@@ -0,0 +1,150 @@
+package neuralNet.test;
+
+import game2048.*;
+import neuralNet.evolve.*;
+import neuralNet.function.*;
+import neuralNet.network.*;
+import neuralNet.neuron.*;
+
+import java.util.*;
+
+/**
+ * Checks ExecutionPlan's compiled mode (see ExecutionPlan.compile()) and incremental mode (see
+ * ExecutionPlan.setIncremental()) against the usual eager interpreted rounds.  Each mutant from AddNeurons is cloned
+ * three times: one clone is compiled without verification, so that a wrong compiled weight isn't hidden by falling
+ * back to the interpreted round, and another is incremental.  The clones then play the same full games side by side,
+ * and their decision weights should be identical in every round.
+ *
+ * Only the mutants whose decision nodes depend solely upon stateless providers can be compiled, so only those are
+ * mutated further, but at least some must be compiled.  Every other mutant has a memory neuron, a StaticWaveProvider
+ * and a VariableWaveNeuron spliced in front of its decision nodes first, for the incremental mode's stateful
+ * providers, which are recalculated every round.  Mutants with RandomValueProviders are skipped, since the clones draw
+ * different random values.
+ */
+public class TestCompiledPlan {
+    public static final int MUTANTS = 150;
+    public static final int GAMES = 3;
+    public static final int MAX_ROUNDS = 5000;
+
+    public static void main(String[] args) {
+        Random rand = new Random(1003);
+        List<BoardNet> nets = new ArrayList<>();
+        nets.add(TestBoardNet.makeEdgeNet());
+
+        int tested = 0;
+        int skipped = 0;
+        int compiled = 0;
+        long rounds = 0;
+        int compiledMismatches = 0;
+        int incrementalMismatches = 0;
+
+        for (int i = 0; i < MUTANTS; i++) {
+            BoardNet parent = nets.get(Math.max(0, nets.size() - 1 - rand.nextInt(8)));
+            BoardNet mutant = new AddNeurons<>(parent, 1, 0).makeMutation(1 + rand.nextInt(6));
+            if (mutant.getProviders().stream().anyMatch(provider -> provider instanceof RandomValueProvider)) {
+                skipped++;
+                continue;
+            }
+            tested++;
+
+            boolean stateful = (i & 0b1) != 0;
+            BoardNet net = stateful ? addStateful(mutant.clone(), rand) : mutant;
+
+            BoardNet eager = net.clone();
+            BoardNet incremental = net.clone();
+            BoardNet compiledNet = net.clone();
+            ExecutionPlan eagerPlan = eager.getExecutionPlan();
+            ExecutionPlan incrementalPlan = incremental.getExecutionPlan();
+            ExecutionPlan compiledPlan = compiledNet.getExecutionPlan();
+            incrementalPlan.setIncremental(true);
+            if (compiledPlan.compile(false)) {
+                compiled++;
+                if (!stateful) nets.add(mutant);
+            }
+
+            BoardInterface board = new BoardInterface();
+            DecisionRanking ranking = board.getDecisionRanking();
+            eager.setSensedObject(board);
+            incremental.setSensedObject(board);
+            compiledNet.setSensedObject(board);
+
+            for (int g = 0; g < GAMES; g++) {
+                board.reset(rand.nextLong());
+                eager.reset();
+                incremental.reset();
+                compiledNet.reset();
+
+                for (int r = 0; r < MAX_ROUNDS && board.isActive(); r++) {
+                    eager.runRound();
+                    incremental.runRound();
+                    compiledNet.runRound();
+                    rounds++;
+
+                    for (int d = 0; d < eagerPlan.decisionCount(); d++) {
+                        short expected = eagerPlan.getDecisionWeight(d);
+                        short actual = compiledPlan.getDecisionWeight(d);
+                        if (expected != actual && compiledMismatches++ < 10) {
+                            System.out.println("Mutant " + i + " (compiled) game " + g + " round " + r
+                                    + ", decision " + d + ": " + expected + " vs " + actual);
+                        }
+
+                        actual = incrementalPlan.getDecisionWeight(d);
+                        if (expected != actual && incrementalMismatches++ < 10) {
+                            System.out.println("Mutant " + i + " (incremental" + (stateful ? ", stateful" : "")
+                                    + ") game " + g + " round " + r + ", decision " + d + ": "
+                                    + expected + " vs " + actual);
+                        }
+                    }
+
+                    // the eager net decides, skipping NoOp rounds so that every net runs the same rounds
+                    boolean moved = false;
+                    for (int decisionId : ranking.rank(eager, false)) {
+                        if (decisionId != -1 && board.takeAction(decisionId)) {
+                            moved = true;
+                            break;
+                        }
+                    }
+                    if (!moved) break;
+                }
+            }
+        }
+
+        System.out.println(tested + " mutants tested (" + skipped + " skipped), " + compiled + " compiled, over "
+                + rounds + " rounds");
+        System.out.println("compiled: " + compiledMismatches + " mismatched weights");
+        System.out.println("incremental: " + incrementalMismatches + " mismatched weights");
+        if (compiled == 0) throw new IllegalStateException("None of the mutants were compiled");
+    }
+
+    /**
+     * Adds a random memory neuron, a StaticWaveProvider and a VariableWaveNeuron to the net, each one summed with the
+     * input of a random decision node in front of it
+     *
+     * @return the net, re-traced
+     */
+    private static BoardNet addStateful(BoardNet net, Random rand) {
+        List<SignalProvider> providers = new ArrayList<>(net.getProviders());
+        SignalProvider memoryInput = providers.get(rand.nextInt(providers.size()));
+        SignalProvider period = providers.get(rand.nextInt(providers.size()));
+        short defaultVal = (short)rand.nextInt(Short.MIN_VALUE, Short.MAX_VALUE + 1);
+        List<WaveFunction> functions = StaticWaveProvider.WAVE_FUNCTIONS;
+
+        List<SignalProvider> stateful = List.of(
+                rand.nextBoolean()
+                        ? new ShortTermMemoryNeuron(memoryInput, defaultVal,
+                                rand.nextInt(4), rand.nextInt(4), 1 + rand.nextInt(4), rand.nextInt(4))
+                        : new LongTermMemoryNeuron(List.of(memoryInput), defaultVal, rand.nextInt(4), rand.nextInt(4)),
+                new StaticWaveProvider(functions.get(rand.nextInt(functions.size())),
+                        2 + rand.nextDouble() * 30, rand.nextDouble() * 2),
+                new VariableWaveNeuron(period, functions.get(rand.nextInt(functions.size())), 2, 32)
+        );
+
+        List<BoardNet.Decision> decisions = net.getDecisionNodes();
+        for (SignalProvider provider : stateful) {
+            BoardNet.Decision decision = decisions.get(rand.nextInt(decisions.size()));
+            decision.replaceInput(0, AdditionClipped.makeNeuron(decision.getInputs().get(0), provider));
+        }
+
+        return net.traceNeuronsSet();
+    }
+}
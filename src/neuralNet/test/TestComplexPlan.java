@@ -0,0 +1,251 @@
+package neuralNet.test;
+
+import game2048.*;
+import neuralNet.evolve.*;
+import neuralNet.function.*;
+import neuralNet.network.*;
+import neuralNet.neuron.*;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Checks how ExecutionPlan flattens ComplexNeurons (see PassThrough) in each of its modes.  Each mutant from
+ * AddNeurons has a ComplexNeuron spliced in front of one of its decision nodes (and, when it has two outputs, a second
+ * decision node), whose internal net is wired from its internal sensors to its internal decision nodes.  The complexes
+ * are nested up to NESTING deep, and every other mutant has a memory neuron in each internal net.  Sometimes one of
+ * the complex's inputs is a FixedValueProvider, so that an internal sensor is folded into a constant.
+ *
+ * The same structure is also built "unwrapped", directly in a clone of the mutant, which is the reference: clones with
+ * the complex then play the same full games alongside it in the eager, incremental, lazy and compiled modes, and
+ * their decision weights should be identical in every round.  Since the nets are reset between games, this also
+ * covers ComplexNeuron.reset() resetting the memory neurons of the internal nets.  Mutants with RandomValueProviders
+ * are skipped (and not mutated further), since the clones draw different random values.
+ */
+public class TestComplexPlan {
+    public static final int MUTANTS = 80;
+    public static final int NESTING = 2;
+    public static final int GAMES = 3;
+    public static final int MAX_ROUNDS = 5000;
+    public static final String[] MODES = { "eager", "incremental", "lazy", "compiled" };
+
+    private static final List<Function<List<SignalProvider>, CachingNeuron>> STATELESS = List.of(
+            Max::makeNeuron,
+            Min::makeNeuron,
+            Average::makeNeuron,
+            AdditionClipped::makeNeuron,
+            inputs -> DifferenceClipped.makeNeuron(inputs.subList(0, 2)),
+            inputs -> NegateBalanced.makeNeuron(inputs.subList(0, 1)),
+            inputs -> HardSwitch.makeNeuron(inputs.subList(0, 3)),
+            inputs -> SoftSwitch.makeNeuron(inputs.subList(0, 3))
+    );
+
+    public static void main(String[] args) {
+        Random rand = new Random(1022);
+        List<BoardNet> nets = new ArrayList<>();
+        nets.add(TestBoardNet.makeEdgeNet());
+
+        int tested = 0;
+        int skipped = 0;
+        int compiled = 0;
+        long rounds = 0;
+        int[] mismatches = new int[MODES.length];
+
+        for (int i = 0; i < MUTANTS; i++) {
+            BoardNet parent = nets.get(Math.max(0, nets.size() - 1 - rand.nextInt(8)));
+            BoardNet mutant = new AddNeurons<>(parent, 1, 0).makeMutation(1 + rand.nextInt(6));
+            if (mutant.getProviders().stream().anyMatch(provider -> provider instanceof RandomValueProvider)) {
+                skipped++;
+                continue;
+            }
+            nets.add(mutant);
+            tested++;
+
+            int depth = i % (NESTING + 1);
+            boolean memory = (i & 0b1) != 0;
+            Splice splice = new Splice(mutant, rand);
+
+            BoardNet reference = splice.apply(mutant, depth, memory, false);
+            ExecutionPlan referencePlan = reference.getExecutionPlan();
+
+            BoardNet[] complexes = new BoardNet[MODES.length];
+            ExecutionPlan[] plans = new ExecutionPlan[MODES.length];
+            for (int m = 0; m < MODES.length; m++) {
+                complexes[m] = splice.apply(mutant, depth, memory, true);
+                plans[m] = complexes[m].getExecutionPlan();
+            }
+            plans[1].setIncremental(true);
+            plans[2].setLazy(true);
+            plans[3].compile(false);
+            if (plans[3].isCompiled()) compiled++;
+
+            BoardInterface board = new BoardInterface();
+            DecisionRanking ranking = board.getDecisionRanking();
+            reference.setSensedObject(board);
+            for (BoardNet net : complexes) {
+                net.setSensedObject(board);
+            }
+
+            for (int g = 0; g < GAMES; g++) {
+                board.reset(rand.nextLong());
+                reference.reset();
+                for (BoardNet net : complexes) {
+                    net.reset();
+                }
+
+                for (int r = 0; r < MAX_ROUNDS && board.isActive(); r++) {
+                    reference.runRound();
+                    for (BoardNet net : complexes) {
+                        net.runRound();
+                    }
+                    rounds++;
+
+                    for (int m = 0; m < MODES.length; m++) {
+                        for (int d = 0; d < referencePlan.decisionCount(); d++) {
+                            short expected = referencePlan.getDecisionWeight(d);
+                            short actual = plans[m].getDecisionWeight(d);
+                            if (expected != actual && mismatches[m]++ < 10) {
+                                System.out.println("Mutant " + i + " (" + MODES[m] + ", nesting " + depth
+                                        + (memory ? ", memory" : "") + ") game " + g + " round " + r
+                                        + ", decision " + d + ": " + expected + " vs " + actual);
+                            }
+                        }
+                    }
+
+                    // the reference net decides, skipping NoOp rounds so that every net runs the same rounds
+                    boolean moved = false;
+                    for (int decisionId : ranking.rank(reference, false)) {
+                        if (decisionId != -1 && board.takeAction(decisionId)) {
+                            moved = true;
+                            break;
+                        }
+                    }
+                    if (!moved) break;
+                }
+            }
+        }
+
+        System.out.println(tested + " mutants tested (" + skipped + " skipped, " + compiled + " compiled) over "
+                + rounds + " rounds");
+        for (int m = 0; m < MODES.length; m++) {
+            System.out.println(MODES[m] + ": " + mismatches[m] + " mismatched weights");
+        }
+    }
+
+    /**
+     * Where the complex goes in the mutant, chosen once so that it can be applied the same way to each clone
+     */
+    private static class Splice {
+        private final int decision;
+        private final int secondDecision; // -1 for a single output
+        private final List<SignalProvider> inputs = new ArrayList<>();
+        private final Short fixedInput; // position 0 of the complex's inputs when not null
+        private final long seed;
+
+        private Splice(BoardNet mutant, Random rand) {
+            int decisions = mutant.getDecisionNodes().size();
+            this.decision = rand.nextInt(decisions);
+            this.secondDecision = rand.nextBoolean() ? (this.decision + 1 + rand.nextInt(decisions - 1)) % decisions
+                                                     : -1;
+
+            List<SignalProvider> providers = new ArrayList<>(mutant.getProviders());
+            this.inputs.add(mutant.getDecisionNodes().get(this.decision).getInputs().get(0));
+            for (int i = rand.nextInt(3); i > 0; i--) {
+                this.inputs.add(providers.get(rand.nextInt(providers.size())));
+            }
+            this.fixedInput = rand.nextInt(3) == 0 ? (short)rand.nextInt(Short.MIN_VALUE, Short.MAX_VALUE + 1)
+                                                   : null;
+            this.seed = rand.nextLong();
+        }
+
+        /**
+         * @return a clone of the mutant with the structure spliced into it, wrapped in complexes or not
+         */
+        private BoardNet apply(BoardNet mutant, int depth, boolean memory, boolean wrap) {
+            Map<SignalProvider, SignalProvider> providersMap = new IdentityHashMap<>();
+            BoardNet net = mutant.cloneWith(providersMap, null);
+
+            List<SignalProvider> inputs = new ArrayList<>(this.inputs.size() + 1);
+            if (this.fixedInput != null) inputs.add(new FixedValueProvider(this.fixedInput));
+            for (SignalProvider input : this.inputs) {
+                inputs.add(providersMap.get(input));
+            }
+
+            int outputs = this.secondDecision == -1 ? 1 : 2;
+            List<SignalProvider> built = build(inputs, outputs, depth, memory, wrap, new Random(this.seed));
+            net.getDecisionNodes().get(this.decision).replaceInput(0, built.get(0));
+            if (outputs == 2) net.getDecisionNodes().get(this.secondDecision).replaceInput(0, built.get(1));
+
+            return net.traceNeuronsSet();
+        }
+    }
+
+    /**
+     * Builds a small random structure over the inputs, either inside a ComplexNeuron or directly on top of the
+     * inputs.  Given the same seed, both make the same choices, so the unwrapped structure behaves the same as the
+     * complex
+     *
+     * @return the outputs, i.e. the complex's members when wrapped
+     */
+    private static List<SignalProvider> build(List<SignalProvider> inputs, int outputs, int depth, boolean memory,
+                                              boolean wrap, Random rand) {
+
+        if (!wrap) return body(new ArrayList<>(inputs), outputs, depth, memory, false, rand);
+
+        ComplexNeuron complex = new ComplexNeuron(inputs.size(), outputs);
+        NeuralNet<?, ?, ?> internal = complex.getInternalDecisionProvider();
+        List<SignalProvider> built = body(new ArrayList<>(internal.getSensors()), outputs, depth, memory, true, rand);
+
+        List<? extends DecisionNode<?, ?>> decisionNodes = internal.getDecisionNodes();
+        for (int i = 0; i < outputs; i++) {
+            decisionNodes.get(i).setInputs(List.of(built.get(i)));
+        }
+        internal.traceNeuronsSet();
+        complex.setInputs(inputs);
+
+        return new ArrayList<>(complex.getMembers());
+    }
+
+    /**
+     * Adds a few neurons to the pool, each taking its inputs from what is already in the pool: first a nested
+     * structure when depth is above 0, then a memory neuron if asked for, then stateless function neurons
+     *
+     * @return the last 'outputs' providers added to the pool
+     */
+    private static List<SignalProvider> body(List<SignalProvider> pool, int outputs, int depth, boolean memory,
+                                             boolean wrap, Random rand) {
+
+        int start = pool.size();
+        if (depth > 0) {
+            List<SignalProvider> nestedInputs = pick(pool, 1 + rand.nextInt(3), rand);
+            pool.addAll(build(nestedInputs, 1 + rand.nextInt(2), depth - 1, memory, wrap, rand));
+        }
+
+        if (memory) {
+            SignalProvider input = pool.get(rand.nextInt(pool.size()));
+            short defaultVal = (short)rand.nextInt(Short.MIN_VALUE, Short.MAX_VALUE + 1);
+            if (rand.nextBoolean()) {
+                pool.add(new ShortTermMemoryNeuron(input, defaultVal,
+                        rand.nextInt(4), rand.nextInt(4), 1 + rand.nextInt(4), rand.nextInt(4)));
+
+            } else {
+                pool.add(new LongTermMemoryNeuron(List.of(input), defaultVal, rand.nextInt(4), rand.nextInt(4)));
+            }
+        }
+
+        while (pool.size() - start < outputs + 2) {
+            Function<List<SignalProvider>, CachingNeuron> maker = STATELESS.get(rand.nextInt(STATELESS.size()));
+            pool.add(maker.apply(pick(pool, 3, rand)));
+        }
+
+        return new ArrayList<>(pool.subList(pool.size() - outputs, pool.size()));
+    }
+
+    private static List<SignalProvider> pick(List<SignalProvider> pool, int count, Random rand) {
+        List<SignalProvider> picked = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            picked.add(pool.get(rand.nextInt(pool.size())));
+        }
+        return picked;
+    }
+}
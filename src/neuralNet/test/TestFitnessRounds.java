@@ -0,0 +1,103 @@
+package neuralNet.test;
+
+import game2048.*;
+import neuralNet.evolve.*;
+import neuralNet.neuron.*;
+
+import java.util.*;
+
+/**
+ * Checks that a fitness test played in rounds by playGames() (as a racing EvolutionaryEngine plays it) gives the same
+ * fitness as testFitness() playing all the games in one go, both one game at a time and batched (which should also
+ * match each other).  With a gameSetSeed they all play the same games, so every score statistic should match, and
+ * BoardNetFitness.gamesPlayed should be the number of games which were actually played.  Mutants with
+ * RandomValueProviders are left out, since they don't play the same games the same way twice.
+ */
+public class TestFitnessRounds {
+    public static final int NETS = 12;
+    public static final int GAMES = 40;
+    public static final int[] ROUND_GAMES = { 1, 7, 16, GAMES };
+    public static final int[] BATCH_LANES = { 0, 8 };
+
+    public static void main(String[] args) {
+        Random rand = new Random(1025);
+        List<BoardNet> nets = new ArrayList<>();
+        nets.add(TestBoardNet.makeEdgeNet());
+        while (nets.size() < NETS) {
+            BoardNet parent = nets.get(rand.nextInt(nets.size()));
+            BoardNet mutant = new AddNeurons<>(parent, 1, 0).makeMutation(1 + rand.nextInt(6));
+
+            // a net with a RandomValueProvider won't repeat its scores
+            if (mutant.getProviders().stream().noneMatch(provider -> provider instanceof RandomValueProvider)) {
+                nets.add(mutant);
+            }
+        }
+
+        int mismatches = 0;
+        int miscounts = 0;
+        int tests = 0;
+
+        for (BoardNet net : nets) {
+            long seed = rand.nextLong();
+            BoardInterface.BoardNetFitness sequential = null;
+
+            for (int lanes : BATCH_LANES) {
+                BoardInterface board = new BoardInterface();
+                board.setBatchLanes(lanes);
+                board.setGameSetSeed(seed);
+                board.setGamesPerTest(GAMES);
+
+                BoardInterface.BoardNetFitness whole = board.testFitness(net, null);
+                if (whole.gamesPlayed != GAMES) {
+                    if (miscounts++ < 10) System.out.println(net + " played " + whole.gamesPlayed + " games in one go");
+                }
+
+                if (sequential == null) sequential = whole;
+                else if (!sameScores(whole, sequential) && mismatches++ < 10) {
+                    System.out.println(net + " (" + lanes + " lanes):\n" + sequential + "\nvs\n" + whole);
+                }
+
+                for (int roundGames : ROUND_GAMES) {
+                    BoardInterface.FitnessTest test = new BoardInterface.FitnessTest(net, GAMES);
+                    int played = 0;
+                    while (!test.isFinished()) {
+                        int before = test.getGamesRun();
+                        board.playGames(test, roundGames);
+                        int round = test.getGamesRun() - before;
+                        if (round != Math.min(roundGames, GAMES - before) && !test.isFinished()) {
+                            if (miscounts++ < 10) {
+                                System.out.println(net + " played " + round + " games in a round of " + roundGames);
+                            }
+                        }
+                        played += round;
+                    }
+
+                    BoardInterface.BoardNetFitness rounds = test.getFitness();
+                    tests++;
+
+                    if (rounds.gamesPlayed != played || played != GAMES) {
+                        if (miscounts++ < 10) {
+                            System.out.println(net + " (" + lanes + " lanes, rounds of " + roundGames + "): "
+                                    + rounds.gamesPlayed + " games recorded, " + played + " played");
+                        }
+                    }
+
+                    if (!sameScores(rounds, whole) && mismatches++ < 10) {
+                        System.out.println(net + " (" + lanes + " lanes, rounds of " + roundGames + "):\n"
+                                + whole + "\nvs\n" + rounds);
+                    }
+                }
+            }
+        }
+
+        System.out.println(tests + " tests, " + mismatches + " mismatched, " + miscounts + " miscounted games");
+    }
+
+    /**
+     * Batched games may finish in a different order, so the sum of the logs behind geoMean can differ in the last bits
+     */
+    private static boolean sameScores(BoardInterface.BoardNetFitness a, BoardInterface.BoardNetFitness b) {
+        return a.min == b.min && a.max == b.max && a.arthMean == b.arthMean && a.median == b.median
+                && Math.abs(a.geoMean - b.geoMean) <= a.geoMean * 1e-12;
+    }
+}
@@ -0,0 +1,175 @@
+package neuralNet.test;
+
+import game2048.*;
+import neuralNet.evolve.*;
+import neuralNet.function.*;
+import neuralNet.network.*;
+import neuralNet.neuron.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * Checks what ExecutionPlan leaves out of its rounds.  Each mutant from AddNeurons has a constant subgraph spliced in
+ * front of one of its decision nodes: neurons fed only by FixedValueProviders, plus a Min or Max which is saturated by
+ * a FixedValueProvider at Short.MIN_VALUE / Short.MAX_VALUE, whatever its other input is.  Each of those should be
+ * folded into a constant (see ExecutionPlan.isConstant()).  It also has a dead region added: neurons (including a
+ * memory neuron) which consume the net's providers, but which nothing reachable from a decision node consumes.  Each
+ * of those should be left out of the running providers.
+ *
+ * A clone of the mutant then plays the same full games using the pull-model round from DecisionProvider, i.e.
+ * before() / sense() / weighDecisions() / after() through the object graph, and the decision weights of the plan
+ * should be identical in every round.  Mutants with RandomValueProviders are skipped (and not mutated further), since
+ * the two nets draw different random values.
+ */
+public class TestFoldedPlan {
+    public static final int MUTANTS = 100;
+    public static final int GAMES = 3;
+    public static final int MAX_ROUNDS = 5000;
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        Field runningField = ExecutionPlan.class.getDeclaredField("running");
+        runningField.setAccessible(true);
+
+        Random rand = new Random(1006);
+        List<BoardNet> nets = new ArrayList<>();
+        nets.add(TestBoardNet.makeEdgeNet());
+
+        int tested = 0;
+        int skipped = 0;
+        int constants = 0;
+        int dead = 0;
+        int unfolded = 0;
+        int run = 0;
+        long rounds = 0;
+        int mismatches = 0;
+
+        for (int i = 0; i < MUTANTS; i++) {
+            BoardNet parent = nets.get(Math.max(0, nets.size() - 1 - rand.nextInt(8)));
+            BoardNet mutant = new AddNeurons<>(parent, 1, 0).makeMutation(1 + rand.nextInt(6));
+            if (mutant.getProviders().stream().anyMatch(provider -> provider instanceof RandomValueProvider)) {
+                skipped++;
+                continue;
+            }
+            nets.add(mutant);
+            tested++;
+
+            BoardNet net = mutant.clone();
+            List<SignalProvider> expectConstant = addConstants(net, rand);
+            List<SignalProvider> expectDead = addDeadRegion(net, rand);
+            net.traceNeuronsSet();
+            BoardNet pull = net.clone();
+
+            ExecutionPlan plan = net.getExecutionPlan();
+            Set<Integer> running = new HashSet<>();
+            for (int index : (int[]) runningField.get(plan)) {
+                running.add(index);
+            }
+
+            for (SignalProvider provider : expectConstant) {
+                constants++;
+                if (!plan.isConstant(plan.indexOf(provider)) && unfolded++ < 10) {
+                    System.out.println("Mutant " + i + ": " + provider + " wasn't folded into a constant");
+                }
+            }
+            for (SignalProvider provider : expectDead) {
+                dead++;
+                if (running.contains(plan.indexOf(provider)) && run++ < 10) {
+                    System.out.println("Mutant " + i + ": " + provider + " is run, but can't reach a decision");
+                }
+            }
+
+            BoardInterface board = new BoardInterface();
+            DecisionRanking ranking = board.getDecisionRanking();
+            net.setSensedObject(board);
+            pull.setSensedObject(board);
+            List<BoardNet.Decision> pullDecisions = pull.getDecisionNodes();
+
+            for (int g = 0; g < GAMES; g++) {
+                board.reset(rand.nextLong());
+                net.reset();
+                pull.reset();
+
+                for (int r = 0; r < MAX_ROUNDS && board.isActive(); r++) {
+                    net.runRound();
+                    pull.before();
+                    pull.sense();
+                    pull.weighDecisions();
+                    rounds++;
+
+                    for (int d = 0; d < plan.decisionCount(); d++) {
+                        short expected = pullDecisions.get(d).getWeight();
+                        short actual = plan.getDecisionWeight(d);
+                        if (expected != actual && mismatches++ < 10) {
+                            System.out.println("Mutant " + i + " game " + g + " round " + r + ", decision " + d
+                                    + ": " + expected + " vs " + actual);
+                        }
+                    }
+                    pull.after();
+
+                    // the plan's net decides, skipping NoOp rounds so that both nets run the same rounds
+                    boolean moved = false;
+                    for (int decisionId : ranking.rank(net, false)) {
+                        if (decisionId != -1 && board.takeAction(decisionId)) {
+                            moved = true;
+                            break;
+                        }
+                    }
+                    if (!moved) break;
+                }
+            }
+        }
+
+        System.out.println(tested + " mutants tested (" + skipped + " skipped) over " + rounds + " rounds, "
+                + mismatches + " mismatched weights");
+        System.out.println(unfolded + " of " + constants + " constants not folded, "
+                + run + " of " + dead + " dead providers run");
+    }
+
+    /**
+     * Splices a constant subgraph in front of a random decision node, averaged or summed with its current input
+     *
+     * @return the providers which should be folded into constants
+     */
+    private static List<SignalProvider> addConstants(BoardNet net, Random rand) {
+        List<SignalProvider> providers = new ArrayList<>(net.getProviders());
+        SignalProvider any = providers.get(rand.nextInt(providers.size()));
+
+        CachingNeuron fixedSum = AdditionClipped.makeNeuron(randomFixed(rand), randomFixed(rand));
+        CachingNeuron fixedMax = Max.makeNeuron(fixedSum, randomFixed(rand), randomFixed(rand));
+        CachingNeuron negated = NegateBalanced.makeNeuron(fixedMax);
+        CachingNeuron saturated = rand.nextBoolean() ? Min.makeNeuron(any, FixedValueProvider.makeMin())
+                                                     : Max.makeNeuron(FixedValueProvider.makeMax(), any);
+        CachingNeuron constant = Average.makeNeuron(negated, saturated);
+
+        List<BoardNet.Decision> decisions = net.getDecisionNodes();
+        BoardNet.Decision decision = decisions.get(rand.nextInt(decisions.size()));
+        SignalProvider displaced = decision.getInputs().get(0);
+        decision.replaceInput(0, rand.nextBoolean() ? Average.makeNeuron(displaced, constant)
+                                                    : AdditionClipped.makeNeuron(displaced, constant));
+
+        return List.of(fixedSum, fixedMax, negated, saturated, constant);
+    }
+
+    /**
+     * Adds neurons which consume the net's providers, but which nothing reachable from a decision node consumes
+     *
+     * @return the dead providers
+     */
+    private static List<SignalProvider> addDeadRegion(BoardNet net, Random rand) {
+        List<SignalProvider> providers = new ArrayList<>(net.getProviders());
+        SignalProvider a = providers.get(rand.nextInt(providers.size()));
+        SignalProvider b = providers.get(rand.nextInt(providers.size()));
+
+        CachingNeuron sum = AdditionClipped.makeNeuron(a, b);
+        CachingNeuron memory = new ShortTermMemoryNeuron(sum, (short)0,
+                rand.nextInt(4), rand.nextInt(4), 1 + rand.nextInt(4), rand.nextInt(4));
+        CachingNeuron tail = HardSwitch.makeNeuron(memory, a, randomFixed(rand));
+
+        return List.of(sum, memory, tail);
+    }
+
+    private static FixedValueProvider randomFixed(Random rand) {
+        return new FixedValueProvider((short)rand.nextInt(Short.MIN_VALUE, Short.MAX_VALUE + 1));
+    }
+}
@@ -0,0 +1,270 @@
+package neuralNet.test;
+
+import neuralNet.function.*;
+import neuralNet.neuron.*;
+
+import java.util.*;
+
+import static neuralNet.util.Util.*;
+
+/**
+ * Compares the integer / fixed-point kernels of the arithmetic NeuralFunctions against their original double
+ * calculations (copied below as Reference), through both calcOutput() variants.  The inputs are random, but skewed
+ * towards the cases where rounding is most likely to go astray: extremes, clusters of nearly equal values, tiny
+ * values (where exact ties are common), and equal weights.  The outputs should always be identical.
+ */
+public class TestFunctionKernels {
+    public static final int TRIALS = 200_000;
+
+    private static final Random rand = new Random(1018);
+    private static final Map<String, Integer> mismatches = new TreeMap<>();
+    private static long comparisons = 0;
+
+    public static void main(String[] args) {
+        for (int t = 0; t < TRIALS; t++) {
+            short[] inputs = randomInputs(2 + rand.nextInt(rand.nextBoolean() ? 3 : 255));
+
+            check(MultiplyClipped.INSTANCE, inputs, Reference.multiplyClipped(inputs));
+            check(MultiplyNormalized.INSTANCE, inputs, Reference.multiplyNormalized(inputs));
+            check(Deviation.INSTANCE, inputs, Reference.deviation(inputs));
+            check(Uniformity.INSTANCE, inputs, Reference.uniformity(inputs));
+
+            short[] pair = randomInputs(2);
+            check(MultiplyNormalized.INSTANCE, pair, Reference.multiplyNormalized(pair));
+
+            double[] weights = randomWeights(inputs.length);
+            check(new WeightedAverage(weights), inputs, Reference.weightedAverage(inputs, weights));
+
+            short[] paired = randomInputs(2 * (1 + rand.nextInt(rand.nextBoolean() ? 2 : 128)));
+            double logMin, logMax;
+            if (rand.nextInt(10) == 0) { // equal weights
+                logMin = logMax = rand.nextGaussian() * 5;
+
+            } else if (rand.nextInt(20) == 0) { // too large for the lookup tables
+                logMin = rand.nextGaussian() * 600;
+                logMax = rand.nextGaussian() * 600;
+
+            } else {
+                logMin = rand.nextGaussian() * 10;
+                logMax = rand.nextGaussian() * 10;
+            }
+            check(new VariableWeightedAverage(null, logMin, logMax), paired,
+                    Reference.variableWeightedAverage(paired, logMin, logMax));
+
+            short[] switched = randomInputs(3 + rand.nextInt(63));
+            switched[0] = (short)rand.nextInt(Short.MIN_VALUE, Short.MAX_VALUE + 1);
+            check(SoftSwitch.INSTANCE, switched, Reference.softSwitch(switched));
+        }
+
+        // geometric means of every possible second input, for a sample of first inputs
+        short[] pair = new short[2];
+        for (int a = 0; a < 500; a++) {
+            pair[0] = (short)rand.nextInt(Short.MIN_VALUE, Short.MAX_VALUE + 1);
+            for (int b = Short.MIN_VALUE; b <= Short.MAX_VALUE; b++) {
+                pair[1] = (short)b;
+                short expected = Reference.multiplyNormalized(pair);
+                comparisons++;
+                if (MultiplyNormalized.INSTANCE.calcOutput(pair, 0, 2) != expected) {
+                    mismatch("MultiplyNormalized (exhaustive)", pair, expected);
+                }
+            }
+        }
+
+        // every control input of a few soft switches
+        for (int len = 3; len <= 65; len += 7) {
+            short[] switched = randomInputs(len);
+            for (int control = Short.MIN_VALUE; control <= Short.MAX_VALUE; control++) {
+                switched[0] = (short)control;
+                short expected = Reference.softSwitch(switched);
+                comparisons++;
+                if (SoftSwitch.INSTANCE.calcOutput(switched, 0, len) != expected) {
+                    mismatch("SoftSwitch (exhaustive)", switched, expected);
+                }
+            }
+        }
+
+        System.out.println(comparisons + " comparisons, mismatches: " + mismatches);
+    }
+
+    private static void check(NeuralFunction function, short[] inputs, short expected) {
+        // offset into a larger array, to check the indexing too
+        short[] padded = new short[inputs.length + 2];
+        System.arraycopy(inputs, 0, padded, 1, inputs.length);
+
+        List<SignalProvider> providers = new ArrayList<>(inputs.length);
+        for (short input : inputs) {
+            providers.add(new FixedValueProvider(input));
+        }
+
+        comparisons += 2;
+        if (function.calcOutput(padded, 1, inputs.length) != expected
+                || function.calcOutput(providers) != expected) {
+
+            mismatch(function.getClass().getSimpleName(), inputs, expected);
+        }
+    }
+
+    private static void mismatch(String function, short[] inputs, short expected) {
+        int count = mismatches.merge(function, 1, Integer::sum);
+        if (count <= 5) {
+            System.out.println(function + " " + Arrays.toString(inputs) + " expected " + expected);
+        }
+    }
+
+    private static short[] randomInputs(int length) {
+        short[] inputs = new short[length];
+        int mode = rand.nextInt(5);
+        int center = rand.nextInt(Short.MIN_VALUE, Short.MAX_VALUE + 1);
+        int spread = 1 + rand.nextInt(8);
+
+        for (int i = 0; i < length; i++) {
+            switch (mode) {
+                case 0: // full range
+                    inputs[i] = (short)rand.nextInt(Short.MIN_VALUE, Short.MAX_VALUE + 1);
+                    break;
+
+                case 1: // extremes
+                    inputs[i] = (short)(rand.nextBoolean() ? Short.MAX_VALUE - rand.nextInt(3)
+                                                           : Short.MIN_VALUE + rand.nextInt(3));
+                    break;
+
+                case 2: // clustered, so that the deviation is small compared to the values
+                    inputs[i] = clip(center + rand.nextInt(-spread, spread + 1));
+                    break;
+
+                case 3: // small values, where exact ties are common
+                    inputs[i] = (short)rand.nextInt(-4, 5);
+                    break;
+
+                default: // a few distinct values
+                    inputs[i] = (short)(center + spread * 1000 * rand.nextInt(3));
+            }
+        }
+        return inputs;
+    }
+
+    private static double[] randomWeights(int length) {
+        double[] weights = new double[length];
+        int mode = rand.nextInt(3);
+        for (int i = 0; i < length; i++) {
+            switch (mode) {
+                case 0: // equal
+                    weights[i] = 2.5;
+                    break;
+
+                case 1: // small integers
+                    weights[i] = 1 + rand.nextInt(4);
+                    break;
+
+                default: // widely varying magnitudes
+                    weights[i] = Math.exp(rand.nextGaussian() * 8);
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * The original double calculations of each function's calcOutput(short[], int, int)
+     */
+    private static class Reference {
+        private static short multiplyClipped(short[] inputs) {
+            double product = 1;
+
+            for (short input : inputs) {
+                double val = (input + ZEROIZE) / MAX_PLUS_ONE;
+                if (val == 0) return Short.MIN_VALUE;
+                product *= val;
+            }
+
+            return clip(product * MAX_PLUS_ONE - ZEROIZE);
+        }
+
+        private static short multiplyNormalized(short[] inputs) {
+            double sumLog = 0;
+
+            for (short input : inputs) {
+                double val = (input + ZEROIZE) / MAX_PLUS_ONE;
+                if (val == 0) return Short.MIN_VALUE;
+                sumLog += Math.log(val);
+            }
+
+            return roundClip(Math.exp(sumLog / inputs.length) * MAX_PLUS_ONE - ZEROIZE);
+        }
+
+        private static double standardDeviation(short[] inputs) {
+            int sum = 0;
+            for (short input : inputs) {
+                sum += input;
+            }
+
+            double mean = (double)sum / inputs.length;
+            double sumSq = 0;
+
+            for (short input : inputs) {
+                double diff = mean - input;
+                sumSq += diff * diff;
+            }
+
+            return Math.sqrt(sumSq / inputs.length);
+        }
+
+        private static short deviation(short[] inputs) {
+            return roundClip(standardDeviation(inputs) * 2 + Short.MIN_VALUE);
+        }
+
+        private static short uniformity(short[] inputs) {
+            return roundClip(Short.MAX_VALUE - standardDeviation(inputs) * 2);
+        }
+
+        private static short weightedAverage(short[] inputs, double[] weights) {
+            double sum = 0;
+            double weightSum = 0;
+            for (double weight : weights) {
+                weightSum += weight;
+            }
+
+            for (int i = 0; i < inputs.length; i++) {
+                sum += inputs[i] * weights[i];
+            }
+
+            return roundClip(sum / weightSum);
+        }
+
+        private static short variableWeightedAverage(short[] inputs, double logMin, double logMax) {
+            double logRange = logMax - logMin;
+            double sum = 0;
+            double sumWeight = 0;
+
+            for (int i = 0; i < inputs.length; i += 2) {
+                double weight = Math.exp((inputs[i + 1] + ZEROIZE) * logRange / RANGE + logMin);
+                sum += weight * inputs[i];
+                sumWeight += weight;
+            }
+
+            return roundClip(sum / sumWeight);
+        }
+
+        private static short softSwitch(short[] inputs) {
+            int len = inputs.length;
+            double index = (inputs[0] + ZEROIZE_INT) * (len - 2) * RANGE_INV + 1;
+
+            int primary = (int)Math.round(index);
+            if (primary >= len) primary = len - 1;
+            else if (primary < 1) primary = 1;
+
+            double secondaryWeight = index - primary;
+            int secondary;
+            if (secondaryWeight >= 0) {
+                secondary = primary + 1;
+                if (secondary >= len) return inputs[primary];
+
+            } else {
+                secondaryWeight = -secondaryWeight;
+                secondary = primary - 1;
+            }
+
+            double primaryWeight = 1 - secondaryWeight;
+            return (short)Math.round(primaryWeight * inputs[primary] + secondaryWeight * inputs[secondary]);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package neuralNet.test;
+
+import game2048.*;
+import neuralNet.evolve.*;
+import neuralNet.network.*;
+import neuralNet.neuron.*;
+
+import java.util.*;
+
+/**
+ * Checks the neural hashes which mutants inherit from their parents (see NeuralNet.cloneNeurons() and
+ * CachingNeuron.invalidateNeuralHashes()) against a full recalculation.  Each mutant is made from a recent net by
+ * AddNeurons, by tweaking a neuron in place of the original (as TweakTrial would), or by rewiring inputs with
+ * setInputs() / replaceInput() / addInput().  Then every provider's hash and the net's hash are compared with those of
+ * a fresh clone of the mutant, which inherits no hashes at all.  There should be no mismatches.
+ */
+public class TestHashInheritance {
+    public static final int MUTANTS = 600;
+    public static final int REWIRES = 6;
+
+    private static final Random rand = new Random(1013);
+
+    public static void main(String[] args) {
+        List<BoardNet> nets = new ArrayList<>();
+        nets.add(TestBoardNet.makeEdgeNet());
+        nets.get(0).getNeuralHash();
+
+        int mismatches = 0;
+        int looping = 0;
+        int rejected = 0;
+
+        for (int i = 0; i < MUTANTS; i++) {
+            BoardNet parent = nets.get(Math.max(0, nets.size() - 1 - rand.nextInt(8)));
+            BoardNet mutant;
+
+            switch (i % 3) {
+                case 0:
+                    mutant = new AddNeurons<>(parent, 1, 0).makeMutation(1 + rand.nextInt(6));
+                    break;
+
+                case 1:
+                    mutant = parent.clone();
+                    if (!tweak(mutant)) rejected++;
+                    break;
+
+                default:
+                    mutant = parent.clone();
+                    for (int r = 0; r < REWIRES; r++) {
+                        if (!rewire(mutant)) rejected++;
+                    }
+            }
+            mutant.traceNeuronsSet();
+
+            int mismatched = compare(mutant);
+            if (mismatched > 0 && mismatches++ < 10) {
+                System.out.println("Mutant " + i + " (" + (i % 3) + "): " + mismatched + " mismatched hashes");
+            }
+
+            for (SignalProvider provider : mutant.getProviders()) {
+                if (provider instanceof LoopingNeuron) {
+                    looping++;
+                    break;
+                }
+            }
+            nets.add(mutant);
+        }
+
+        System.out.println(MUTANTS + " mutants (" + looping + " with looping neurons, " + rejected
+                + " rejected changes), " + mismatches + " mismatched");
+    }
+
+    /**
+     * @return the number of providers whose hash differs from a fresh clone's, plus one if the net's hash does
+     */
+    private static int compare(BoardNet mutant) {
+        // the mutant's hashes first, while they can still be inherited
+        long netHash = mutant.getNeuralHash();
+        Map<SignalProvider, Long> hashes = new IdentityHashMap<>();
+        for (SignalProvider provider : mutant.getProviders()) {
+            hashes.put(provider, provider.getNeuralHash());
+        }
+
+        // cloning with a map (even an empty one) never inherits hashes
+        Map<SignalProvider, SignalProvider> clones = new IdentityHashMap<>();
+        BoardNet fresh = mutant.cloneWith(clones, null);
+        for (SignalProvider provider : fresh.getProviders()) {
+            provider.clearHashCache();
+        }
+
+        int mismatched = fresh.getNeuralHash() != netHash ? 1 : 0;
+        for (Map.Entry<SignalProvider, Long> entry : hashes.entrySet()) {
+            if (clones.get(entry.getKey()).getNeuralHash() != entry.getValue()) mismatched++;
+        }
+        return mismatched;
+    }
+
+    /**
+     * Replaces a random tweakable neuron with a tweaked copy, wired to the same inputs and consumers
+     */
+    private static boolean tweak(BoardNet net) {
+        List<CachingNeuron> tweakables = new ArrayList<>();
+        for (SignalProvider provider : net.getProviders()) {
+            if (provider instanceof CachingNeuron neuron && provider instanceof SignalProvider.Tweakable
+                    && !(provider instanceof ComplexNeuronMember)) {
+                tweakables.add(neuron);
+            }
+        }
+        if (tweakables.isEmpty()) return false;
+
+        CachingNeuron original = tweakables.get(rand.nextInt(tweakables.size()));
+        SignalProvider.Tweakable<?> tweakable = (SignalProvider.Tweakable<?>)original;
+        List<Tweakable.Param> params = tweakable.getTweakingParams();
+        short[] tweaks = new short[params.size()];
+        for (int p = 0; p < tweaks.length; p++) {
+            // small tweaks, so that memory windows etc. stay a reasonable size
+            Tweakable.Param param = params.get(p);
+            tweaks[p] = (short)Math.max(param.min, Math.min(param.max, rand.nextInt(-64, 65)));
+        }
+
+        CachingNeuron tweaked = (CachingNeuron)tweakable.tweak(tweaks);
+        List<SignalProvider> inputs = new ArrayList<>(original.getInputs());
+
+        // decision nodes don't register as consumers of their inputs
+        List<SignalConsumer> consumers = new ArrayList<>(original.getConsumers());
+        consumers.addAll(net.getDecisionNodes());
+
+        try {
+            // via placeholders, so that the tweaked neuron registers as a consumer of the original's inputs
+            tweaked.setInputs(Collections.nCopies(inputs.size(), FixedValueProvider.makeZero()));
+            tweaked.setInputs(inputs);
+            for (SignalConsumer consumer : consumers) {
+                consumer.replaceInput(original, tweaked);
+            }
+
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+
+        for (SignalProvider input : inputs) {
+            input.removeConsumer(original);
+        }
+        return true;
+    }
+
+    /**
+     * Changes the inputs of a random neuron or decision node, which may be rejected as a circular reference
+     */
+    private static boolean rewire(BoardNet net) {
+        List<SignalProvider> providers = new ArrayList<>(net.getProviders());
+        List<SignalConsumer> consumers = new ArrayList<>();
+        for (SignalConsumer consumer : net.getConsumers()) {
+            if (!(consumer instanceof ComplexNeuronMember)) consumers.add(consumer);
+        }
+
+        SignalConsumer consumer = consumers.get(rand.nextInt(consumers.size()));
+        List<SignalProvider> inputs = consumer.getInputs();
+        SignalProvider provider = providers.get(rand.nextInt(providers.size()));
+
+        try {
+            switch (rand.nextInt(3)) {
+                case 0:
+                    if (inputs.isEmpty()) return false;
+                    consumer.replaceInput(rand.nextInt(inputs.size()), provider);
+                    break;
+
+                case 1:
+                    if (inputs.size() >= consumer.getMaxInputs() || consumer.pairedInputs()) return false;
+                    consumer.addInput(provider);
+                    break;
+
+                default:
+                    List<SignalProvider> newInputs = new ArrayList<>(inputs);
+                    for (int i = 0; i < newInputs.size(); i++) {
+                        if (rand.nextBoolean()) newInputs.set(i, providers.get(rand.nextInt(providers.size())));
+                    }
+                    consumer.setInputs(newInputs);
+            }
+
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,154 @@
+package neuralNet.test;
+
+import game2048.*;
+import neuralNet.evolve.*;
+import neuralNet.function.*;
+import neuralNet.network.*;
+import neuralNet.neuron.*;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Checks ExecutionPlan's lazy mode (see ExecutionPlan.setLazy()) against the usual eager rounds.  Each mutant from
+ * AddNeurons has HardSwitch, SoftSwitch, SoftSwitchCircular, Min, Max, Ceiling and Floor neurons spliced into it (the
+ * functions which demand only some of their inputs), including Ceilings and Floors which never demand their input.
+ * Two clones of it then play the same full games side by side, one eager and one lazy, and their decision weights
+ * should be identical in every round.  Mutants with RandomValueProviders are skipped (and not mutated further), since
+ * the two clones draw different random values.
+ */
+public class TestLazyPlan {
+    public static final int MUTANTS = 150;
+    public static final int GAMES = 3;
+    public static final int MAX_ROUNDS = 5000;
+
+    private static final List<Function<Random, CachingNeuron>> SPLICED = List.of(
+            rand -> HardSwitch.makeNeuron(),
+            rand -> SoftSwitch.makeNeuron(),
+            rand -> SoftSwitchCircular.makeNeuron(),
+            rand -> Min.makeNeuron(),
+            rand -> Max.makeNeuron(),
+            rand -> Ceiling.makeNeuron(randomBound(rand, Short.MIN_VALUE)),
+            rand -> Floor.makeNeuron(randomBound(rand, Short.MAX_VALUE))
+    );
+
+    public static void main(String[] args) {
+        Random rand = new Random(1020);
+        List<BoardNet> nets = new ArrayList<>();
+        nets.add(TestBoardNet.makeEdgeNet());
+
+        int tested = 0;
+        int skipped = 0;
+        long rounds = 0;
+        int mismatches = 0;
+
+        for (int i = 0; i < MUTANTS; i++) {
+            BoardNet parent = nets.get(Math.max(0, nets.size() - 1 - rand.nextInt(8)));
+            BoardNet mutant = new AddNeurons<>(parent, 1, 0).makeMutation(1 + rand.nextInt(6));
+            for (Function<Random, CachingNeuron> maker : SPLICED) {
+                for (int tries = 0; tries < 10 && !splice(mutant, maker.apply(rand), rand); tries++);
+            }
+            mutant.traceNeuronsSet();
+
+            if (mutant.getProviders().stream().anyMatch(provider -> provider instanceof RandomValueProvider)) {
+                skipped++;
+                continue;
+            }
+            nets.add(mutant);
+            tested++;
+
+            BoardNet eager = mutant.clone();
+            BoardNet lazy = mutant.clone();
+            ExecutionPlan eagerPlan = eager.getExecutionPlan();
+            ExecutionPlan lazyPlan = lazy.getExecutionPlan();
+            lazyPlan.setLazy(true);
+
+            BoardInterface board = new BoardInterface();
+            DecisionRanking ranking = board.getDecisionRanking();
+            eager.setSensedObject(board);
+            lazy.setSensedObject(board);
+
+            for (int g = 0; g < GAMES; g++) {
+                board.reset(rand.nextLong());
+                eager.reset();
+                lazy.reset();
+
+                for (int r = 0; r < MAX_ROUNDS && board.isActive(); r++) {
+                    eager.runRound();
+                    lazy.runRound();
+                    rounds++;
+
+                    for (int d = 0; d < eagerPlan.decisionCount(); d++) {
+                        if (eagerPlan.getDecisionWeight(d) != lazyPlan.getDecisionWeight(d) && mismatches++ < 10) {
+                            System.out.println("Mutant " + i + " game " + g + " round " + r + ", decision " + d + ": "
+                                    + eagerPlan.getDecisionWeight(d) + " vs " + lazyPlan.getDecisionWeight(d));
+                        }
+                    }
+
+                    // the eager net decides, skipping NoOp rounds so that both nets run the same rounds
+                    boolean moved = false;
+                    for (int decisionId : ranking.rank(eager, false)) {
+                        if (decisionId != -1 && board.takeAction(decisionId)) {
+                            moved = true;
+                            break;
+                        }
+                    }
+                    if (!moved) break;
+                }
+            }
+        }
+
+        System.out.println(tested + " mutants tested (" + skipped + " skipped) over " + rounds + " rounds, "
+                + mismatches + " mismatched weights");
+    }
+
+    /**
+     * Places the neuron in front of a random input of a random consumer, with the displaced input as one of its own
+     * inputs and random providers as the rest
+     *
+     * @return false if it would have created a circular reference, in which case the net is left as it was
+     */
+    private static boolean splice(BoardNet net, CachingNeuron neuron, Random rand) {
+        List<SignalProvider> providers = new ArrayList<>(net.getProviders());
+        List<SignalConsumer> consumers = new ArrayList<>(net.getDecisionNodes());
+        for (SignalProvider provider : providers) {
+            if (provider instanceof CachingNeuron consumer && !(provider instanceof ComplexNeuronMember)) {
+                consumers.add(consumer);
+            }
+        }
+
+        // half the time directly in front of a decision node, where it can't be masked by the rest of the net
+        List<? extends SignalConsumer> from = rand.nextBoolean() ? net.getDecisionNodes() : consumers;
+        SignalConsumer consumer = from.get(rand.nextInt(from.size()));
+        if (consumer.inputsSize() == 0) return false;
+        int index = rand.nextInt(consumer.inputsSize());
+
+        int min = neuron.getMinInputs();
+        int size = min + rand.nextInt(Math.min(neuron.getMaxInputs() - min, 4) + 1);
+        if (neuron.pairedInputs() && (size & 0b1) != 0) size += size < neuron.getMaxInputs() ? 1 : -1;
+
+        List<SignalProvider> inputs = new ArrayList<>(size);
+        inputs.add(consumer.getInputs().get(index));
+        while (inputs.size() < size) {
+            inputs.add(providers.get(rand.nextInt(providers.size())));
+        }
+        Collections.shuffle(inputs, rand);
+
+        neuron.setInputs(inputs);
+        try {
+            consumer.replaceInput(index, neuron);
+
+        } catch (IllegalArgumentException e) {
+            neuron.clearInputs();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return a random ceiling or floor, a quarter of the time the lazy one (which never demands its input)
+     */
+    private static short randomBound(Random rand, short lazy) {
+        return rand.nextInt(4) == 0 ? lazy : (short)rand.nextInt(Short.MIN_VALUE, Short.MAX_VALUE + 1);
+    }
+}
@@ -0,0 +1,156 @@
+package neuralNet.test;
+
+import game2048.*;
+import neuralNet.evolve.*;
+import neuralNet.function.*;
+import neuralNet.network.*;
+import neuralNet.neuron.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * Checks ExecutionPlan's merging of duplicate providers (see ExecutionPlan.getAlias()).  Each mutant from AddNeurons
+ * has two identical stateless neurons added, i.e. the same function of the same two sensors, each in front of a
+ * different decision node.  It also has a pair with the same neural hash but different inputs: the same function of
+ * two identical memory neurons, which share an input but are stateful, so that they are never merged themselves.  Only
+ * the first pair should be merged, with the later of the two in plan order aliasing the earlier one.
+ *
+ * A clone of the mutant then plays the same full games using the pull-model round from DecisionProvider, and the
+ * decision weights of the plan should be identical in every round.  After every round, the duplicate's cache should
+ * also hold the same output as its original, for any consumer which reads it through the object graph.  Mutants with
+ * RandomValueProviders are skipped (and not mutated further), since the two nets draw different random values.
+ */
+public class TestMergedPlan {
+    public static final int MUTANTS = 60;
+    public static final int GAMES = 3;
+    public static final int MAX_ROUNDS = 5000;
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        Method getCache = CachingProvider.class.getDeclaredMethod("getCache");
+        getCache.setAccessible(true);
+
+        Random rand = new Random(1007);
+        List<BoardNet> nets = new ArrayList<>();
+        nets.add(TestBoardNet.makeEdgeNet());
+
+        int tested = 0;
+        int skipped = 0;
+        int unmerged = 0;
+        int wronglyMerged = 0;
+        int hashMismatches = 0;
+        long rounds = 0;
+        int mismatches = 0;
+        int staleCaches = 0;
+
+        for (int i = 0; i < MUTANTS; i++) {
+            BoardNet parent = nets.get(Math.max(0, nets.size() - 1 - rand.nextInt(8)));
+            BoardNet mutant = new AddNeurons<>(parent, 1, 0).makeMutation(1 + rand.nextInt(6));
+            if (mutant.getProviders().stream().anyMatch(provider -> provider instanceof RandomValueProvider)) {
+                skipped++;
+                continue;
+            }
+            nets.add(mutant);
+            tested++;
+
+            BoardNet net = mutant.clone();
+            List<BoardNet.Sensor> sensors = net.getSensors();
+            SignalProvider p = sensors.get(rand.nextInt(sensors.size()));
+            SignalProvider q = sensors.get(rand.nextInt(sensors.size()));
+            SignalProvider r = sensors.get(rand.nextInt(sensors.size()));
+
+            CachingNeuron identical1 = DifferenceClipped.makeNeuron(p, q);
+            CachingNeuron identical2 = DifferenceClipped.makeNeuron(p, q);
+
+            int delay = rand.nextInt(4), fadeIn = rand.nextInt(4), length = 1 + rand.nextInt(4);
+            CachingNeuron memory1 = new ShortTermMemoryNeuron(r, (short)0, delay, fadeIn, length, 0);
+            CachingNeuron memory2 = new ShortTermMemoryNeuron(r, (short)0, delay, fadeIn, length, 0);
+            CachingNeuron sameHash1 = NegateBalanced.makeNeuron(memory1);
+            CachingNeuron sameHash2 = NegateBalanced.makeNeuron(memory2);
+
+            List<BoardNet.Decision> decisions = net.getDecisionNodes();
+            int d1 = rand.nextInt(decisions.size());
+            int d2 = (d1 + 1 + rand.nextInt(decisions.size() - 1)) % decisions.size();
+            addInFront(decisions.get(d1), identical1, sameHash1);
+            addInFront(decisions.get(d2), identical2, sameHash2);
+            net.traceNeuronsSet();
+            BoardNet pull = net.clone();
+
+            if (sameHash1.getNeuralHash() != sameHash2.getNeuralHash() && hashMismatches++ < 10) {
+                System.out.println("Mutant " + i + ": the same-hash pair has different hashes");
+            }
+
+            ExecutionPlan plan = net.getExecutionPlan();
+            int index1 = plan.indexOf(identical1), index2 = plan.indexOf(identical2);
+            int original = Math.min(index1, index2), duplicate = Math.max(index1, index2);
+            if ((plan.getAlias(duplicate) != original || plan.getAlias(original) != -1) && unmerged++ < 10) {
+                System.out.println("Mutant " + i + ": the identical pair wasn't merged, aliases "
+                        + plan.getAlias(original) + " / " + plan.getAlias(duplicate));
+            }
+            for (SignalProvider provider : List.of(memory1, memory2, sameHash1, sameHash2)) {
+                if (plan.getAlias(plan.indexOf(provider)) != -1 && wronglyMerged++ < 10) {
+                    System.out.println("Mutant " + i + ": " + provider + " was merged");
+                }
+            }
+
+            BoardInterface board = new BoardInterface();
+            DecisionRanking ranking = board.getDecisionRanking();
+            net.setSensedObject(board);
+            pull.setSensedObject(board);
+            List<BoardNet.Decision> pullDecisions = pull.getDecisionNodes();
+
+            for (int g = 0; g < GAMES; g++) {
+                board.reset(rand.nextLong());
+                net.reset();
+                pull.reset();
+
+                for (int round = 0; round < MAX_ROUNDS && board.isActive(); round++) {
+                    net.runRound();
+                    pull.before();
+                    pull.sense();
+                    pull.weighDecisions();
+                    rounds++;
+
+                    for (int d = 0; d < plan.decisionCount(); d++) {
+                        short expected = pullDecisions.get(d).getWeight();
+                        short actual = plan.getDecisionWeight(d);
+                        if (expected != actual && mismatches++ < 10) {
+                            System.out.println("Mutant " + i + " game " + g + " round " + round + ", decision " + d
+                                    + ": " + expected + " vs " + actual);
+                        }
+                    }
+                    pull.after();
+
+                    Object cached = getCache.invoke(plan.getProvider(duplicate));
+                    if (!Objects.equals(cached, plan.getSignal(original)) && staleCaches++ < 10) {
+                        System.out.println("Mutant " + i + " game " + g + " round " + round + ": duplicate cached "
+                                + cached + ", original " + plan.getSignal(original));
+                    }
+
+                    // the plan's net decides, skipping NoOp rounds so that both nets run the same rounds
+                    boolean moved = false;
+                    for (int decisionId : ranking.rank(net, false)) {
+                        if (decisionId != -1 && board.takeAction(decisionId)) {
+                            moved = true;
+                            break;
+                        }
+                    }
+                    if (!moved) break;
+                }
+            }
+        }
+
+        System.out.println(tested + " mutants tested (" + skipped + " skipped) over " + rounds + " rounds, "
+                + mismatches + " mismatched weights, " + staleCaches + " stale duplicate caches");
+        System.out.println(unmerged + " identical pairs not merged, " + wronglyMerged + " other providers merged, "
+                + hashMismatches + " same-hash pairs with different hashes");
+    }
+
+    /**
+     * Replaces the decision node's input with the sum of its current input and the two neurons
+     */
+    private static void addInFront(BoardNet.Decision decision, SignalProvider neuron1, SignalProvider neuron2) {
+        SignalProvider displaced = decision.getInputs().get(0);
+        decision.replaceInput(0, AdditionClipped.makeNeuron(displaced, neuron1, neuron2));
+    }
+}
@@ -0,0 +1,156 @@
+package neuralNet.test;
+
+import game2048.*;
+import neuralNet.evolve.*;
+import neuralNet.neuron.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Checks that the neural hashes of feedback loops through memory neurons (see NeuralLoop) don't depend upon the order
+ * in which the loops are traced.  The hashes of each mutant are calculated once as a reference, then recalculated from
+ * scratch on the same net (in a different order), on a clone and on a serialized copy, and every neuron's hash and the
+ * net's hash should match.  So should a clone which inherits its original's hashes, once its loops are traced (which
+ * takes the shortcut at the top of NeuralLoop.calcNeuralHashes()).
+ */
+public class TestNeuralLoop {
+    public static final int MUTANTS = 400;
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        Random rand = new Random(1014);
+        List<BoardNet> nets = new ArrayList<>();
+        nets.add(TestBoardNet.makeEdgeNet());
+
+        int looped = 0;
+        int[] mismatches = new int[5];
+        String[] variants = { "reordered", "clone", "deserialized", "inherited", "inherited (reordered)" };
+
+        for (int i = 0; i < MUTANTS; i++) {
+            BoardNet parent = nets.get(Math.max(0, nets.size() - 1 - rand.nextInt(8)));
+            BoardNet mutant = new AddNeurons<>(parent, 1, 0).makeMutation(1 + rand.nextInt(6));
+            nets.add(mutant);
+
+            // the reference hashes
+            Map<SignalProvider, Long> hashes = recalculate(mutant, rand);
+            long netHash = mutant.getNeuralHash();
+            if (!hasLoop(mutant)) continue;
+            looped++;
+
+            BoardNet[] copies = {
+                    mutant,
+                    mutant.cloneWith(new IdentityHashMap<>(), null),
+                    deserialize(serialize(mutant)),
+                    mutant.clone(),
+                    mutant.clone()
+            };
+
+            for (int v = 0; v < copies.length; v++) {
+                BoardNet copy = copies[v];
+                Map<SignalProvider, SignalProvider> same = correspond(mutant, copy);
+
+                if (v < 3) {
+                    recalculate(copy, rand);
+
+                } else {
+                    // inherited hashes are returned without tracing, so the loops are traced separately
+                    List<SignalProvider> providers = new ArrayList<>(copy.getProviders());
+                    if (v == 4) Collections.shuffle(providers, rand);
+                    for (SignalProvider provider : providers) {
+                        if (provider instanceof CachingNeuron neuron) neuron.getLoop();
+                    }
+                }
+
+                int mismatched = copy.getNeuralHash() != netHash ? 1 : 0;
+                for (Map.Entry<SignalProvider, Long> entry : hashes.entrySet()) {
+                    // neurons which don't lead to a decision node can't be matched up
+                    SignalProvider copied = same.get(entry.getKey());
+                    if (copied != null && copied.getNeuralHash() != entry.getValue()) mismatched++;
+                }
+
+                if (mismatched > 0 && mismatches[v]++ < 5) {
+                    System.out.println("Mutant " + i + " " + variants[v] + ": " + mismatched + " mismatched hashes");
+                }
+            }
+        }
+
+        System.out.println(MUTANTS + " mutants (" + looped + " with feedback loops)");
+        for (int v = 0; v < variants.length; v++) {
+            System.out.println("\t" + variants[v] + ": " + mismatches[v] + " mismatched");
+        }
+    }
+
+    /**
+     * Clears all the hashes of the net and recalculates them, requesting the providers' hashes in a random order
+     *
+     * @return the new hash of each provider
+     */
+    private static Map<SignalProvider, Long> recalculate(BoardNet net, Random rand) {
+        List<SignalProvider> providers = new ArrayList<>(net.traceNeuronsSet().getProviders());
+        for (SignalProvider provider : providers) {
+            provider.clearHashCache();
+        }
+
+        Collections.shuffle(providers, rand);
+        Map<SignalProvider, Long> hashes = new IdentityHashMap<>();
+        for (SignalProvider provider : providers) {
+            hashes.put(provider, provider.getNeuralHash());
+        }
+        return hashes;
+    }
+
+    private static boolean hasLoop(BoardNet net) {
+        for (SignalProvider provider : net.getProviders()) {
+            if (provider instanceof CachingNeuron neuron && neuron.getLoop() != null && neuron.getLoop().size() > 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Maps each provider of the net to the provider in the same position of the copy, by walking the inputs of both
+     * from their sensors and decision nodes in parallel
+     */
+    private static Map<SignalProvider, SignalProvider> correspond(BoardNet net, BoardNet copy) {
+        Map<SignalProvider, SignalProvider> same = new IdentityHashMap<>();
+        ArrayDeque<SignalProvider[]> pairs = new ArrayDeque<>();
+
+        for (int i = 0; i < net.getSensors().size(); i++) {
+            pairs.add(new SignalProvider[] { net.getSensors().get(i), copy.getSensors().get(i) });
+        }
+        for (int i = 0; i < net.getDecisionNodes().size(); i++) {
+            List<SignalProvider> inputs = net.getDecisionNodes().get(i).getInputs();
+            List<SignalProvider> copyInputs = copy.getDecisionNodes().get(i).getInputs();
+            for (int j = 0; j < inputs.size(); j++) {
+                pairs.add(new SignalProvider[] { inputs.get(j), copyInputs.get(j) });
+            }
+        }
+
+        while (!pairs.isEmpty()) {
+            SignalProvider[] pair = pairs.poll();
+            if (same.putIfAbsent(pair[0], pair[1]) != null || !(pair[0] instanceof SignalConsumer consumer)) continue;
+
+            List<SignalProvider> inputs = consumer.getInputs();
+            List<SignalProvider> copyInputs = ((SignalConsumer)pair[1]).getInputs();
+            for (int j = 0; j < inputs.size(); j++) {
+                pairs.add(new SignalProvider[] { inputs.get(j), copyInputs.get(j) });
+            }
+        }
+        return same;
+    }
+
+    private static byte[] serialize(BoardNet net) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(net);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static BoardNet deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (BoardNet)in.readObject();
+        }
+    }
+}
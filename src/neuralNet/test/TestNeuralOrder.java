@@ -0,0 +1,181 @@
+package neuralNet.test;
+
+import game2048.*;
+import neuralNet.evolve.*;
+import neuralNet.neuron.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * Checks the circular reference checks which NeuralOrder makes for CachingNeuron against the original tracing, on
+ * mutants made by AddNeurons.  Random addInput() / replaceInput() / setInputs() calls are made on each mutant (many of
+ * which must be rejected), and each call should be accepted or rejected exactly when consumer.traceConsumers(provider)
+ * says it should.  After every call each ranked input must still be ranked below its consumer, and a rejected call
+ * must leave no stray consumers behind.  Each net is cloned every few calls, since any call the order can't account for
+ * invalidates it until then.
+ */
+public class TestNeuralOrder {
+    public static final int MUTANTS = 300;
+    public static final int ROUNDS = 10;
+    public static final int CALLS = 10;
+
+    private static final Field order;
+    private static final Field rank;
+    private static final Field valid;
+
+    static {
+        try {
+            order = CachingNeuron.class.getDeclaredField("order");
+            rank = CachingNeuron.class.getDeclaredField("rank");
+            valid = NeuralOrder.class.getDeclaredField("valid");
+            order.setAccessible(true);
+            rank.setAccessible(true);
+            valid.setAccessible(true);
+
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void main(String[] args) throws IllegalAccessException {
+        Random rand = new Random(1015);
+        List<BoardNet> nets = new ArrayList<>();
+        nets.add(TestBoardNet.makeEdgeNet());
+
+        int mismatches = 0;
+        int violations = 0;
+        int strays = 0;
+        int calls = 0;
+        int rejected = 0;
+        int unordered = 0;
+
+        for (int i = 0; i < MUTANTS; i++) {
+            BoardNet parent = nets.get(Math.max(0, nets.size() - 1 - rand.nextInt(8)));
+            BoardNet mutant = new AddNeurons<>(parent, 1, 0).makeMutation(1 + rand.nextInt(30));
+
+            for (int r = 0; r < ROUNDS; r++) {
+                List<SignalProvider> providers = new ArrayList<>(mutant.getProviders());
+                List<CachingNeuron> consumers = new ArrayList<>();
+                for (SignalProvider provider : providers) {
+                    if (provider instanceof CachingNeuron neuron) consumers.add(neuron);
+                }
+
+                for (int c = 0; c < CALLS; c++) {
+                    CachingNeuron consumer = consumers.get(rand.nextInt(consumers.size()));
+                    List<SignalProvider> inputs = consumer.getInputs();
+                    int call = rand.nextInt(3);
+
+                    // each new input is checked the same way, by the original tracing
+                    List<SignalProvider> newInputs;
+                    int index = -1;
+                    switch (call) {
+                        case 0:
+                            if (inputs.size() >= consumer.getMaxInputs() || consumer.pairedInputs()) continue;
+                            newInputs = List.of(providers.get(rand.nextInt(providers.size())));
+                            break;
+
+                        case 1:
+                            if (inputs.isEmpty()) continue;
+                            index = rand.nextInt(inputs.size());
+                            newInputs = List.of(providers.get(rand.nextInt(providers.size())));
+                            break;
+
+                        default:
+                            if (inputs.size() < consumer.getMinInputs()) continue;
+                            newInputs = new ArrayList<>(inputs);
+                            for (int n = 0; n < newInputs.size(); n++) {
+                                if (!rand.nextBoolean()) continue;
+                                newInputs.set(n, providers.get(rand.nextInt(providers.size())));
+                            }
+                    }
+
+                    boolean expected = false;
+                    for (SignalProvider input : newInputs) {
+                        if (inputs.contains(input) || !(input instanceof SignalConsumer sc)) continue;
+                        if (consumer.traceConsumers(sc)) {
+                            expected = true;
+                            break;
+                        }
+                    }
+
+                    boolean thrown = false;
+                    try {
+                        switch (call) {
+                            case 0 -> consumer.addInput(newInputs.get(0));
+                            case 1 -> consumer.replaceInput(index, newInputs.get(0));
+                            default -> consumer.setInputs(newInputs);
+                        }
+
+                    } catch (IllegalArgumentException e) {
+                        thrown = true;
+                        rejected++;
+                    }
+                    calls++;
+
+                    if (thrown != expected && mismatches++ < 10) {
+                        System.out.println("Mutant " + i + ": " + consumer + " " + (thrown ? "rejected " : "accepted ")
+                                + newInputs + " (call " + call + ")");
+                    }
+
+                    for (SignalProvider provider : providers) {
+                        if (provider.getConsumers().contains(consumer) && !consumer.getInputs().contains(provider)) {
+                            if (strays++ < 10) {
+                                System.out.println("Mutant " + i + ": " + provider + " still has consumer " + consumer);
+                            }
+                        }
+                    }
+
+                    if (!isOrdered(mutant)) unordered++;
+                    else if (!ranksInputsFirst(mutant) && violations++ < 10) {
+                        System.out.println("Mutant " + i + ": rank invariant broken by " + consumer
+                                + " (call " + call + ")");
+                    }
+
+                    if (call == 0 && !thrown && rand.nextBoolean()) consumer.removeInput(newInputs.get(0));
+                }
+
+                // a rejected setInputs() etc. invalidates the order until the net is cloned, which ranks it again
+                mutant = mutant.traceNeuronsSet().clone();
+            }
+
+            nets.add(mutant);
+        }
+
+        System.out.println(calls + " calls (" + rejected + " rejected, " + unordered + " with the order invalidated), "
+                + mismatches + " mismatched, " + violations + " rank invariant violations, "
+                + strays + " stray consumers");
+    }
+
+    /**
+     * @return whether all the ranked neurons of the net share one valid order
+     */
+    private static boolean isOrdered(BoardNet net) throws IllegalAccessException {
+        Object shared = null;
+        for (SignalProvider provider : net.getProviders()) {
+            if (!(provider instanceof CachingNeuron neuron) || provider instanceof LoopingNeuron) continue;
+            Object neuronOrder = order.get(neuron);
+            if (neuronOrder == null) continue;
+            if (shared == null) shared = neuronOrder;
+            else if (shared != neuronOrder) return false;
+        }
+        return shared != null && valid.getBoolean(shared);
+    }
+
+    /**
+     * @return whether every ranked input is ranked below its consumer
+     */
+    private static boolean ranksInputsFirst(BoardNet net) throws IllegalAccessException {
+        for (SignalProvider provider : net.getProviders()) {
+            if (!(provider instanceof CachingNeuron neuron) || provider instanceof LoopingNeuron) continue;
+            Object neuronOrder = order.get(neuron);
+            if (neuronOrder == null) continue;
+
+            for (SignalProvider input : neuron.getInputs()) {
+                if (!(input instanceof CachingNeuron in) || input instanceof LoopingNeuron) continue;
+                if (order.get(in) == neuronOrder && rank.getInt(in) >= rank.getInt(neuron)) return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,120 @@
+package neuralNet.test;
+
+import neuralNet.function.*;
+
+import java.util.*;
+
+import static neuralNet.util.Util.*;
+
+/**
+ * Checks that Util.normalizedLog() matches Math.log() for every signal, and benchmarks the sum of the logs of a
+ * neuron's inputs (as MultiplyNormalized calculates) with table lookups against Math.log(), across typical fan-ins.
+ * The last column is MultiplyNormalized.calcOutput() itself, which uses an integer square root for two inputs.
+ *
+ * Benchmarked 10-18-2026 on a single-core Intel Xeon VM, Temurin 17.0.9.  Nanoseconds per neuron:
+ *
+ *   inputs    Math.log       table    calcOutput
+ *        2       104.6        45.1         10.4
+ *        4       160.4        47.1         43.4
+ *        8       355.3        53.0         44.3
+ *       16       488.4        81.3         59.4
+ *       64      1841.0       112.1         97.3
+ *      256      7261.0       451.8        289.1
+ *
+ * i.e. around 28 ns per input for Math.log() against under 2 ns for the table, even with random signals spread over
+ * the whole 512 KB table.  (The third round of a run, after the JIT has warmed up; timings on this VM are noisy.)
+ */
+public class TestNormalizedLog {
+    public static final int[] FAN_INS = { 2, 4, 8, 16, 64, 256 };
+    public static final int NEURONS = 4096;
+    public static final int REPEATS = 10;
+
+    public static void main(String[] args) {
+        int mismatches = 0;
+        for (int signal = Short.MIN_VALUE; signal <= Short.MAX_VALUE; signal++) {
+            double expected = Math.log((signal + ZEROIZE) / MAX_PLUS_ONE);
+            if (Double.doubleToLongBits(normalizedLog((short)signal)) != Double.doubleToLongBits(expected)) {
+                mismatches++;
+            }
+        }
+        System.out.println("Table mismatches: " + mismatches);
+
+        Random rand = new Random(1019);
+        mismatches = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            short[] inputs = new short[2 + rand.nextInt(255)];
+            for (int j = 0; j < inputs.length; j++) {
+                inputs[j] = (short)rand.nextInt(Short.MIN_VALUE + 1, Short.MAX_VALUE + 1);
+            }
+            if (MultiplyNormalized.INSTANCE.calcOutput(inputs, 0, inputs.length) != mathLogOutput(inputs, 0, inputs.length)) {
+                mismatches++;
+            }
+        }
+        System.out.println("MultiplyNormalized mismatches: " + mismatches);
+
+        System.out.println("inputs\tMath.log\ttable\tcalcOutput\t(ns per neuron)");
+        for (int round = 0; round < 3; round++) { // the first round(s) include JIT warmup
+            for (int fanIn : FAN_INS) {
+                short[] inputs = new short[fanIn * NEURONS];
+                for (int i = 0; i < inputs.length; i++) {
+                    inputs[i] = (short)rand.nextInt(Short.MIN_VALUE + 1, Short.MAX_VALUE + 1);
+                }
+
+                long check = 0;
+                long start = System.nanoTime();
+                for (int r = 0; r < REPEATS; r++) {
+                    for (int offset = 0; offset < inputs.length; offset += fanIn) {
+                        check += mathLogOutput(inputs, offset, fanIn);
+                    }
+                }
+                long mathLog = System.nanoTime();
+                for (int r = 0; r < REPEATS; r++) {
+                    for (int offset = 0; offset < inputs.length; offset += fanIn) {
+                        check -= tableOutput(inputs, offset, fanIn);
+                    }
+                }
+                long table = System.nanoTime();
+                for (int r = 0; r < REPEATS; r++) {
+                    for (int offset = 0; offset < inputs.length; offset += fanIn) {
+                        check += MultiplyNormalized.INSTANCE.calcOutput(inputs, offset, fanIn);
+                    }
+                }
+                long calcOutput = System.nanoTime();
+
+                double neurons = (double)NEURONS * REPEATS;
+                System.out.printf("%d\t%.1f\t%.1f\t%.1f\t(%d)%n", fanIn,
+                        (mathLog - start) / neurons, (table - mathLog) / neurons, (calcOutput - table) / neurons,
+                        check); // check is printed so the work can't be optimized away
+            }
+        }
+    }
+
+    /**
+     * The original MultiplyNormalized calculation
+     */
+    private static short mathLogOutput(short[] inputs, int offset, int length) {
+        double sumLog = 0;
+
+        for (int i = offset, end = offset + length; i < end; i++) {
+            double val = (inputs[i] + ZEROIZE) / MAX_PLUS_ONE;
+            if (val == 0) return Short.MIN_VALUE;
+            sumLog += Math.log(val);
+        }
+
+        return roundClip(Math.exp(sumLog / length) * MAX_PLUS_ONE - ZEROIZE);
+    }
+
+    /**
+     * The same with table lookups, for every fan-in
+     */
+    private static short tableOutput(short[] inputs, int offset, int length) {
+        double sumLog = 0;
+
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (inputs[i] == Short.MIN_VALUE) return Short.MIN_VALUE;
+            sumLog += normalizedLog(inputs[i]);
+        }
+
+        return roundClip(Math.exp(sumLog / length) * MAX_PLUS_ONE - ZEROIZE);
+    }
+}
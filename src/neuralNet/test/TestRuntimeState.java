@@ -0,0 +1,100 @@
+package neuralNet.test;
+
+import game2048.*;
+import neuralNet.evolve.*;
+import neuralNet.network.*;
+import neuralNet.neuron.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * Checks that the runtime state of a net is only allocated once it runs, and is released by
+ * NeuralNet.clearRuntimeState(): freshly mutated nets, and nets which have been cleared after playing, should have no
+ * ExecutionPlan and no memory neuron buffers.  A cleared net should then replay the same seeded games with the same
+ * scores, the second time in incremental mode, whose arrays are only built when it is enabled.  Mutants with
+ * RandomValueProviders are left out, since they don't play the same games the same way twice.
+ */
+public class TestRuntimeState {
+    public static final int NETS = 24;
+    public static final int GAMES = 20;
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        Field plan = NeuralNet.class.getDeclaredField("plan");
+        Field memory = ShortTermMemoryNeuron.class.getDeclaredField("memory");
+        Field accumulated = LongTermMemoryNeuron.class.getDeclaredField("accumulated");
+        plan.setAccessible(true);
+        memory.setAccessible(true);
+        accumulated.setAccessible(true);
+
+        Random rand = new Random(1012);
+        List<BoardNet> nets = new ArrayList<>();
+        nets.add(TestBoardNet.makeEdgeNet());
+        while (nets.size() < NETS) {
+            BoardNet parent = nets.get(rand.nextInt(nets.size()));
+            BoardNet mutant = new AddNeurons<>(parent, 1, 0).makeMutation(1 + rand.nextInt(6));
+
+            // a net with a RandomValueProvider won't repeat its scores
+            if (mutant.getProviders().stream().noneMatch(provider -> provider instanceof RandomValueProvider)) {
+                nets.add(mutant);
+            }
+        }
+
+        int memoryNeurons = 0;
+        int allocated = 0;
+        int mismatches = 0;
+
+        for (BoardNet net : nets) {
+            BoardInterface board = new BoardInterface();
+            board.setGameSetSeed(rand.nextLong());
+            board.setGamesPerTest(GAMES);
+
+            for (SignalProvider provider : net.getProviders()) {
+                if (provider instanceof ShortTermMemoryNeuron || provider instanceof LongTermMemoryNeuron) {
+                    memoryNeurons++;
+                }
+            }
+
+            allocated += countAllocated(net, plan, memory, accumulated, "before playing");
+            BoardInterface.BoardNetFitness first = board.testFitness(net, null);
+
+            net.clearRuntimeState();
+            allocated += countAllocated(net, plan, memory, accumulated, "after clearRuntimeState()");
+
+            net.getExecutionPlan().setIncremental(true);
+            BoardInterface.BoardNetFitness second = board.testFitness(net, null);
+            net.clearRuntimeState();
+
+            if (!sameScores(first, second) && mismatches++ < 10) {
+                System.out.println(net + ":\n" + first + "\nvs\n" + second);
+            }
+        }
+
+        System.out.println(NETS + " nets (" + memoryNeurons + " memory neurons), " + allocated
+                + " runtime states left allocated, " + mismatches + " mismatched replays");
+    }
+
+    private static int countAllocated(BoardNet net, Field plan, Field memory, Field accumulated, String when)
+            throws IllegalAccessException {
+
+        int allocated = 0;
+        if (plan.get(net) != null) {
+            allocated++;
+            System.out.println(net + " has an ExecutionPlan " + when);
+        }
+
+        for (SignalProvider provider : net.getProviders()) {
+            if ((provider instanceof ShortTermMemoryNeuron && memory.get(provider) != null)
+                    || (provider instanceof LongTermMemoryNeuron && accumulated.get(provider) != null)) {
+                allocated++;
+                System.out.println(provider + " in " + net + " has its buffers " + when);
+            }
+        }
+        return allocated;
+    }
+
+    private static boolean sameScores(BoardInterface.BoardNetFitness a, BoardInterface.BoardNetFitness b) {
+        return a.min == b.min && a.max == b.max && a.arthMean == b.arthMean && a.median == b.median
+                && a.geoMean == b.geoMean;
+    }
+}
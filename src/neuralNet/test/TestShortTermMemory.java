@@ -0,0 +1,197 @@
+package neuralNet.test;
+
+import neuralNet.neuron.*;
+
+import java.util.*;
+
+import static neuralNet.util.Util.*;
+
+/**
+ * Compares ShortTermMemoryNeuron's running sums against the original implementation, which re-weighed the whole
+ * window every round (copied below as Reference).  Covers random window shapes including zero delay / fadeIn /
+ * fadeOut, random and extreme input sequences, and resets part-way through.  The outputs should always be identical.
+ */
+public class TestShortTermMemory {
+    public static final int NEURONS = 2000;
+    public static final int ROUNDS = 3000;
+
+    public static void main(String[] args) {
+        Random rand = new Random(2048);
+        int mismatches = 0;
+        long rounds = 0;
+
+        for (int n = 0; n < NEURONS; n++) {
+            int delay = rand.nextInt(4) == 0 ? 0 : rand.nextInt(n < NEURONS / 2 ? 8 : 200);
+            int fadeIn = rand.nextInt(4) == 0 ? 0 : rand.nextInt(n < NEURONS / 2 ? 8 : 300);
+            int length = 1 + rand.nextInt(n < NEURONS / 2 ? 8 : 300);
+            int fadeOut = rand.nextInt(4) == 0 ? 0 : rand.nextInt(n < NEURONS / 2 ? 8 : 300);
+            short defaultVal = (short)rand.nextInt(Short.MIN_VALUE, Short.MAX_VALUE + 1);
+
+            Input input = new Input();
+            ShortTermMemoryNeuron neuron = new ShortTermMemoryNeuron(input, defaultVal, delay, fadeIn, length, fadeOut);
+            Reference reference = new Reference(defaultVal, delay, fadeIn, length, fadeOut);
+            int mode = rand.nextInt(3);
+
+            for (int r = 0; r < ROUNDS; r++) {
+                if (rand.nextInt(1000) == 0) {
+                    input.reset();
+                    neuron.reset();
+                    reference.reset();
+                }
+
+                switch (mode) {
+                    case 0: // full range
+                        input.value = (short)rand.nextInt(Short.MIN_VALUE, Short.MAX_VALUE + 1);
+                        break;
+
+                    case 1: // extremes, for the largest sums
+                        input.value = rand.nextBoolean() ? Short.MAX_VALUE : Short.MIN_VALUE;
+                        break;
+
+                    default: // small values, where rounding ties are most likely
+                        input.value = (short)rand.nextInt(-3, 4);
+                }
+
+                input.before();
+                neuron.before();
+
+                if (neuron.getOutput() != reference.output) {
+                    if (mismatches++ < 20) {
+                        System.out.println(neuron + " round " + r + ": " + neuron.getOutput() + " vs " + reference.output);
+                    }
+                }
+
+                neuron.after();
+                reference.after(input.value);
+                rounds++;
+            }
+        }
+
+        System.out.println(NEURONS + " neurons, " + rounds + " rounds, " + mismatches + " mismatches");
+    }
+
+    private static class Input extends CachingProvider {
+        public static final long serialVersionUID = 4694610484279986217L;
+
+        private short value;
+
+        @Override
+        protected short calcOutput() {
+            return this.value;
+        }
+
+        @Override
+        protected long calcNeuralHash() {
+            return 0;
+        }
+
+        @Override
+        public boolean sameBehavior(SignalProvider other) {
+            return other == this;
+        }
+
+        @Override
+        public CachingProvider clone() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * The original ShortTermMemoryNeuron.after() logic, which recalculates the weighted sum over the whole window
+     */
+    private static class Reference {
+        private final short defaultVal;
+        private final int delay, fadeIn, length, fadeOut;
+        private final double[] memory;
+        private int index = 0;
+        private int size = 0;
+        private short output;
+
+        private Reference(short defaultVal, int delay, int fadeIn, int length, int fadeOut) {
+            this.defaultVal = defaultVal;
+            this.delay = delay;
+            this.fadeIn = fadeIn;
+            this.length = length;
+            this.fadeOut = fadeOut;
+            this.memory = new double[delay + fadeIn + length + fadeOut];
+            this.output = defaultVal;
+        }
+
+        private void reset() {
+            this.output = this.defaultVal;
+            this.size = 0;
+            this.index = 0;
+        }
+
+        private void after(short input) {
+            this.memory[this.index] = input;
+            if (this.size != this.memory.length) this.size++;
+
+            double sum = 0;
+            double weightSum = 0;
+
+            int fadeIn = 0;
+            int length = 0;
+            int fadeOut = this.fadeOut;
+
+            int i;
+            boolean first;
+            int end;
+
+            if (this.delay == 0) {
+                i = this.index;
+                if (this.size == this.memory.length) {
+                    first = true;
+                    end = this.index;
+
+                } else {
+                    first = false;
+                    end = this.memory.length - 1;
+                }
+
+            } else {
+                first = false;
+                i = this.index - this.delay;
+                if (this.size == this.memory.length) {
+                    end = this.index;
+                    if (i < 0) i += this.memory.length;
+
+                } else if (i < 0) end = i;
+                else end = this.memory.length - 1;
+            }
+
+            while (true) {
+                if (i == end) {
+                    if (first) first = false;
+                    else break;
+                }
+
+                if (fadeIn != this.fadeIn) {
+                    fadeIn++;
+                    sum += this.memory[i] * fadeIn;
+                    weightSum += fadeIn;
+
+                } else if (length != this.length) {
+                    sum += this.memory[i] * this.length;
+                    length++;
+
+                } else if (fadeOut != 0) {
+                    sum += this.memory[i] * fadeOut;
+                    weightSum += fadeOut;
+                    fadeOut--;
+
+                } else throw new IllegalStateException();
+
+                if (i != 0) i--;
+                else i = this.memory.length - 1;
+            }
+
+            weightSum += length * this.length;
+
+            if (++this.index == this.memory.length) this.index = 0;
+
+            if (weightSum == 0) this.output = this.defaultVal;
+            else this.output = roundClip(sum / weightSum);
+        }
+    }
+}
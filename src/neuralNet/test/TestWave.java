@@ -18,6 +18,9 @@ public class TestWave {
     public static final double PHASE = Math.sqrt(2);
     public static final int ROUNDS = 50_000_000; //(int)Math.abs(PERIOD * 1.125);
 
+    public static final double[] NEGATIVE_PERIODS = { -0.75, -3, -7.5, -1000.3, -PERIOD };
+    public static final int NEGATIVE_PERIOD_ROUNDS = 100_000;
+
     public static final FixedValueProvider phase = makePhaseNeuron();
     public static final FixedValueProvider period = new FixedValueProvider(Short.MAX_VALUE);
 
@@ -46,6 +49,7 @@ public class TestWave {
 
 
     public static void main (String[] args) {
+        checkNegativePeriods();
 
         /*
         TestWave tester = new TestWave(List.of(sine, triangle, saw, square));
@@ -100,6 +104,38 @@ public class TestWave {
     }
 
 
+    /**
+     * Regression check for StaticWaveProvider with a negative period, whose phase used to be wrapped whenever it was
+     * <= 2.0 (i.e. every round) instead of when it fell below 0.0, so that it grew without bound.  Each wave is
+     * compared with the output at the phase it should have, kept within [0, 2) the same way a positive period's is
+     */
+    public static void checkNegativePeriods() {
+        int mismatches = 0;
+
+        for (WaveFunction function : StaticWaveProvider.WAVE_FUNCTIONS) {
+            for (double period : NEGATIVE_PERIODS) {
+                StaticWaveProvider wave = new StaticWaveProvider(function, period, PHASE);
+                double phase = wave.phase;
+
+                for (int i = 0; i < NEGATIVE_PERIOD_ROUNDS; i++) {
+                    wave.before();
+                    if (wave.getOutput() != function.output(phase) && mismatches++ < 10) {
+                        System.err.println(function.getClass().getSimpleName() + " period " + period + ", round " + i
+                                + ": " + wave.getOutput() + " instead of " + function.output(phase) + " (phase " + phase + ")");
+                    }
+                    wave.after();
+
+                    phase += wave.incrementPerRound;
+                    if (wave.increment2orMore) phase %= 2.0;
+                    if (phase < 0.0) phase += 2.0;
+                }
+            }
+        }
+
+        System.out.println("Negative periods: " + mismatches + " mismatches\n");
+    }
+
+
     private final List<SignalProvider> waveNeurons;
     private final Set<SignalProvider> allNeurons; // may include neurons which the wave neurons depend upon
     private Map<SignalProvider, Set<SignalProvider>> pairs;
@@ -109,6 +109,74 @@ public abstract class Util {
         else return (short) rounded;
     }
 
+    /**
+     * How close to halfway between two integers an estimate passed to roundClipEstimate() may be.  Every estimate
+     * must be far closer than this to the exact value, and so must the double calculation it stands in for
+     */
+    public static final double ROUNDING_TOLERANCE = 1e-6;
+    public static final int NOT_ROUNDED = Integer.MIN_VALUE;
+
+    /**
+     * For the integer / fixed-point kernels of the NeuralFunctions, which estimate the result of a double calculation.
+     *
+     * @return roundClip(estimate), or NOT_ROUNDED if the estimate is within ROUNDING_TOLERANCE of halfway between two
+     * integers (or NaN), in which case the exact calculation might round the other way and must be done instead
+     */
+    public static int roundClipEstimate(double estimate) {
+        double shifted = estimate + 0.5;
+        double floor = Math.floor(shifted);
+        double fraction = shifted - floor;
+        if (!(fraction >= ROUNDING_TOLERANCE && fraction <= 1.0 - ROUNDING_TOLERANCE)) return NOT_ROUNDED;
+        return clip((long)floor);
+    }
+
+    /**
+     * @return Math.log((signal + ZEROIZE) / MAX_PLUS_ONE), i.e. the natural log of the signal normalized to 0.0 - 2.0
+     * (negative infinity for Short.MIN_VALUE), looked up in a shared table.  The values are exactly those of Math.log()
+     */
+    public static double normalizedLog(short signal) {
+        return NormalizedLogs.TABLE[signal + ZEROIZE_INT];
+    }
+
+    /**
+     * Holder for normalizedLog()'s table (512 KB), which is only built when first used
+     */
+    private static class NormalizedLogs {
+        private static final double[] TABLE = new double[RANGE_INT];
+
+        static {
+            for (int i = 0; i < RANGE_INT; i++) {
+                TABLE[i] = Math.log((i - ZEROIZE_INT + ZEROIZE) / MAX_PLUS_ONE);
+            }
+        }
+    }
+
+    /**
+     * @return the z-score below which the given proportion of a standard normal distribution lies, e.g. 1.645 for
+     * 0.95.  Acklam's rational approximation, accurate to about 1e-9
+     */
+    public static double normalQuantile(double p) throws IllegalArgumentException {
+        if (!(p > 0 && p < 1)) throw new IllegalArgumentException(p + "");
+
+        if (p < 0.02425) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((-7.784894002430293e-03 * q - 3.223964580411365e-01) * q - 2.400758277161838e+00) * q
+                    - 2.549732539343734e+00) * q + 4.374664141464968e+00) * q + 2.938163982698783e+00)
+                    / ((((7.784695709041462e-03 * q + 3.224671290700398e-01) * q + 2.445134137142996e+00) * q
+                    + 3.754408661907416e+00) * q + 1);
+
+        } else if (p > 1 - 0.02425) {
+            return -normalQuantile(1 - p);
+        }
+
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((-3.969683028665376e+01 * r + 2.209460984245205e+02) * r - 2.759285104469687e+02) * r
+                + 1.383577518672690e+02) * r - 3.066479806614716e+01) * r + 2.506628277459239e+00) * q
+                / (((((-5.447609879822406e+01 * r + 1.615858368580409e+02) * r - 1.556989798598866e+02) * r
+                + 6.680131188771972e+01) * r - 1.328068155288572e+01) * r + 1);
+    }
+
     public static double min(double ... values) throws IllegalArgumentException {
         if (values.length < 1) throw new IllegalArgumentException();
         double min = Double.MAX_VALUE;